@@ -0,0 +1,162 @@
+package com.example.parkingsystem.benchmark;
+
+import com.example.parkingsystem.ParkingsystemApplication;
+import com.example.parkingsystem.config.FreeParkingTimingConfig;
+import com.example.parkingsystem.config.HolidayConfig;
+import com.example.parkingsystem.config.StreetParkingPricing;
+import com.example.parkingsystem.config.StreetPricingConfig;
+import com.example.parkingsystem.config.TariffCalendarConfig;
+import com.example.parkingsystem.entity.ParkingSession;
+import com.example.parkingsystem.repository.ParkingSessionRepository;
+import com.example.parkingsystem.service.impl.SessionPlateFilter;
+import com.example.parkingsystem.service.impl.ActiveSessionIndex;
+import com.example.parkingsystem.service.impl.ParkingSessionServiceImpl;
+import com.example.parkingsystem.service.impl.SessionLockStripes;
+import com.example.parkingsystem.service.impl.SessionQuoteCache;
+import com.example.parkingsystem.service.impl.SessionWriteBehind;
+
+import ch.qos.logback.classic.Level;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.core.env.StandardEnvironment;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/*
+ * Fixtures shared by the benchmarks
+ */
+final class BenchmarkSupport {
+
+	static final List<String> STREETS = List.of("Java", "Jakarta", "Spring", "Azure");
+
+	private BenchmarkSupport() {
+	}
+
+	/*
+	 * Keeps INFO logging of the measured code paths out of the measurements
+	 */
+	static void quietLogging() {
+		((ch.qos.logback.classic.Logger) LoggerFactory.getLogger(Logger.ROOT_LOGGER_NAME)).setLevel(Level.WARN);
+	}
+
+	/*
+	 * Starts the application against its in-memory H2 database, without the web tier and the scheduled jobs
+	 */
+	static ConfigurableApplicationContext startApplication(String... extraArgs) throws Exception {
+		return run(WebApplicationType.NONE, extraArgs);
+	}
+
+	/*
+	 * Starts the application with its web tier on a random port, see local.server.port, without the scheduled jobs
+	 */
+	static ConfigurableApplicationContext startWebApplication(String... extraArgs) throws Exception {
+		String[] args = new String[extraArgs.length + 1];
+		args[0] = "--server.port=0";
+		System.arraycopy(extraArgs, 0, args, 1, extraArgs.length);
+		return run(WebApplicationType.SERVLET, args);
+	}
+
+	private static ConfigurableApplicationContext run(WebApplicationType webApplicationType, String... extraArgs) throws Exception {
+		Path reportDirectory = Files.createTempDirectory("parkingsystem-benchmark-reports");
+		SpringApplication application = new SpringApplication(ParkingsystemApplication.class);
+		application.setWebApplicationType(webApplicationType);
+		String[] args = {
+				"--spring.datasource.url=jdbc:h2:mem:benchmark-" + System.nanoTime() + ";DB_CLOSE_DELAY=-1",
+				"--parkingsystem.cron.unregistered.plates=-",
+				"--parkingsystem.cron.observations.retention=-",
+				"--parkingsystem.report.dir=" + reportDirectory,
+				"--logging.level.root=WARN"
+		};
+		String[] allArgs = new String[args.length + extraArgs.length];
+		System.arraycopy(args, 0, allArgs, 0, args.length);
+		System.arraycopy(extraArgs, 0, allArgs, args.length, extraArgs.length);
+		return application.run(allArgs);
+	}
+
+	/*
+	 * Builds a CSV upload of observations, every plate observed once on one of the configured streets
+	 */
+	static byte[] observationsCsv(int observations) {
+		StringBuilder csv = new StringBuilder(observations * 40);
+		for (int i = 0; i < observations; i++) {
+			csv.append(plate(i)).append(',').append(STREETS.get(i % STREETS.size())).append(",2025-03-03T10:15\n");
+		}
+		return csv.toString().getBytes(StandardCharsets.UTF_8);
+	}
+
+	static String plate(int i) {
+		return "BM" + i;
+	}
+
+	/*
+	 * Returns a ParkingSessionRepository that keeps nothing, it only echoes saved sessions
+	 */
+	static ParkingSessionRepository echoRepository() {
+		return (ParkingSessionRepository) Proxy.newProxyInstance(
+				ParkingSessionRepository.class.getClassLoader(), new Class<?>[] {ParkingSessionRepository.class},
+				(proxy, method, args) -> switch (method.getName()) {
+					case "save" -> args[0];
+					case "findByLicensePlateAndEndTimeIsNull", "findByIsActive", "findAllEndedLicensePlates", "findEndedLicensePlates", "findAllLicensePlates" -> List.of();
+					case "findByLicensePlateAndIsActive" -> Optional.empty();
+					case "hashCode" -> System.identityHashCode(proxy);
+					case "equals" -> proxy == args[0];
+					case "toString" -> "BenchmarkParkingSessionRepository";
+					default -> throw new UnsupportedOperationException(method.getName());
+				});
+	}
+
+	/*
+	 * Builds a ParkingSessionServiceImpl outside of Spring with the configured tariffs, for single session changes only
+	 */
+	static ParkingSessionServiceImpl standaloneSessionService(ParkingSessionRepository repository, ActiveSessionIndex activeSessionIndex) {
+		HolidayConfig holidayConfig = new HolidayConfig();
+		ReflectionTestUtils.setField(holidayConfig, "holidays", "2025-01-01,2025-12-25,2025-11-26");
+		holidayConfig.init();
+		FreeParkingTimingConfig freeParkingTimingConfig = new FreeParkingTimingConfig();
+		ReflectionTestUtils.setField(freeParkingTimingConfig, "freeParkingStartTime", "20:59");
+		ReflectionTestUtils.setField(freeParkingTimingConfig, "freeParkingEndTime", "08:00");
+		freeParkingTimingConfig.init();
+		TariffCalendarConfig tariffCalendarConfig = new TariffCalendarConfig(holidayConfig, freeParkingTimingConfig);
+		ReflectionTestUtils.setField(tariffCalendarConfig, "timezone", "Europe/Amsterdam");
+		tariffCalendarConfig.init();
+
+		StreetParkingPricing streetParkingPricing = new StreetParkingPricing();
+		Map<String, Integer> prices = new HashMap<>();
+		prices.put("Java", 15);
+		streetParkingPricing.setValues(prices);
+		StreetPricingConfig streetPricingConfig = new StreetPricingConfig(streetParkingPricing, new StandardEnvironment(), tariffCalendarConfig);
+		streetPricingConfig.init();
+
+		MeterRegistry meterRegistry = new SimpleMeterRegistry();
+		SessionPlateFilter sessionPlateFilter = new SessionPlateFilter(repository, false, 1, 0.01);
+		SessionWriteBehind sessionWriteBehind = new SessionWriteBehind(null, null, activeSessionIndex, sessionPlateFilter, meterRegistry, false, 1, 1, Duration.ZERO, Duration.ZERO, Duration.ZERO);
+		return new ParkingSessionServiceImpl(repository, streetPricingConfig, tariffCalendarConfig, activeSessionIndex, meterRegistry, null, new SessionLockStripes(1024), null,
+				sessionPlateFilter, new SessionQuoteCache(), sessionWriteBehind, null);
+	}
+
+	static ParkingSession activeSession(String licensePlate, LocalDateTime startTime) {
+		ParkingSession session = new ParkingSession();
+		session.setLicensePlate(licensePlate);
+		session.setStreetName("Java");
+		session.setStartTime(startTime);
+		session.setActive(true);
+		return session;
+	}
+}
@@ -0,0 +1,69 @@
+package com.example.parkingsystem.benchmark;
+
+import com.example.parkingsystem.service.LicensePlateObservationService;
+import com.example.parkingsystem.service.ObservationUploadFormat;
+import com.example.parkingsystem.service.ParkingSessionService;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.ByteArrayInputStream;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * End to end run of the unregistered plates job against the in-memory database, one in ten observed plates
+ * has an ended parking session, sequentially and with the observations split in partitions checked in parallel
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgs = {"-Xmx2g"})
+public class EnforcementBenchmark {
+
+	@Param({"10000", "100000", "1000000"})
+	public int observations;
+
+	@Param({"1", "4"})
+	public int parallelism;
+
+	private ConfigurableApplicationContext context;
+
+	private LicensePlateObservationService licensePlateObservationService;
+
+	@Setup(Level.Trial)
+	public void setUp() throws Exception {
+		context = BenchmarkSupport.startApplication("--parkingsystem.enforcement.parallelism=" + parallelism);
+		licensePlateObservationService = context.getBean(LicensePlateObservationService.class);
+		licensePlateObservationService.uploadObservations(new ByteArrayInputStream(BenchmarkSupport.observationsCsv(observations)), ObservationUploadFormat.CSV);
+
+		ParkingSessionService parkingSessionService = context.getBean(ParkingSessionService.class);
+		for (int i = 0; i < observations; i += 10) {
+			parkingSessionService.startSession(BenchmarkSupport.plate(i), BenchmarkSupport.STREETS.get(i % BenchmarkSupport.STREETS.size()));
+			parkingSessionService.endSession(BenchmarkSupport.plate(i));
+		}
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		context.close();
+	}
+
+	@Benchmark
+	public void identifyUnregisteredPlates() {
+		licensePlateObservationService.identifyUnregisteredPlates();
+	}
+}
@@ -0,0 +1,94 @@
+package com.example.parkingsystem.benchmark;
+
+import com.example.parkingsystem.dto.ObservationUploadResult;
+import com.example.parkingsystem.entity.LicensePlateObservation;
+import com.example.parkingsystem.service.LicensePlateObservationService;
+import com.example.parkingsystem.service.ObservationUploadFormat;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.ByteArrayInputStream;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Throughput of the observation uploads, as a CSV stream and as a JSON list already bound to entities.
+ * Every measured upload is removed again afterwards so the table does not grow across iterations.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgs = {"-Xmx2g"})
+public class ObservationUploadBenchmark {
+
+	@Param({"10000", "100000"})
+	public int observations;
+
+	private ConfigurableApplicationContext context;
+
+	private LicensePlateObservationService licensePlateObservationService;
+
+	private byte[] csv;
+
+	private List<String> batchIds = new ArrayList<>();
+
+	@Setup(Level.Trial)
+	public void setUp() throws Exception {
+		context = BenchmarkSupport.startApplication();
+		licensePlateObservationService = context.getBean(LicensePlateObservationService.class);
+		csv = BenchmarkSupport.observationsCsv(observations);
+	}
+
+	@TearDown(Level.Iteration)
+	public void deleteUploads() {
+		if (!batchIds.isEmpty()) {
+			licensePlateObservationService.deleteObservations(batchIds, null);
+			batchIds = new ArrayList<>();
+		}
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		context.close();
+	}
+
+	@Benchmark
+	public ObservationUploadResult uploadCsvStream() {
+		ObservationUploadResult result = licensePlateObservationService.uploadObservations(new ByteArrayInputStream(csv), ObservationUploadFormat.CSV);
+		batchIds.add(result.getBatchId());
+		return result;
+	}
+
+	@Benchmark
+	public ObservationUploadResult uploadList() {
+		List<LicensePlateObservation> list = new ArrayList<>(observations);
+		LocalDateTime observationTime = LocalDateTime.of(2025, 3, 3, 10, 15);
+		for (int i = 0; i < observations; i++) {
+			LicensePlateObservation observation = new LicensePlateObservation();
+			observation.setLicensePlate(BenchmarkSupport.plate(i));
+			observation.setStreetName(BenchmarkSupport.STREETS.get(i % BenchmarkSupport.STREETS.size()));
+			observation.setObservationTime(observationTime);
+			list.add(observation);
+		}
+		ObservationUploadResult result = licensePlateObservationService.uploadObservations(list);
+		batchIds.add(result.getBatchId());
+		return result;
+	}
+}
@@ -0,0 +1,132 @@
+package com.example.parkingsystem.benchmark;
+
+import com.example.parkingsystem.config.StreetPricing;
+import com.example.parkingsystem.config.TariffCalendar;
+import com.example.parkingsystem.entity.ParkingSession;
+import com.example.parkingsystem.repository.ParkingSessionRepository;
+import com.example.parkingsystem.service.impl.ActiveSessionIndex;
+import com.example.parkingsystem.service.impl.ParkingSessionServiceImpl;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Cost of pricing a session, from a quarter of an hour up to a month:
+ * - endSession: the full ParkingSessionServiceImpl.endSession path including calculateCost, cycling through a preallocated
+ *   array of active sessions. The ended session is put back into the active session index within the benchmark, so
+ *   the score includes one index put.
+ * - tariffCalendar: the chargeable minute lookup calculateCost relies on
+ * - streetCost: the cost lookup of a street with three tariff bands
+ * - perMinuteWalk: the former per-minute isChargeable loop, kept as a baseline
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PricingBenchmark {
+
+	private static final int SESSIONS = 1024;
+
+	@Param({"15", "240", "1440", "10080", "43200"})
+	public int sessionMinutes;
+
+	private final String[] licensePlates = new String[SESSIONS];
+
+	private final ParkingSession[] sessions = new ParkingSession[SESSIONS];
+
+	private int next;
+
+	private ParkingSessionServiceImpl parkingSessionService;
+
+	private ActiveSessionIndex activeSessionIndex;
+
+	private TariffCalendar tariffCalendar;
+
+	private StreetPricing streetPricing;
+
+	private List<LocalDate> holidays;
+
+	private LocalDateTime end;
+
+	private LocalDateTime start;
+
+	@Setup(Level.Trial)
+	public void setUpTrial() {
+		BenchmarkSupport.quietLogging();
+		ParkingSessionRepository repository = BenchmarkSupport.echoRepository();
+		activeSessionIndex = new ActiveSessionIndex(repository);
+		parkingSessionService = BenchmarkSupport.standaloneSessionService(repository, activeSessionIndex);
+		holidays = List.of(LocalDate.of(2025, 1, 1), LocalDate.of(2025, 12, 25), LocalDate.of(2025, 11, 26));
+		tariffCalendar = TariffCalendar.compile(LocalTime.of(20, 59), LocalTime.of(8, 0), holidays, ZoneId.of("Europe/Amsterdam"));
+		streetPricing = StreetPricing.compile(Map.of("Java", 15),
+				Map.of("Java", List.of("MON-FRI 08:00-12:00=20", "MON-FRI 16:00-18:00=18", "SAT 10:00-14:00=25")), tariffCalendar);
+		end = LocalDateTime.of(2025, 12, 27, 17, 30);
+		start = end.minusMinutes(sessionMinutes);
+		for (int i = 0; i < SESSIONS; i++) {
+			licensePlates[i] = "BM" + i;
+		}
+	}
+
+	@Setup(Level.Iteration)
+	public void setUpIteration() {
+		LocalDateTime now = LocalDateTime.now(ZoneId.of("Europe/Amsterdam")).truncatedTo(ChronoUnit.MINUTES);
+		for (int i = 0; i < SESSIONS; i++) {
+			sessions[i] = BenchmarkSupport.activeSession(licensePlates[i], now.minusMinutes(sessionMinutes));
+			activeSessionIndex.put(sessions[i]);
+		}
+		next = 0;
+	}
+
+	@Benchmark
+	public ParkingSession endSession() {
+		int i = next;
+		next = (i + 1) & (SESSIONS - 1);
+		ParkingSession ended = parkingSessionService.endSession(licensePlates[i]);
+		activeSessionIndex.put(sessions[i]);
+		return ended;
+	}
+
+	@Benchmark
+	public long tariffCalendar() {
+		return tariffCalendar.chargeableMinutes(start, end);
+	}
+
+	@Benchmark
+	public double streetCost() {
+		return streetPricing.cost(0, start, end);
+	}
+
+	@Benchmark
+	public long perMinuteWalk() {
+		long totalMinutes = 0;
+		for (LocalDateTime time = start; time.isBefore(end); time = time.plusMinutes(1)) {
+			LocalTime localTime = time.toLocalTime();
+			if (!(localTime.isAfter(LocalTime.of(20, 59)) || localTime.isBefore(LocalTime.of(8, 0))
+					|| time.getDayOfWeek().getValue() == 7 || holidays.contains(time.toLocalDate()))) {
+				totalMinutes++;
+			}
+		}
+		return totalMinutes;
+	}
+}
@@ -0,0 +1,80 @@
+package com.example.parkingsystem.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/*
+ * Morning rush of concurrent /api/parking/start and /end calls over HTTP, with request handling on Tomcat's
+ * platform thread pool or on virtual threads (spring.threads.virtual.enabled). Throughput and the latency
+ * distribution of a start/end pair are reported per mode; raise the number of callers with -t.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 10)
+@Threads(400)
+@Fork(1)
+public class SessionConcurrencyBenchmark {
+
+	@Param({"platform", "virtual"})
+	public String threadMode;
+
+	private final AtomicLong plates = new AtomicLong();
+
+	private ConfigurableApplicationContext context;
+
+	private HttpClient client;
+
+	private String baseUrl;
+
+	@Setup(Level.Trial)
+	public void setUp() throws Exception {
+		context = BenchmarkSupport.startWebApplication("--spring.threads.virtual.enabled=" + "virtual".equals(threadMode));
+		baseUrl = "http://localhost:" + context.getEnvironment().getProperty("local.server.port") + "/api/parking";
+		client = HttpClient.newBuilder().executor(Executors.newVirtualThreadPerTaskExecutor()).build();
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		client.close();
+		context.close();
+	}
+
+	@Benchmark
+	public int startAndEndSession() throws Exception {
+		String licensePlate = BenchmarkSupport.plate((int) plates.incrementAndGet());
+		int started = post("/start?streetName=Java&licensePlate=" + licensePlate);
+		int ended = post("/end?licensePlate=" + licensePlate);
+		if (started != 200 || ended != 200) {
+			throw new IllegalStateException("Session requests failed with " + started + "/" + ended);
+		}
+		return ended;
+	}
+
+	private int post(String path) throws Exception {
+		HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + path)).POST(HttpRequest.BodyPublishers.noBody()).build();
+		return client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+	}
+}
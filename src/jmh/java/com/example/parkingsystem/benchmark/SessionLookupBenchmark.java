@@ -0,0 +1,102 @@
+package com.example.parkingsystem.benchmark;
+
+import com.example.parkingsystem.entity.ParkingSession;
+import com.example.parkingsystem.repository.ParkingSessionRepository;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Latency of the session lookups while the history of ended sessions grows, with the declared indexes
+ * and, as a baseline, without them. Every plate has an active session and about historyRows / PLATES ended ones.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = {"-Xmx6g"})
+public class SessionLookupBenchmark {
+
+	private static final int PLATES = 10_000;
+
+	// far above the ids handed out by parking_session_seq while the benchmark runs
+	private static final long HISTORY_ID_OFFSET = 1_000_000_000L;
+
+	@Param({"10000", "1000000", "5000000"})
+	public int historyRows;
+
+	@Param({"true", "false"})
+	public boolean indexed;
+
+	private ConfigurableApplicationContext context;
+
+	private ParkingSessionRepository parkingSessionRepository;
+
+	@Setup(Level.Trial)
+	public void setUp() throws Exception {
+		context = BenchmarkSupport.startApplication();
+		parkingSessionRepository = context.getBean(ParkingSessionRepository.class);
+		JdbcTemplate jdbcTemplate = context.getBean(JdbcTemplate.class);
+		jdbcTemplate.update("insert into parking_session (id, license_plate, street_name, start_time, end_time, cost, is_active, active_license_plate, version) "
+				+ "select ? + x, 'BM' || mod(x, ?), 'Java', timestamp '2024-01-01 08:00:00' + x * interval '1' minute, "
+				+ "timestamp '2024-01-01 09:00:00' + x * interval '1' minute, 9, false, null, 0 from system_range(1, ?)",
+				HISTORY_ID_OFFSET, PLATES, historyRows);
+		jdbcTemplate.update("insert into parking_session (id, license_plate, street_name, start_time, end_time, cost, is_active, active_license_plate, version) "
+				+ "select ? + x, 'BM' || (x - 1), 'Java', timestamp '2025-03-03 08:00:00', null, 0, true, 'BM' || (x - 1), 0 from system_range(1, ?)",
+				HISTORY_ID_OFFSET + historyRows, PLATES);
+		if (!indexed) {
+			for (String index : List.of("idx_parking_session_plate_active", "idx_parking_session_plate_end", "idx_parking_session_active")) {
+				jdbcTemplate.execute("drop index " + index);
+			}
+		}
+		jdbcTemplate.execute("analyze");
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		context.close();
+	}
+
+	@Benchmark
+	public Optional<ParkingSession> findByLicensePlateAndIsActive() {
+		return parkingSessionRepository.findByLicensePlateAndIsActive(randomPlate(), true);
+	}
+
+	@Benchmark
+	public List<ParkingSession> findByLicensePlateAndEndTimeIsNull() {
+		return parkingSessionRepository.findByLicensePlateAndEndTimeIsNull(randomPlate());
+	}
+
+	@Benchmark
+	public List<String> findEndedLicensePlates() {
+		List<String> licensePlates = new ArrayList<>(100);
+		for (int i = 0; i < 100; i++) {
+			licensePlates.add(randomPlate());
+		}
+		return parkingSessionRepository.findEndedLicensePlates(licensePlates);
+	}
+
+	private static String randomPlate() {
+		return BenchmarkSupport.plate(ThreadLocalRandom.current().nextInt(PLATES));
+	}
+}
@@ -0,0 +1,79 @@
+package com.example.parkingsystem.config;
+
+import com.example.parkingsystem.service.impl.SessionPlateFilter;
+import com.example.parkingsystem.service.impl.ActiveSessionIndex;
+import com.example.parkingsystem.service.impl.SessionQuoteCache;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/*
+ * Metrics of components that already keep their own statistics, read by the registry when it is scraped
+ */
+@Configuration
+public class MetricsConfig {
+
+    @Bean
+    public MeterBinder activeSessionIndexMetrics(ActiveSessionIndex activeSessionIndex) {
+        return registry -> {
+            Gauge.builder("parking.sessions.active", activeSessionIndex, ActiveSessionIndex::size)
+                    .description("Active parking sessions in the active session index")
+                    .register(registry);
+            FunctionCounter.builder("parking.sessions.index.lookups", activeSessionIndex, ActiveSessionIndex::getHits)
+                    .description("Lookups in the active session index")
+                    .tag("result", "hit")
+                    .register(registry);
+            FunctionCounter.builder("parking.sessions.index.lookups", activeSessionIndex, ActiveSessionIndex::getMisses)
+                    .description("Lookups in the active session index")
+                    .tag("result", "miss")
+                    .register(registry);
+        };
+    }
+
+    @Bean
+    public MeterBinder sessionQuoteCacheMetrics(SessionQuoteCache sessionQuoteCache) {
+        return registry -> {
+            Gauge.builder("parking.quotes.cached", sessionQuoteCache, SessionQuoteCache::size)
+                    .description("Session quotes in the quote cache")
+                    .register(registry);
+            FunctionCounter.builder("parking.quotes.lookups", sessionQuoteCache, SessionQuoteCache::getHits)
+                    .description("Lookups in the session quote cache")
+                    .tag("result", "hit")
+                    .register(registry);
+            FunctionCounter.builder("parking.quotes.lookups", sessionQuoteCache, SessionQuoteCache::getMisses)
+                    .description("Lookups in the session quote cache")
+                    .tag("result", "miss")
+                    .register(registry);
+        };
+    }
+
+    @Bean
+    public MeterBinder sessionPlateFilterMetrics(SessionPlateFilter sessionPlateFilter) {
+        return registry -> {
+            Gauge.builder("parking.plate.filter.memory", sessionPlateFilter, SessionPlateFilter::getMemoryBytes)
+                    .description("Off-heap memory of the session plate filter")
+                    .baseUnit("bytes")
+                    .register(registry);
+            Gauge.builder("parking.plate.filter.false.positive.rate", sessionPlateFilter, SessionPlateFilter::getFalsePositiveRate)
+                    .description("Configured false positive rate of the session plate filter")
+                    .tag("rate", "configured")
+                    .register(registry);
+            Gauge.builder("parking.plate.filter.false.positive.rate", sessionPlateFilter, SessionPlateFilter::getEstimatedFalsePositiveRate)
+                    .description("False positive rate of the session plate filter for the plates it currently holds")
+                    .tag("rate", "estimated")
+                    .register(registry);
+            FunctionCounter.builder("parking.plate.filter.lookups", sessionPlateFilter, SessionPlateFilter::getDefiniteNegatives)
+                    .description("Lookups in the session plate filter")
+                    .tag("result", "negative")
+                    .register(registry);
+            FunctionCounter.builder("parking.plate.filter.lookups", sessionPlateFilter, SessionPlateFilter::getPossibleHits)
+                    .description("Lookups in the session plate filter")
+                    .tag("result", "possible")
+                    .register(registry);
+        };
+    }
+}
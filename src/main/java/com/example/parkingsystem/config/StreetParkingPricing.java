@@ -4,6 +4,7 @@ import org.springframework.boot.context.properties.ConfigurationProperties;
 
 import lombok.Data;
 
+import java.util.List;
 import java.util.Map;
 
 @ConfigurationProperties(prefix = "parkingsystem.street")
@@ -11,4 +12,7 @@ import java.util.Map;
 public class StreetParkingPricing {
 
     private Map<String, Integer> values;
+
+    // tariff bands by street name, e.g. parkingsystem.street.bands.Java=MON-FRI 08:00-12:00=20,17:00-19:00=18
+    private Map<String, List<String>> bands;
 }
\ No newline at end of file
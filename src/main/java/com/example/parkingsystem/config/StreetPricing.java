@@ -0,0 +1,175 @@
+package com.example.parkingsystem.config;
+
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/*
+ * Immutable, precompiled view of the street prices.
+ * Street names are mapped to compact ids in name order. Every street has a weekly schedule of prices, its base price
+ * overridden by its tariff bands, compiled against the tariff calendar into prefix sums of the cost of the chargeable
+ * minutes of a week. The cost of any session is then two lookups and a subtraction, plus one per holiday in between,
+ * whatever its length or the number of bands. A snapshot is never changed once published and can be read without locking.
+ */
+public final class StreetPricing {
+
+	private final TariffCalendar tariffCalendar;
+
+	private final String[] streetNames;
+
+	private final Map<String, Integer> streetIds;
+
+	private final int[] pricePerMinute;
+
+	private final Map<String, List<String>> bands;
+
+	private final long[][] weekCostPrefix;
+
+	// streets without tariff bands, their cost is the base price of every chargeable minute
+	private final boolean[] flat;
+
+	private StreetPricing(TariffCalendar tariffCalendar, String[] streetNames, Map<String, Integer> streetIds, int[] pricePerMinute,
+			Map<String, List<String>> bands, long[][] weekCostPrefix, boolean[] flat) {
+		this.tariffCalendar = tariffCalendar;
+		this.streetNames = streetNames;
+		this.streetIds = streetIds;
+		this.pricePerMinute = pricePerMinute;
+		this.bands = bands;
+		this.weekCostPrefix = weekCostPrefix;
+		this.flat = flat;
+	}
+
+	/*
+	 * Compiles the pricing snapshot
+	 * @param prices - base price in cents per chargeable minute by street name
+	 * @param bands - tariff bands by street name @see TariffBand, a later band of a street overrides an earlier one
+	 * @param tariffCalendar - calendar of the chargeable minutes
+	 * @return the compiled snapshot
+	 * @throws RuntimeException, if a street has no price or a negative price, or has invalid bands
+	 */
+	public static StreetPricing compile(Map<String, Integer> prices, Map<String, List<String>> bands, TariffCalendar tariffCalendar) {
+		if (prices == null) {
+			prices = Map.of();
+		}
+		if (bands == null) {
+			bands = Map.of();
+		}
+		for (String streetName : bands.keySet()) {
+			if (!prices.containsKey(streetName)) {
+				throw new RuntimeException("No street found for tariff bands of street name: " + streetName);
+			}
+		}
+		String[] streetNames = prices.keySet().stream().sorted().toArray(String[]::new);
+		Map<String, Integer> streetIds = new HashMap<>(streetNames.length * 2);
+		int[] pricePerMinute = new int[streetNames.length];
+		Map<String, List<String>> streetBands = new HashMap<>();
+		long[][] weekCostPrefix = new long[streetNames.length][];
+		boolean[] flat = new boolean[streetNames.length];
+		for (int streetId = 0; streetId < streetNames.length; streetId++) {
+			String streetName = streetNames[streetId];
+			Integer price = prices.get(streetName);
+			if (price == null || price < 0) {
+				throw new RuntimeException("Invalid price for street name: " + streetName);
+			}
+			streetIds.put(streetName, streetId);
+			pricePerMinute[streetId] = price;
+			List<String> definitions = bands.getOrDefault(streetName, List.of());
+			streetBands.put(streetName, List.copyOf(definitions));
+			flat[streetId] = definitions.isEmpty();
+			TariffBand[] streetTariffBands = definitions.stream().map(TariffBand::parse).toArray(TariffBand[]::new);
+			weekCostPrefix[streetId] = tariffCalendar.compileWeekPrefix(minuteOfWeek -> {
+				for (int i = streetTariffBands.length - 1; i >= 0; i--) {
+					if (streetTariffBands[i].covers(minuteOfWeek)) {
+						return streetTariffBands[i].getPricePerMinute();
+					}
+				}
+				return price;
+			});
+		}
+		return new StreetPricing(tariffCalendar, streetNames, streetIds, pricePerMinute, Collections.unmodifiableMap(streetBands), weekCostPrefix, flat);
+	}
+
+	/*
+	 * Returns the tariff calendar the snapshot was compiled against
+	 */
+	public TariffCalendar getTariffCalendar() {
+		return tariffCalendar;
+	}
+
+	/*
+	 * Returns the id of the street
+	 * @param streetName - name of the street, may be null
+	 * @return the street id, -1 if the street is not priced
+	 */
+	public int streetId(String streetName) {
+		Integer streetId = streetName == null ? null : streetIds.get(streetName);
+		return streetId == null ? -1 : streetId;
+	}
+
+	public boolean contains(String streetName) {
+		return streetId(streetName) >= 0;
+	}
+
+	public String streetName(int streetId) {
+		return streetNames[streetId];
+	}
+
+	/*
+	 * Returns the base price of the street in cents per chargeable minute, outside of its tariff bands
+	 */
+	public int pricePerMinute(int streetId) {
+		return pricePerMinute[streetId];
+	}
+
+	/*
+	 * Returns the cost of parking in the street
+	 * @param streetId - id of the street
+	 * @param from - start time (inclusive), seconds are ignored
+	 * @param to - end time (exclusive), seconds are ignored
+	 * @return the cost in euros of the chargeable minutes between the two times
+	 */
+	public double cost(int streetId, LocalDateTime from, LocalDateTime to) {
+		return tariffCalendar.sum(weekCostPrefix[streetId], from, to) / 100.0;
+	}
+
+	/*
+	 * Returns the cost of parking in the street like @see #cost, given the chargeable minutes between the two times
+	 * counted on the tariff calendar of this snapshot. A street without tariff bands is priced from the count alone.
+	 * @param chargeableMinutes - chargeable minutes between the two times
+	 * @return the cost in euros of the chargeable minutes between the two times
+	 */
+	public double cost(int streetId, LocalDateTime from, LocalDateTime to, long chargeableMinutes) {
+		return flat[streetId] ? chargeableMinutes * pricePerMinute[streetId] / 100.0 : cost(streetId, from, to);
+	}
+
+	public int size() {
+		return streetNames.length;
+	}
+
+	/*
+	 * Returns the base prices by street name, in street id order
+	 */
+	public Map<String, Integer> getPrices() {
+		Map<String, Integer> prices = new LinkedHashMap<>();
+		for (int streetId = 0; streetId < streetNames.length; streetId++) {
+			prices.put(streetNames[streetId], pricePerMinute[streetId]);
+		}
+		return Collections.unmodifiableMap(prices);
+	}
+
+	/*
+	 * Returns the tariff band definitions by street name
+	 */
+	public Map<String, List<String>> getBands() {
+		return bands;
+	}
+
+	@Override
+	public String toString() {
+		return "StreetPricing" + Arrays.toString(streetNames) + Arrays.toString(pricePerMinute) + bands;
+	}
+}
@@ -0,0 +1,177 @@
+package com.example.parkingsystem.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.boot.context.properties.source.MapConfigurationPropertySource;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.env.Environment;
+import org.springframework.scheduling.annotation.Scheduled;
+import jakarta.annotation.PostConstruct;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/*
+ * Holds the shared, immutable street pricing snapshot compiled from the parkingsystem.street.values.* and
+ * parkingsystem.street.bands.* settings against the current tariff calendar.
+ * A refresh compiles a new snapshot and publishes it with a single volatile write, so a request that read the
+ * snapshot keeps pricing against the complete old table and readers never take a lock.
+ * The prices are read from the optional pricing file when one is configured, which is checked for changes
+ * periodically, and from the application configuration otherwise. The pricing file may also set the holidays and the
+ * free parking window, a refresh then rebuilds the tariff calendar together with the prices when they have changed.
+ * A snapshot compiled against an older tariff calendar is recompiled from the same prices when it is first read after
+ * the calendar has been rebuilt.
+ */
+@Configuration
+public class StreetPricingConfig {
+
+	private static final Logger logger = LoggerFactory.getLogger(StreetPricingConfig.class);
+
+	static final String PRICES_PROPERTY = "parkingsystem.street.values";
+
+	static final String BANDS_PROPERTY = "parkingsystem.street.bands";
+
+	static final String HOLIDAYS_PROPERTY = "parkingsystem.holidays";
+
+	static final String FREE_PARKING_START_PROPERTY = "parkingsystem.freeparking.starttime";
+
+	static final String FREE_PARKING_END_PROPERTY = "parkingsystem.freeparking.endtime";
+
+	private static final Bindable<Map<String, List<String>>> BANDS_TYPE = Bindable.of(ResolvableType.forClassWithGenerics(Map.class,
+			ResolvableType.forClass(String.class), ResolvableType.forClassWithGenerics(List.class, String.class)));
+
+	private final StreetParkingPricing streetParkingPricing;
+
+	private final Environment environment;
+
+	private final TariffCalendarConfig tariffCalendarConfig;
+
+	@Value("${parkingsystem.pricing.file}")
+	private String pricingFile;
+
+	private volatile StreetPricing streetPricing;
+
+	private long pricingFileModified;
+
+	public StreetPricingConfig(StreetParkingPricing streetParkingPricing, Environment environment, TariffCalendarConfig tariffCalendarConfig) {
+		this.streetParkingPricing = streetParkingPricing;
+		this.environment = environment;
+		this.tariffCalendarConfig = tariffCalendarConfig;
+	}
+
+	@PostConstruct
+	public void init() {
+		if (getPricingFile() != null) {
+			refresh();
+		} else {
+			publish(StreetPricing.compile(streetParkingPricing.getValues(), streetParkingPricing.getBands(), tariffCalendarConfig.getTariffCalendar()));
+		}
+	}
+
+	/*
+	 * Reloads the prices and the tariff calendar settings, rebuilds the tariff calendar if they have changed and compiles
+	 * the prices against it. The calendar and the snapshot are published only when both have compiled, so the current
+	 * calendar and snapshot are both kept if the prices or the calendar settings cannot be read or are invalid.
+	 * @return the published snapshot
+	 * @throws RuntimeException, if the pricing file cannot be read or has an invalid price or calendar setting
+	 */
+	public synchronized StreetPricing refresh() {
+		Path file = getPricingFile();
+		if (file != null) {
+			try {
+				pricingFileModified = Files.getLastModifiedTime(file).toMillis();
+			} catch (IOException e) {
+				throw new RuntimeException("Pricing file cannot be read: " + file, e);
+			}
+		}
+		Binder binder = file != null ? loadPricingFile(file) : Binder.get(environment);
+		TariffCalendarConfig.CompiledCalendar tariffCalendar = tariffCalendarConfig.compile(bindString(binder, HOLIDAYS_PROPERTY),
+				bindString(binder, FREE_PARKING_START_PROPERTY), bindString(binder, FREE_PARKING_END_PROPERTY));
+		StreetPricing pricing = StreetPricing.compile(bindPrices(binder), bindBands(binder), tariffCalendar.tariffCalendar());
+		// both compiled, a reader seeing the new calendar first waits in recompile() until the new prices are published
+		tariffCalendarConfig.publish(tariffCalendar);
+		return publish(pricing);
+	}
+
+	/*
+	 * Refreshes the snapshot when the pricing file has been modified since it was last read
+	 */
+	@Scheduled(fixedDelayString = "${parkingsystem.pricing.watch-interval}")
+	public void refreshIfModified() {
+		Path file = getPricingFile();
+		try {
+			if (file != null && Files.getLastModifiedTime(file).toMillis() != pricingFileModified) {
+				refresh();
+			}
+		} catch (IOException | RuntimeException e) {
+			logger.error("Street pricing not refreshed from {}, keeping {}", file, streetPricing, e);
+		}
+	}
+
+	public StreetPricing getStreetPricing() {
+		StreetPricing pricing = streetPricing;
+		if (pricing.getTariffCalendar() != tariffCalendarConfig.getTariffCalendar()) {
+			return recompile();
+		}
+		return pricing;
+	}
+
+	private synchronized StreetPricing recompile() {
+		StreetPricing pricing = streetPricing;
+		TariffCalendar tariffCalendar = tariffCalendarConfig.getTariffCalendar();
+		if (pricing.getTariffCalendar() == tariffCalendar) {
+			return pricing;
+		}
+		return publish(StreetPricing.compile(pricing.getPrices(), pricing.getBands(), tariffCalendar));
+	}
+
+	private StreetPricing publish(StreetPricing pricing) {
+		streetPricing = pricing;
+		logger.info("Street pricing compiled : {} with tariff bands : {}", pricing.getPrices(), pricing.getBands());
+		return pricing;
+	}
+
+	private Binder loadPricingFile(Path file) {
+		Properties properties = new Properties();
+		try (Reader reader = Files.newBufferedReader(file)) {
+			properties.load(reader);
+		} catch (IOException e) {
+			throw new RuntimeException("Pricing file cannot be read: " + file, e);
+		}
+		return new Binder(new MapConfigurationPropertySource(properties));
+	}
+
+	/*
+	 * Binds the price table, a table without any street is rejected like an invalid price
+	 * @throws RuntimeException, if no street price is set
+	 */
+	private static Map<String, Integer> bindPrices(Binder binder) {
+		Map<String, Integer> prices = binder.bind(PRICES_PROPERTY, Bindable.mapOf(String.class, Integer.class)).orElse(Map.of());
+		if (prices.isEmpty()) {
+			throw new RuntimeException("No street prices found in " + PRICES_PROPERTY + ".*");
+		}
+		return prices;
+	}
+
+	private static Map<String, List<String>> bindBands(Binder binder) {
+		return binder.bind(BANDS_PROPERTY, BANDS_TYPE).orElse(Map.of());
+	}
+
+	private static String bindString(Binder binder, String property) {
+		return binder.bind(property, String.class).orElse(null);
+	}
+
+	private Path getPricingFile() {
+		return pricingFile == null || pricingFile.isBlank() ? null : Path.of(pricingFile);
+	}
+}
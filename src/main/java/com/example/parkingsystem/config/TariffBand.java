@@ -0,0 +1,99 @@
+package com.example.parkingsystem.config;
+
+import java.time.DayOfWeek;
+import java.time.LocalTime;
+import java.time.format.DateTimeParseException;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.Set;
+
+/*
+ * Weekly time band of a street with its own price, written as "[DAY[-DAY] ]HH:MM-HH:MM=PRICE",
+ * for example "MON-FRI 08:00-12:00=20" or "17:00-19:00=18" for every day. A band that ends at or before
+ * its start time runs past midnight into the next day.
+ */
+public final class TariffBand {
+
+	private final Set<DayOfWeek> days;
+
+	private final int fromMinuteOfDay;
+
+	private final int toMinuteOfDay;
+
+	private final int pricePerMinute;
+
+	private TariffBand(Set<DayOfWeek> days, int fromMinuteOfDay, int toMinuteOfDay, int pricePerMinute) {
+		this.days = days;
+		this.fromMinuteOfDay = fromMinuteOfDay;
+		this.toMinuteOfDay = toMinuteOfDay;
+		this.pricePerMinute = pricePerMinute;
+	}
+
+	/*
+	 * Parses a band
+	 * @param band - band definition
+	 * @return the band
+	 * @throws RuntimeException, if the band definition is invalid
+	 */
+	public static TariffBand parse(String band) {
+		try {
+			String definition = band.trim();
+			Set<DayOfWeek> days = EnumSet.allOf(DayOfWeek.class);
+			int space = definition.indexOf(' ');
+			if (space > 0) {
+				days = parseDays(definition.substring(0, space));
+				definition = definition.substring(space + 1).trim();
+			}
+			int equals = definition.indexOf('=');
+			int dash = definition.indexOf('-');
+			LocalTime from = LocalTime.parse(definition.substring(0, dash).trim());
+			LocalTime to = LocalTime.parse(definition.substring(dash + 1, equals).trim());
+			int pricePerMinute = Integer.parseInt(definition.substring(equals + 1).trim());
+			if (pricePerMinute < 0) {
+				throw new IllegalArgumentException("negative price");
+			}
+			return new TariffBand(days, from.getHour() * 60 + from.getMinute(), to.getHour() * 60 + to.getMinute(), pricePerMinute);
+		} catch (RuntimeException e) {
+			throw new RuntimeException("Invalid tariff band: " + band);
+		}
+	}
+
+	private static Set<DayOfWeek> parseDays(String days) {
+		int dash = days.indexOf('-');
+		DayOfWeek first = parseDay(dash < 0 ? days : days.substring(0, dash));
+		DayOfWeek last = dash < 0 ? first : parseDay(days.substring(dash + 1));
+		Set<DayOfWeek> range = EnumSet.noneOf(DayOfWeek.class);
+		for (DayOfWeek day = first; ; day = day.plus(1)) {
+			range.add(day);
+			if (day == last) {
+				return range;
+			}
+		}
+	}
+
+	private static DayOfWeek parseDay(String day) {
+		return Arrays.stream(DayOfWeek.values())
+				.filter(value -> value.name().startsWith(day.toUpperCase()) && day.length() >= 3)
+				.findFirst()
+				.orElseThrow(() -> new DateTimeParseException("Invalid day", day, 0));
+	}
+
+	/*
+	 * Validates whether the band covers the given minute of the week
+	 * @param minuteOfWeek - minute of the week, 0 is Monday 00:00
+	 * @return true or false
+	 */
+	public boolean covers(int minuteOfWeek) {
+		DayOfWeek day = DayOfWeek.of(minuteOfWeek / TariffCalendar.MINUTES_PER_DAY + 1);
+		int minuteOfDay = minuteOfWeek % TariffCalendar.MINUTES_PER_DAY;
+		if (fromMinuteOfDay < toMinuteOfDay) {
+			return days.contains(day) && minuteOfDay >= fromMinuteOfDay && minuteOfDay < toMinuteOfDay;
+		}
+		// past midnight, the minutes after midnight belong to the band of the previous day
+		return days.contains(day) && minuteOfDay >= fromMinuteOfDay || days.contains(day.minus(1)) && minuteOfDay < toMinuteOfDay;
+	}
+
+	public int getPricePerMinute() {
+		return pricePerMinute;
+	}
+}
@@ -0,0 +1,184 @@
+package com.example.parkingsystem.config;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.function.IntUnaryOperator;
+
+/*
+ * Immutable, precompiled view of the parking tariff calendar.
+ * The chargeable minutes of a regular week (Monday 00:00 to Sunday 23:59) are kept as a bitmap with
+ * prefix sums, and holidays as a sorted array of epoch days, so the number of chargeable minutes
+ * between any two times costs a couple of array reads plus a lookup of the holidays in between.
+ * Weekly prefix sums of any per minute amount, such as the cost of a street, are compiled and summed the same way.
+ */
+public final class TariffCalendar {
+
+	public static final int MINUTES_PER_DAY = 24 * 60;
+
+	public static final int MINUTES_PER_WEEK = 7 * MINUTES_PER_DAY;
+
+	// 1970-01-01 was a Thursday, shift epoch minutes so that minute 0 of the week is a Monday
+	private static final long EPOCH_WEEK_OFFSET = 3L * MINUTES_PER_DAY;
+
+	private final ZoneId zoneId;
+
+	private final long[] chargeableBitmap;
+
+	private final long[] weekPrefix;
+
+	private final long[] holidayEpochDays;
+
+	private TariffCalendar(ZoneId zoneId, long[] chargeableBitmap, long[] weekPrefix, long[] holidayEpochDays) {
+		this.zoneId = zoneId;
+		this.chargeableBitmap = chargeableBitmap;
+		this.weekPrefix = weekPrefix;
+		this.holidayEpochDays = holidayEpochDays;
+	}
+
+	/*
+	 * Compiles the calendar. A minute is chargeable from the free parking end time up to and including the
+	 * minute at the free parking start time, except on Sundays and holidays.
+	 * @param freeParkingStart - start of the free parking window
+	 * @param freeParkingEnd - end of the free parking window
+	 * @param holidays - days without any charge
+	 * @param zoneId - timezone in which sessions are recorded
+	 * @return the compiled calendar
+	 */
+	public static TariffCalendar compile(LocalTime freeParkingStart, LocalTime freeParkingEnd, Collection<LocalDate> holidays, ZoneId zoneId) {
+		int chargeableFrom = freeParkingEnd.getHour() * 60 + freeParkingEnd.getMinute();
+		int chargeableUntil = freeParkingStart.getHour() * 60 + freeParkingStart.getMinute() + 1;
+
+		long[] chargeableBitmap = new long[(MINUTES_PER_WEEK + 63) / 64];
+		for (int minuteOfWeek = 0; minuteOfWeek < MINUTES_PER_WEEK; minuteOfWeek++) {
+			int dayOfWeek = minuteOfWeek / MINUTES_PER_DAY + 1;
+			int minuteOfDay = minuteOfWeek % MINUTES_PER_DAY;
+			if (dayOfWeek != DayOfWeek.SUNDAY.getValue() && minuteOfDay >= chargeableFrom && minuteOfDay < chargeableUntil) {
+				chargeableBitmap[minuteOfWeek >>> 6] |= 1L << minuteOfWeek;
+			}
+		}
+		long[] weekPrefix = weekPrefix(chargeableBitmap, minuteOfWeek -> 1);
+
+		long[] holidayEpochDays = holidays == null ? new long[0] : holidays.stream()
+				.mapToLong(LocalDate::toEpochDay)
+				.distinct()
+				.sorted()
+				.toArray();
+		return new TariffCalendar(zoneId, chargeableBitmap, weekPrefix, holidayEpochDays);
+	}
+
+	public ZoneId getZoneId() {
+		return zoneId;
+	}
+
+	/*
+	 * Returns the number of chargeable minutes in a regular week
+	 */
+	public long getChargeableMinutesPerWeek() {
+		return weekPrefix[MINUTES_PER_WEEK];
+	}
+
+	/*
+	 * Compiles the weekly prefix sums of an amount charged per minute, such as the price of a street
+	 * @param amountPerMinute - amount charged for each minute of the week (0 is Monday 00:00), only counted for chargeable minutes
+	 * @return the prefix sums, to be passed to sum
+	 */
+	public long[] compileWeekPrefix(IntUnaryOperator amountPerMinute) {
+		return weekPrefix(chargeableBitmap, amountPerMinute);
+	}
+
+	public boolean isHoliday(LocalDate day) {
+		return Arrays.binarySearch(holidayEpochDays, day.toEpochDay()) >= 0;
+	}
+
+	/*
+	 * Validates whether the minute starting at the given time is chargeable or not
+	 * @param time - any time
+	 * @return true or false
+	 */
+	public boolean isChargeable(LocalDateTime time) {
+		long epochMinute = toEpochMinute(time);
+		int minuteOfWeek = minuteOfWeek(epochMinute);
+		return (chargeableBitmap[minuteOfWeek >>> 6] & (1L << minuteOfWeek)) != 0
+				&& !isHoliday(time.toLocalDate());
+	}
+
+	/*
+	 * Returns the number of chargeable minutes between two times
+	 * @param from - start time (inclusive), seconds are ignored
+	 * @param to - end time (exclusive), seconds are ignored
+	 * @return the number of chargeable minutes, 0 if to is not after from
+	 */
+	public long chargeableMinutes(LocalDateTime from, LocalDateTime to) {
+		return sum(weekPrefix, from, to);
+	}
+
+	/*
+	 * Returns the amount charged between two times
+	 * @param weekPrefix - weekly prefix sums compiled by compileWeekPrefix
+	 * @param from - start time (inclusive), seconds are ignored
+	 * @param to - end time (exclusive), seconds are ignored
+	 * @return the sum of the amount of the chargeable minutes, 0 if to is not after from
+	 */
+	public long sum(long[] weekPrefix, LocalDateTime from, LocalDateTime to) {
+		long fromMinute = toEpochMinute(from);
+		long toMinute = toEpochMinute(to);
+		if (toMinute <= fromMinute) {
+			return 0;
+		}
+		return sum(weekPrefix, fromMinute, toMinute);
+	}
+
+	private long sum(long[] weekPrefix, long fromMinute, long toMinute) {
+		return cumulative(weekPrefix, toMinute) - cumulative(weekPrefix, fromMinute) - holidaySum(weekPrefix, fromMinute, toMinute);
+	}
+
+	/*
+	 * Sum of a regular calendar (without holidays) from the start of the epoch week up to the given minute
+	 */
+	private static long cumulative(long[] weekPrefix, long epochMinute) {
+		long shifted = epochMinute + EPOCH_WEEK_OFFSET;
+		return Math.floorDiv(shifted, MINUTES_PER_WEEK) * weekPrefix[MINUTES_PER_WEEK] + weekPrefix[Math.floorMod(shifted, MINUTES_PER_WEEK)];
+	}
+
+	/*
+	 * Sum of the regular calendar between the two epoch minutes that falls on holidays
+	 */
+	private long holidaySum(long[] weekPrefix, long fromMinute, long toMinute) {
+		long firstDay = Math.floorDiv(fromMinute, MINUTES_PER_DAY);
+		long lastDay = Math.floorDiv(toMinute - 1, MINUTES_PER_DAY);
+		long sum = 0;
+		for (int i = lowerBound(firstDay); i < holidayEpochDays.length && holidayEpochDays[i] <= lastDay; i++) {
+			long dayStart = holidayEpochDays[i] * MINUTES_PER_DAY;
+			sum += cumulative(weekPrefix, Math.min(toMinute, dayStart + MINUTES_PER_DAY)) - cumulative(weekPrefix, Math.max(fromMinute, dayStart));
+		}
+		return sum;
+	}
+
+	private static long[] weekPrefix(long[] chargeableBitmap, IntUnaryOperator amountPerMinute) {
+		long[] weekPrefix = new long[MINUTES_PER_WEEK + 1];
+		for (int minuteOfWeek = 0; minuteOfWeek < MINUTES_PER_WEEK; minuteOfWeek++) {
+			boolean chargeable = (chargeableBitmap[minuteOfWeek >>> 6] & (1L << minuteOfWeek)) != 0;
+			weekPrefix[minuteOfWeek + 1] = weekPrefix[minuteOfWeek] + (chargeable ? amountPerMinute.applyAsInt(minuteOfWeek) : 0);
+		}
+		return weekPrefix;
+	}
+
+	private int lowerBound(long epochDay) {
+		int index = Arrays.binarySearch(holidayEpochDays, epochDay);
+		return index >= 0 ? index : -index - 1;
+	}
+
+	private static int minuteOfWeek(long epochMinute) {
+		return Math.floorMod(epochMinute + EPOCH_WEEK_OFFSET, MINUTES_PER_WEEK);
+	}
+
+	private static long toEpochMinute(LocalDateTime time) {
+		return Math.floorDiv(time.toEpochSecond(ZoneOffset.UTC), 60);
+	}
+}
@@ -0,0 +1,128 @@
+package com.example.parkingsystem.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Configuration;
+import jakarta.annotation.PostConstruct;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeParseException;
+import java.util.Arrays;
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/*
+ * Holds the shared, immutable tariff calendar compiled from the holiday, free parking and timezone settings.
+ * The calendar is compiled once at startup. The street pricing refresh passes the holiday and free parking settings of
+ * the pricing file to compile(), which recompiles the calendar only when they differ from the compiled ones, and publishes
+ * it once the prices have been compiled against it.
+ */
+@Configuration
+public class TariffCalendarConfig {
+
+	private static final Logger logger = LoggerFactory.getLogger(TariffCalendarConfig.class);
+
+	private final HolidayConfig holidayConfig;
+
+	private final FreeParkingTimingConfig freeParkingTimingConfig;
+
+	@Value("${parkingsystem.timezone}")
+	private String timezone;
+
+	private volatile TariffCalendar tariffCalendar;
+
+	// settings the current calendar was compiled from, guarded by this
+	private CalendarSettings settings;
+
+	public TariffCalendarConfig(HolidayConfig holidayConfig, FreeParkingTimingConfig freeParkingTimingConfig) {
+		this.holidayConfig = holidayConfig;
+		this.freeParkingTimingConfig = freeParkingTimingConfig;
+	}
+
+	@PostConstruct
+	public void init() {
+		rebuild();
+	}
+
+	/*
+	 * Recompiles the tariff calendar from the startup configuration and publishes it atomically
+	 */
+	public void rebuild() {
+		publish(compile(new CalendarSettings(holidayConfig.getHolidayList(),
+				LocalTime.of(freeParkingTimingConfig.getFreeParkingStartHrs(), freeParkingTimingConfig.getFreeParkingStartMins()),
+				LocalTime.of(freeParkingTimingConfig.getFreeParkingEndHrs(), freeParkingTimingConfig.getFreeParkingEndMins()))));
+	}
+
+	/*
+	 * Recompiles the tariff calendar when the given settings differ from the ones it was compiled from, and publishes
+	 * it atomically. A setting that is not given keeps its startup value.
+	 * @param holidays - yyyy-mm-dd days separated by commas, or null
+	 * @param freeParkingStartTime - hh:mm start of the free parking window, or null
+	 * @param freeParkingEndTime - hh:mm end of the free parking window, or null
+	 * @return true if a new calendar has been published, false if the settings are unchanged
+	 * @throws RuntimeException, if a setting is invalid
+	 */
+	public boolean rebuild(String holidays, String freeParkingStartTime, String freeParkingEndTime) {
+		return publish(compile(holidays, freeParkingStartTime, freeParkingEndTime));
+	}
+
+	/*
+	 * Compiles the tariff calendar of the given settings without publishing it, so that the street pricing refresh can
+	 * compile its prices against the calendar before publishing either. A setting that is not given keeps its startup value.
+	 * @param holidays - yyyy-mm-dd days separated by commas, or null
+	 * @param freeParkingStartTime - hh:mm start of the free parking window, or null
+	 * @param freeParkingEndTime - hh:mm end of the free parking window, or null
+	 * @return the compiled calendar, the current one if the settings are unchanged
+	 * @throws RuntimeException, if a setting is invalid
+	 */
+	CompiledCalendar compile(String holidays, String freeParkingStartTime, String freeParkingEndTime) {
+		try {
+			return compile(new CalendarSettings(
+					holidays != null ? Arrays.stream(holidays.split(",")).map(String::trim).map(LocalDate::parse).toList() : holidayConfig.getHolidayList(),
+					LocalTime.parse(freeParkingStartTime != null ? freeParkingStartTime : freeParkingTimingConfig.getFreeParkingStartTime()),
+					LocalTime.parse(freeParkingEndTime != null ? freeParkingEndTime : freeParkingTimingConfig.getFreeParkingEndTime())));
+		} catch (DateTimeParseException e) {
+			logger.error("Invalid tariff calendar settings: holidays : {}, free parking start time : {}, end time : {}", holidays, freeParkingStartTime, freeParkingEndTime);
+			throw new RuntimeException("Invalid tariff calendar settings: " + e.getParsedString());
+		}
+	}
+
+	private synchronized CompiledCalendar compile(CalendarSettings newSettings) {
+		if (newSettings.equals(settings)) {
+			return new CompiledCalendar(tariffCalendar, settings);
+		}
+		return new CompiledCalendar(TariffCalendar.compile(newSettings.freeParkingStart(), newSettings.freeParkingEnd(), newSettings.holidays(), ZoneId.of(timezone)), newSettings);
+	}
+
+	/*
+	 * Publishes a compiled tariff calendar atomically
+	 * @return true if a new calendar has been published, false if it is the current one
+	 */
+	synchronized boolean publish(CompiledCalendar compiled) {
+		if (compiled.tariffCalendar() == tariffCalendar) {
+			return false;
+		}
+		CalendarSettings newSettings = compiled.settings();
+		tariffCalendar = compiled.tariffCalendar();
+		settings = newSettings;
+		logger.info("Tariff calendar compiled with holidays : {}, free parking : {}-{} and timezone : {}",
+				newSettings.holidays(), newSettings.freeParkingStart(), newSettings.freeParkingEnd(), timezone);
+		return true;
+	}
+
+	public TariffCalendar getTariffCalendar() {
+		return tariffCalendar;
+	}
+
+	record CalendarSettings(List<LocalDate> holidays, LocalTime freeParkingStart, LocalTime freeParkingEnd) {
+	}
+
+	/*
+	 * A tariff calendar with the settings it was compiled from, published by publish()
+	 */
+	record CompiledCalendar(TariffCalendar tariffCalendar, CalendarSettings settings) {
+	}
+}
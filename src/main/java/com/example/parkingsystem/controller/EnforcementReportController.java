@@ -0,0 +1,123 @@
+package com.example.parkingsystem.controller;
+
+import com.example.parkingsystem.dto.EnforcementReport;
+import com.example.parkingsystem.service.EnforcementReportService;
+
+import io.swagger.v3.oas.annotations.Operation;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequestMapping("/api/reports")
+public class EnforcementReportController {
+    private static final Logger logger = LoggerFactory.getLogger(EnforcementReportController.class);
+
+    // Tomcat request attributes to hand a file region to the connector for zero-copy sendfile
+    static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+    static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
+    private EnforcementReportService enforcementReportService;
+
+    public EnforcementReportController(EnforcementReportService enforcementReportService) {
+    	this.enforcementReportService = enforcementReportService;
+    }
+
+    @Operation(summary = "List reports", description = "List the unregistered plates reports of the enforcement runs, newest first")
+    @GetMapping
+    public List<EnforcementReport> listReports() {
+        return enforcementReportService.listReports();
+    }
+
+    @Operation(summary = "Download a report", description = "Download an unregistered plates report, supports single HTTP byte ranges. With a street, only the lines of that street are returned uncompressed. "
+    		+ "An unknown report gets 404 Not Found")
+    @GetMapping("/{name}")
+    public void downloadReport(@PathVariable String name, @RequestParam(required = false) String streetName,
+    		HttpServletRequest request, HttpServletResponse response) throws IOException {
+    	if (streetName != null) {
+    		// an unknown report is answered with 404 before the text response is started
+    		enforcementReportService.getReport(name);
+    		response.setContentType(MediaType.TEXT_PLAIN_VALUE);
+    		response.setCharacterEncoding("UTF-8");
+    		enforcementReportService.writeReportForStreet(name, streetName, response.getOutputStream());
+    		return;
+    	}
+    	Path report = enforcementReportService.getReport(name);
+    	try (FileChannel fileChannel = FileChannel.open(report, StandardOpenOption.READ)) {
+    		long size = fileChannel.size();
+    		long[] range = parseRange(request.getHeader(HttpHeaders.RANGE), size);
+    		response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+    		response.setContentType(name.endsWith(".gz") ? "application/gzip" : MediaType.TEXT_PLAIN_VALUE);
+    		if (range == null) {
+    			response.setStatus(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE.value());
+    			response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + size);
+    			return;
+    		}
+    		long start = range[0];
+    		long end = range[1];
+    		if (start > 0 || end < size) {
+    			response.setStatus(HttpStatus.PARTIAL_CONTENT.value());
+    			response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + (end - 1) + "/" + size);
+    		}
+    		response.setContentLengthLong(end - start);
+    		if (Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT))) {
+    			request.setAttribute(SENDFILE_FILENAME, report.toAbsolutePath().toString());
+    			request.setAttribute(SENDFILE_START, start);
+    			request.setAttribute(SENDFILE_END, end);
+    			return;
+    		}
+    		WritableByteChannel target = Channels.newChannel(response.getOutputStream());
+    		long position = start;
+    		while (position < end) {
+    			position += fileChannel.transferTo(position, end - position, target);
+    		}
+    		response.flushBuffer();
+    	}
+    	logger.info("Report {} downloaded", name);
+    }
+
+    /*
+     * Parses a single byte range of the Range header
+     * @param rangeHeader - Range header value, may be null
+     * @param size - size of the file
+     * @return start (inclusive) and end (exclusive) of the range, the whole file if no range was requested
+     * or null if the range cannot be satisfied
+     */
+    private long[] parseRange(String rangeHeader, long size) {
+    	if (rangeHeader == null || !rangeHeader.startsWith("bytes=") || rangeHeader.contains(",")) {
+    		return new long[] {0, size};
+    	}
+    	String range = rangeHeader.substring("bytes=".length()).trim();
+    	int dash = range.indexOf('-');
+    	try {
+    		if (dash < 0) {
+    			return new long[] {0, size};
+    		}
+    		if (dash == 0) {
+    			long suffixLength = Long.parseLong(range.substring(1));
+    			return suffixLength > 0 && size > 0 ? new long[] {Math.max(0, size - suffixLength), size} : null;
+    		}
+    		long start = Long.parseLong(range.substring(0, dash));
+    		long end = dash == range.length() - 1 ? size : Math.min(size, Long.parseLong(range.substring(dash + 1)) + 1);
+    		return start < size && start < end ? new long[] {start, end} : null;
+    	} catch (NumberFormatException e) {
+    		return new long[] {0, size};
+    	}
+    }
+}
@@ -1,31 +1,63 @@
 package com.example.parkingsystem.controller;
 
+import com.example.parkingsystem.dto.IngestJobStatus;
+import com.example.parkingsystem.dto.ObservationUploadResult;
+import com.example.parkingsystem.dto.SessionCommand;
+import com.example.parkingsystem.dto.SessionCommandResult;
+import com.example.parkingsystem.dto.SessionHistoryEntry;
+import com.example.parkingsystem.dto.SessionHistoryQuery;
+import com.example.parkingsystem.dto.SessionQuote;
 import com.example.parkingsystem.entity.ParkingSession;
 import com.example.parkingsystem.service.ParkingSessionService;
 import com.example.parkingsystem.service.LicensePlateObservationService;
+import com.example.parkingsystem.service.ObservationUploadFormat;
+import com.example.parkingsystem.service.impl.ObservationIngestJobs;
 import com.example.parkingsystem.entity.LicensePlateObservation;
+import com.fasterxml.jackson.databind.ObjectMapper;
 
 import io.swagger.v3.oas.annotations.Operation;
 
+import java.io.InputStream;
+import java.net.URI;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.ZoneOffset;
+import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 @RestController
 @RequestMapping("/api/parking")
 public class ParkingSessionController {
     private static final Logger logger = LoggerFactory.getLogger(ParkingSessionController.class);
 
+    public static final String UPLOAD_BATCH_ID_HEADER = "X-Upload-Batch-Id";
+
     private ParkingSessionService parkingSessionService;
 
     private LicensePlateObservationService licensePlateObservationService;
     
-    public ParkingSessionController(ParkingSessionService parkingSessionService, LicensePlateObservationService licensePlateObservationService) {
+    private ObservationIngestJobs observationIngestJobs;
+    
+    private ObjectMapper objectMapper;
+    
+    public ParkingSessionController(ParkingSessionService parkingSessionService, LicensePlateObservationService licensePlateObservationService,
+    		ObservationIngestJobs observationIngestJobs, ObjectMapper objectMapper) {
     	this.parkingSessionService = parkingSessionService;
     	this.licensePlateObservationService = licensePlateObservationService;
+    	this.observationIngestJobs = observationIngestJobs;
+    	this.objectMapper = objectMapper;
     }
 
     @Operation(summary = "Start the Parking session", description = "Start the Parking session and returns parking session details.")
@@ -42,11 +74,99 @@ public class ParkingSessionController {
         return parkingSessionService.endSession(licensePlate);
     }
     
-    @Operation(summary = "License plate observation", description = "Upload the observed license plate data")
+    @Operation(summary = "Quote the Parking session", description = "Return the cost of an active parking session up to the current minute without ending it. "
+    		+ "The quote carries an ETag and may be cached until the next minute, a request with a matching If-None-Match header gets 304 Not Modified. "
+    		+ "A license plate without an active session gets 404 Not Found")
+    @GetMapping("/quote")
+    public ResponseEntity<SessionQuote> quoteSession(@RequestParam String licensePlate) {
+    	SessionQuote quote = parkingSessionService.quoteSession(licensePlate);
+    	// GET responses with an ETag are answered with 304 by Spring when If-None-Match matches
+        return ResponseEntity.ok()
+        		.eTag(quote.getSessionId() + "-" + quote.getQuotedAt().toEpochSecond(ZoneOffset.UTC) / 60 + "-" + Math.round(quote.getCost() * 100))
+        		.cacheControl(CacheControl.maxAge(60 - LocalTime.now().getSecond(), TimeUnit.SECONDS).cachePrivate())
+        		.body(quote);
+    }
+    
+    @Operation(summary = "Start and end Parking sessions in bulk", description = "Apply a batch of START and END commands in one transaction and return the result of every command")
+    @PostMapping("/sessions")
+    public List<SessionCommandResult> applySessionCommands(@RequestBody List<SessionCommand> commands) {
+    	logger.info("Applying {} parking session commands", commands.size());
+        return parkingSessionService.applySessionCommands(commands);
+    }
+    
+    @Operation(summary = "Parking session history", description = "Return every parking session of the license plate, including the archived ones, ordered by start time")
+    @GetMapping("/sessions")
+    public List<ParkingSession> getSessionHistory(@RequestParam String licensePlate) {
+        return parkingSessionService.getSessionHistory(licensePlate);
+    }
+    
+    @Operation(summary = "Parking session history range", description = "Stream the live and archived sessions of a licensePlate or a streetName started in the optional [from, to) range "
+    		+ "as NDJSON, in start time and id order. Up to limit sessions are returned, the next page continues after the start time and id of the last session "
+    		+ "received, passed as afterStartTime and afterId")
+    @GetMapping(value = "/sessions/history", produces = "application/x-ndjson")
+    public ResponseEntity<StreamingResponseBody> streamSessionHistory(SessionHistoryQuery query) {
+    	// invalid queries fail here, before the response is committed
+    	Stream<SessionHistoryEntry> sessions = parkingSessionService.streamSessionHistory(query);
+    	StreamingResponseBody body = output -> {
+    		try (sessions) {
+    			Iterator<SessionHistoryEntry> iterator = sessions.iterator();
+    			while (iterator.hasNext()) {
+    				output.write(objectMapper.writeValueAsBytes(iterator.next()));
+    				output.write('\n');
+    			}
+    		}
+    	};
+        return ResponseEntity.ok().contentType(MediaType.parseMediaType("application/x-ndjson")).body(body);
+    }
+    
+    @Operation(summary = "License plate observation", description = "Upload the observed license plate data as a new batch, the batch id is returned in the " + UPLOAD_BATCH_ID_HEADER + " header")
     @PostMapping("/upload-observations")
     public ResponseEntity<String> uploadObservations(@RequestBody List<LicensePlateObservation> observations) {
-    	licensePlateObservationService.uploadObservations(observations);
-        return ResponseEntity.ok("Observations uploaded.");
+    	ObservationUploadResult result = licensePlateObservationService.uploadObservations(observations);
+        return ResponseEntity.ok().header(UPLOAD_BATCH_ID_HEADER, result.getBatchId()).body("Observations uploaded.");
+    }
+
+    @Operation(summary = "License plate observation stream", description = "Upload the observed license plate data as NDJSON or CSV (licensePlate,streetName,observationTime), parsed and stored in batches")
+    @PostMapping(value = "/upload-observations", consumes = {"application/x-ndjson", "text/csv"})
+    public ResponseEntity<String> uploadObservationStream(@RequestHeader(HttpHeaders.CONTENT_TYPE) String contentType, InputStream input) {
+    	ObservationUploadResult result = licensePlateObservationService.uploadObservations(input, ObservationUploadFormat.fromContentType(contentType));
+        return ResponseEntity.ok().header(UPLOAD_BATCH_ID_HEADER, result.getBatchId()).body("Observations uploaded: " + result.getObservations());
+    }
+
+    @Operation(summary = "License plate observation job", description = "Queue an NDJSON or CSV upload as a background job and return 202 Accepted with the job, "
+    		+ "whose status is polled at the Location header. The upload is rejected with 503 Service Unavailable when too many jobs are queued")
+    @PostMapping(value = "/upload-observations/jobs", consumes = {"application/x-ndjson", "text/csv"})
+    public ResponseEntity<IngestJobStatus> submitObservationUpload(@RequestHeader(HttpHeaders.CONTENT_TYPE) String contentType, InputStream input) {
+    	IngestJobStatus job = observationIngestJobs.submit(input, ObservationUploadFormat.fromContentType(contentType));
+        return ResponseEntity.accepted().location(URI.create("/api/parking/upload-observations/jobs/" + job.getJobId())).body(job);
+    }
+
+    @Operation(summary = "License plate observation job status", description = "Return the state of an upload job and the bytes parsed and observations written so far. "
+    		+ "An unknown job, or one that finished longer than the job retention ago, gets 404 Not Found")
+    @GetMapping("/upload-observations/jobs/{jobId}")
+    public IngestJobStatus getObservationUpload(@PathVariable String jobId) {
+        return observationIngestJobs.getStatus(jobId);
+    }
+
+    @Operation(summary = "Remove observations", description = "Remove observations in bulk by upload batch and/or upload time")
+    @DeleteMapping("/observations")
+    public ResponseEntity<String> deleteObservations(@RequestParam(required = false) List<String> batchId,
+    		@RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime uploadedBefore) {
+    	int deleted = licensePlateObservationService.deleteObservations(batchId, uploadedBefore);
+        return ResponseEntity.ok("Observations removed: " + deleted);
+    }
+
+    @Operation(summary = "Check upload batches", description = "Generate the unregistered plates report for the given upload batches, "
+    		+ "or re-check every observation when no batch is given")
+    @PostMapping("/enforcement")
+    public ResponseEntity<String> identifyUnregisteredPlates(@RequestParam(required = false) List<String> batchId) {
+    	if (batchId == null || batchId.isEmpty()) {
+    		// full rescan on demand, the scheduled runs only check new upload batches
+    		licensePlateObservationService.identifyUnregisteredPlates();
+    	} else {
+    		licensePlateObservationService.identifyUnregisteredPlates(batchId);
+    	}
+        return ResponseEntity.ok("Unregistered plates report generated.");
     }
 
 }
\ No newline at end of file
@@ -0,0 +1,36 @@
+package com.example.parkingsystem.controller;
+
+import com.example.parkingsystem.config.StreetPricingConfig;
+
+import io.swagger.v3.oas.annotations.Operation;
+
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequestMapping("/api/parking/pricing")
+public class StreetPricingController {
+    private static final Logger logger = LoggerFactory.getLogger(StreetPricingController.class);
+
+    private StreetPricingConfig streetPricingConfig;
+
+    public StreetPricingController(StreetPricingConfig streetPricingConfig) {
+    	this.streetPricingConfig = streetPricingConfig;
+    }
+
+    @Operation(summary = "Street prices", description = "Return the price in cents per chargeable minute of every street")
+    @GetMapping
+    public Map<String, Integer> getPrices() {
+        return streetPricingConfig.getStreetPricing().getPrices();
+    }
+
+    @Operation(summary = "Reload street prices", description = "Reload the street prices and the tariff calendar settings from the pricing file or the configuration and return the prices, the current prices are kept if they are invalid")
+    @PostMapping("/refresh")
+    public Map<String, Integer> refreshPrices() {
+    	logger.info("Refreshing street prices");
+        return streetPricingConfig.refresh().getPrices();
+    }
+}
@@ -0,0 +1,13 @@
+package com.example.parkingsystem.dto;
+
+import java.time.Instant;
+
+import lombok.Data;
+
+@Data
+public class EnforcementReport {
+	private final String name;
+	private final long size;
+	private final Instant createdAt;
+	private final boolean gzip;
+}
@@ -0,0 +1,32 @@
+package com.example.parkingsystem.dto;
+
+import java.time.LocalDateTime;
+
+import lombok.Data;
+
+/*
+ * State and progress of an asynchronous observation upload
+ */
+@Data
+public class IngestJobStatus {
+
+	public enum State {
+		QUEUED, RUNNING, SUCCEEDED, FAILED
+	}
+
+	private final String jobId;
+	private final State state;
+	private final String format;
+	private final LocalDateTime submittedAt;
+	private final LocalDateTime startedAt;
+	private final LocalDateTime finishedAt;
+	// size of the spooled upload and how much of it has been parsed
+	private final long bytesTotal;
+	private final long bytesRead;
+	// observations written so far, committed once the job has succeeded
+	private final long observations;
+	// only set once the job has succeeded
+	private final String batchId;
+	// only set once the job has failed
+	private final String error;
+}
@@ -0,0 +1,9 @@
+package com.example.parkingsystem.dto;
+
+import lombok.Data;
+
+@Data
+public class ObservationUploadResult {
+	private final String batchId;
+	private final long observations;
+}
@@ -0,0 +1,16 @@
+package com.example.parkingsystem.dto;
+
+import lombok.Data;
+
+@Data
+public class SessionCommand {
+
+	public enum Action {
+		START, END
+	}
+
+	private Action action;
+	private String licensePlate;
+	// only used by START
+	private String streetName;
+}
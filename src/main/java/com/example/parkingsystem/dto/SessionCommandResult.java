@@ -0,0 +1,23 @@
+package com.example.parkingsystem.dto;
+
+import com.example.parkingsystem.entity.ParkingSession;
+
+import lombok.Data;
+
+@Data
+public class SessionCommandResult {
+	private final SessionCommand.Action action;
+	private final String licensePlate;
+	private final boolean success;
+	// the session as stored at the end of the batch, null if the command failed
+	private final ParkingSession session;
+	private final String error;
+
+	public static SessionCommandResult succeeded(SessionCommand command, ParkingSession session) {
+		return new SessionCommandResult(command.getAction(), command.getLicensePlate(), true, session, null);
+	}
+
+	public static SessionCommandResult failed(SessionCommand command, String error) {
+		return new SessionCommandResult(command.getAction(), command.getLicensePlate(), false, null, error);
+	}
+}
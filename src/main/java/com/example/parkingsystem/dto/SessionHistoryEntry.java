@@ -0,0 +1,19 @@
+package com.example.parkingsystem.dto;
+
+import java.time.LocalDateTime;
+
+import lombok.Data;
+
+/*
+ * Read-only row of the session history, selected directly into the projection without loading the session entities
+ */
+@Data
+public class SessionHistoryEntry {
+	private final Long id;
+	private final String licensePlate;
+	private final String streetName;
+	private final LocalDateTime startTime;
+	private final LocalDateTime endTime;
+	private final double cost;
+	private final boolean active;
+}
@@ -0,0 +1,28 @@
+package com.example.parkingsystem.dto;
+
+import java.time.LocalDateTime;
+
+import org.springframework.format.annotation.DateTimeFormat;
+
+import lombok.Data;
+
+/*
+ * Filter and seek position of a session history request, bound from the request parameters
+ */
+@Data
+public class SessionHistoryQuery {
+	// exactly one of the license plate and the street name
+	private String licensePlate;
+	private String streetName;
+	// sessions that started from (inclusive) until (exclusive), unbounded when not given
+	@DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+	private LocalDateTime from;
+	@DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+	private LocalDateTime to;
+	// start time and id of the last session received, the history continues after it
+	@DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+	private LocalDateTime afterStartTime;
+	private Long afterId;
+	// maximum number of sessions returned, every session of the range when not given
+	private Integer limit;
+}
@@ -0,0 +1,18 @@
+package com.example.parkingsystem.dto;
+
+import java.time.LocalDateTime;
+
+import lombok.Data;
+
+/*
+ * Cost of an active parking session if it were ended at the quoted minute
+ */
+@Data
+public class SessionQuote {
+	private final Long sessionId;
+	private final String licensePlate;
+	private final String streetName;
+	private final LocalDateTime startTime;
+	private final LocalDateTime quotedAt;
+	private final double cost;
+}
@@ -0,0 +1,31 @@
+package com.example.parkingsystem.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/*
+ * Upload batch already checked by the incremental unregistered plates runs. An upload batch is stored in a single
+ * transaction, so once a batch is visible it is complete and is checked exactly once.
+ */
+@Entity
+@Data
+@NoArgsConstructor
+@Table(indexes = {
+        @Index(name = "idx_enforcement_checkpoint_uploaded_at", columnList = "uploaded_at")
+})
+public class EnforcementCheckpoint {
+    @Id
+    private String uploadBatchId;
+    private LocalDateTime uploadedAt;
+    private long observations;
+    private LocalDateTime checkedAt;
+
+    public EnforcementCheckpoint(String uploadBatchId, LocalDateTime uploadedAt, long observations) {
+        this.uploadBatchId = uploadBatchId;
+        this.uploadedAt = uploadedAt;
+        this.observations = observations;
+    }
+}
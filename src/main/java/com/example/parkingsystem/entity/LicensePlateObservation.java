@@ -9,12 +9,24 @@ import io.swagger.v3.oas.annotations.media.Schema;
 
 @Entity
 @Data
+@Table(indexes = {
+        @Index(name = "idx_observation_upload_batch", columnList = "upload_batch_id"),
+        @Index(name = "idx_observation_uploaded_at", columnList = "uploaded_at")
+})
 public class LicensePlateObservation {
+    public static final String ID_SEQUENCE = "license_plate_observation_seq";
+    public static final int ID_ALLOCATION_SIZE = 50;
+
     @Id
-    @GeneratedValue(strategy = GenerationType.AUTO)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = ID_SEQUENCE)
+    @SequenceGenerator(name = ID_SEQUENCE, sequenceName = ID_SEQUENCE, allocationSize = ID_ALLOCATION_SIZE)
     @Schema(hidden=true)
     private Long id;
 	private String licensePlate;
     private String streetName;
     private LocalDateTime observationTime;
-}
\ No newline at end of file
+    @Schema(hidden=true)
+    private String uploadBatchId;
+    @Schema(hidden=true)
+    private LocalDateTime uploadedAt;
+}
@@ -5,11 +5,24 @@ import lombok.Data;
 
 import java.time.LocalDateTime;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
 @Entity
 @Data
+@Table(indexes = {
+        @Index(name = "idx_parking_session_plate_active", columnList = "license_plate, is_active"),
+        @Index(name = "idx_parking_session_plate_end", columnList = "license_plate, end_time"),
+        @Index(name = "idx_parking_session_active", columnList = "is_active"),
+        @Index(name = "idx_parking_session_plate_start", columnList = "license_plate, start_time"),
+        @Index(name = "idx_parking_session_street_start", columnList = "street_name, start_time")
+})
 public class ParkingSession {
+    public static final String ID_SEQUENCE = "parking_session_seq";
+    public static final int ID_ALLOCATION_SIZE = 50;
+
     @Id
-    @GeneratedValue(strategy = GenerationType.AUTO)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = ID_SEQUENCE)
+    @SequenceGenerator(name = ID_SEQUENCE, sequenceName = ID_SEQUENCE, allocationSize = ID_ALLOCATION_SIZE)
     private Long id;
 	private String licensePlate;
     private String streetName;
@@ -17,4 +30,35 @@ public class ParkingSession {
     private LocalDateTime endTime;
     private double cost;
     private boolean isActive;
+    // the license plate while the session is active and null once it has ended, so the database holds at most one active session per plate.
+    // Its unique index only holds the active sessions, like a partial index on is_active, on databases without partial indexes.
+    // Both persistence columns are left out of the JSON responses.
+    @Column(unique = true)
+    @JsonIgnore
+    private String activeLicensePlate;
+    @Version
+    @JsonIgnore
+    private Long version;
+
+    /*
+     * Returns a detached copy of the session, for sessions read and changed by several threads
+     */
+    public ParkingSession copy() {
+        ParkingSession copy = new ParkingSession();
+        copy.setId(id);
+        copy.setLicensePlate(licensePlate);
+        copy.setStreetName(streetName);
+        copy.setStartTime(startTime);
+        copy.setEndTime(endTime);
+        copy.setCost(cost);
+        copy.setActive(isActive);
+        copy.setVersion(version);
+        return copy;
+    }
+
+    @PrePersist
+    @PreUpdate
+    void updateActiveLicensePlate() {
+        activeLicensePlate = isActive ? licensePlate : null;
+    }
 }
\ No newline at end of file
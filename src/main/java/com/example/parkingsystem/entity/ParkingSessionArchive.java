@@ -0,0 +1,30 @@
+package com.example.parkingsystem.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+/*
+ * Ended parking session moved out of the parking_session table by the archival job. The row keeps the id and the
+ * columns of the session so that history queries can read both tables as one.
+ */
+@Entity
+@Data
+@Table(indexes = {
+        @Index(name = "idx_parking_session_archive_plate_start", columnList = "license_plate, start_time"),
+        @Index(name = "idx_parking_session_archive_end", columnList = "end_time"),
+        @Index(name = "idx_parking_session_archive_street_start", columnList = "street_name, start_time")
+})
+public class ParkingSessionArchive {
+    @Id
+    private Long id;
+	private String licensePlate;
+    private String streetName;
+    private LocalDateTime startTime;
+    private LocalDateTime endTime;
+    private double cost;
+    private boolean isActive;
+    private Long version;
+    private LocalDateTime archivedAt;
+}
@@ -10,6 +10,20 @@ import io.swagger.v3.oas.annotations.responses.ApiResponses;
 
 @RestControllerAdvice
 public class GlobalExceptionHandler {
+	@ExceptionHandler(NotFoundException.class)
+	@ApiResponses({@ApiResponse(responseCode = "404", description = "Not found")})
+    public ResponseEntity<ErrorResponse> handleNotFoundException(NotFoundException ex) {
+		ErrorResponse errorResponse = new ErrorResponse(ex.getMessage(), HttpStatus.NOT_FOUND.value());
+    	return new ResponseEntity<>(errorResponse, HttpStatus.NOT_FOUND);
+    }
+
+	@ExceptionHandler(ServiceUnavailableException.class)
+	@ApiResponses({@ApiResponse(responseCode = "503", description = "Service unavailable, try again later")})
+    public ResponseEntity<ErrorResponse> handleServiceUnavailableException(ServiceUnavailableException ex) {
+		ErrorResponse errorResponse = new ErrorResponse(ex.getMessage(), HttpStatus.SERVICE_UNAVAILABLE.value());
+    	return new ResponseEntity<>(errorResponse, HttpStatus.SERVICE_UNAVAILABLE);
+    }
+
 	@ExceptionHandler(RuntimeException.class)
 	@ApiResponses({@ApiResponse(responseCode = "500", description = "Internal server error")})
     public ResponseEntity<ErrorResponse> handleRuntimeException(RuntimeException ex) {
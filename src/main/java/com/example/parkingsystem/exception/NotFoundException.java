@@ -0,0 +1,13 @@
+package com.example.parkingsystem.exception;
+
+/*
+ * Thrown when the requested resource does not exist, answered with 404 Not Found
+ */
+public class NotFoundException extends RuntimeException {
+
+	private static final long serialVersionUID = 1L;
+
+	public NotFoundException(String message) {
+		super(message);
+	}
+}
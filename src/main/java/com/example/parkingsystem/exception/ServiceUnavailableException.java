@@ -0,0 +1,13 @@
+package com.example.parkingsystem.exception;
+
+/*
+ * Thrown when a request is rejected by backpressure and may be retried later, answered with 503 Service Unavailable
+ */
+public class ServiceUnavailableException extends RuntimeException {
+
+	private static final long serialVersionUID = 1L;
+
+	public ServiceUnavailableException(String message) {
+		super(message);
+	}
+}
@@ -0,0 +1,28 @@
+package com.example.parkingsystem.repository;
+
+import com.example.parkingsystem.entity.EnforcementCheckpoint;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+public interface EnforcementCheckpointRepository extends JpaRepository<EnforcementCheckpoint, String> {
+
+    /*
+     * Returns the upload time of the most recently uploaded batch already checked, empty before the first incremental run
+     */
+    @Query("select max(c.uploadedAt) from EnforcementCheckpoint c")
+    Optional<LocalDateTime> findLatestUploadedAt();
+
+    /*
+     * Removes the checkpoints of the batches uploaded before the given time with a single bulk delete
+     * @return the number of checkpoints removed
+     */
+    @Modifying
+    @Query("delete from EnforcementCheckpoint c where c.uploadedAt < :uploadedBefore")
+    int deleteUploadedBefore(@Param("uploadedBefore") LocalDateTime uploadedBefore);
+}
@@ -0,0 +1,59 @@
+package com.example.parkingsystem.repository;
+
+import com.example.parkingsystem.entity.LicensePlateObservation;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/*
+ * JDBC batch writer for license plate observations, used for bulk ingest where going through the
+ * persistence context would cost one insert and one managed entity per row
+ */
+@Repository
+public class LicensePlateObservationBatchRepository {
+
+	private static final String INSERT_SQL = "insert into license_plate_observation (id, license_plate, street_name, observation_time, upload_batch_id, uploaded_at) values (?, ?, ?, ?, ?, ?)";
+
+	private final JdbcTemplate jdbcTemplate;
+
+	private final PooledSequenceAllocator idAllocator;
+
+	public LicensePlateObservationBatchRepository(JdbcTemplate jdbcTemplate) {
+		this.jdbcTemplate = jdbcTemplate;
+		this.idAllocator = new PooledSequenceAllocator(jdbcTemplate, LicensePlateObservation.ID_SEQUENCE, LicensePlateObservation.ID_ALLOCATION_SIZE);
+	}
+
+	/*
+	 * Inserts the observations in a single JDBC batch, assigning ids from the pooled sequence
+	 * @param observations - observations to insert, their ids are set on return
+	 */
+	public void insertAll(List<LicensePlateObservation> observations) {
+		if (observations.isEmpty()) {
+			return;
+		}
+		long[] ids = idAllocator.allocate(observations.size());
+		List<Object[]> rows = new ArrayList<>(observations.size());
+		for (int i = 0; i < observations.size(); i++) {
+			LicensePlateObservation observation = observations.get(i);
+			observation.setId(ids[i]);
+			rows.add(new Object[] {
+					observation.getId(),
+					observation.getLicensePlate(),
+					observation.getStreetName(),
+					toTimestamp(observation.getObservationTime()),
+					observation.getUploadBatchId(),
+					toTimestamp(observation.getUploadedAt())
+			});
+		}
+		jdbcTemplate.batchUpdate(INSERT_SQL, rows);
+	}
+
+	private static Timestamp toTimestamp(LocalDateTime time) {
+		return time == null ? null : Timestamp.valueOf(time);
+	}
+}
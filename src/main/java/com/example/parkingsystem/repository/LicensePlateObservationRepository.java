@@ -1,7 +1,60 @@
 package com.example.parkingsystem.repository;
 
+import com.example.parkingsystem.entity.EnforcementCheckpoint;
 import com.example.parkingsystem.entity.LicensePlateObservation;
+
+import jakarta.persistence.QueryHint;
+
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Stream;
 
 public interface LicensePlateObservationRepository extends JpaRepository<LicensePlateObservation, Long> {
-}
\ No newline at end of file
+
+    /*
+     * Returns a cursor over every observation in id order, to be consumed inside a transaction and closed afterwards
+     */
+    @QueryHints({@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"), @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")})
+    Stream<LicensePlateObservation> streamAllByOrderByIdAsc();
+
+    /*
+     * Returns a cursor over the observations of the given upload batches in id order, to be consumed inside a transaction and closed afterwards
+     */
+    @QueryHints({@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"), @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")})
+    Stream<LicensePlateObservation> streamByUploadBatchIdInOrderByIdAsc(Collection<String> uploadBatchIds);
+
+    /*
+     * Returns the upload batches uploaded since the given time that have no checkpoint yet, oldest first, as unsaved
+     * checkpoints with the number of observations of each batch. Only the observations uploaded since then are read.
+     */
+    @Query("select new com.example.parkingsystem.entity.EnforcementCheckpoint(o.uploadBatchId, min(o.uploadedAt), count(o)) from LicensePlateObservation o "
+    		+ "where o.uploadedAt >= :uploadedSince and o.uploadBatchId is not null "
+    		+ "and not exists (select c from EnforcementCheckpoint c where c.uploadBatchId = o.uploadBatchId) "
+    		+ "group by o.uploadBatchId order by min(o.uploadedAt), o.uploadBatchId")
+    List<EnforcementCheckpoint> findUncheckedUploadBatches(@Param("uploadedSince") LocalDateTime uploadedSince, Pageable pageable);
+
+    /*
+     * Removes the given upload batches with a single bulk delete
+     * @return the number of observations removed
+     */
+    @Modifying
+    @Query("delete from LicensePlateObservation o where o.uploadBatchId in :batchIds")
+    int deleteByUploadBatchIds(@Param("batchIds") Collection<String> batchIds);
+
+    /*
+     * Removes every observation uploaded before the given time with a single bulk delete
+     * @return the number of observations removed
+     */
+    @Modifying
+    @Query("delete from LicensePlateObservation o where o.uploadedAt < :uploadedBefore")
+    int deleteUploadedBefore(@Param("uploadedBefore") LocalDateTime uploadedBefore);
+}
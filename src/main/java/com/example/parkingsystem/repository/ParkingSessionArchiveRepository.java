@@ -0,0 +1,34 @@
+package com.example.parkingsystem.repository;
+
+import com.example.parkingsystem.dto.SessionHistoryEntry;
+import com.example.parkingsystem.entity.ParkingSessionArchive;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public interface ParkingSessionArchiveRepository extends JpaRepository<ParkingSessionArchive, Long> {
+
+    /*
+     * Returns the next page of the archived session history of a license plate, started within [from, to) and after the seek position
+     * in (start time, id) order, as projections without loading the entities. The position is a predicate on the
+     * (license_plate, start_time) index instead of an offset, so every page reads only its own rows.
+     */
+    @Query("select new com.example.parkingsystem.dto.SessionHistoryEntry(s.id, s.licensePlate, s.streetName, s.startTime, s.endTime, s.cost, s.isActive) from ParkingSessionArchive s "
+    		+ "where s.licensePlate = :licensePlate and s.startTime >= :from and s.startTime < :to "
+    		+ "and (s.startTime > :afterStartTime or s.startTime = :afterStartTime and s.id > :afterId) order by s.startTime, s.id")
+    List<SessionHistoryEntry> findPlateHistory(@Param("licensePlate") String licensePlate, @Param("from") LocalDateTime from, @Param("to") LocalDateTime to,
+    		@Param("afterStartTime") LocalDateTime afterStartTime, @Param("afterId") long afterId, Limit limit);
+
+    /*
+     * Returns the next page of the archived session history of a street like @see #findPlateHistory, on the (street_name, start_time) index
+     */
+    @Query("select new com.example.parkingsystem.dto.SessionHistoryEntry(s.id, s.licensePlate, s.streetName, s.startTime, s.endTime, s.cost, s.isActive) from ParkingSessionArchive s "
+    		+ "where s.streetName = :streetName and s.startTime >= :from and s.startTime < :to "
+    		+ "and (s.startTime > :afterStartTime or s.startTime = :afterStartTime and s.id > :afterId) order by s.startTime, s.id")
+    List<SessionHistoryEntry> findStreetHistory(@Param("streetName") String streetName, @Param("from") LocalDateTime from, @Param("to") LocalDateTime to,
+    		@Param("afterStartTime") LocalDateTime afterStartTime, @Param("afterId") long afterId, Limit limit);
+}
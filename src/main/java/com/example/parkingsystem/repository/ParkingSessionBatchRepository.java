@@ -0,0 +1,205 @@
+package com.example.parkingsystem.repository;
+
+import com.example.parkingsystem.entity.ParkingSession;
+
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/*
+ * JDBC batch reader and writer for parking sessions, used for bulk session changes where going through the
+ * persistence context would cost one statement and one managed entity per session
+ */
+@Repository
+public class ParkingSessionBatchRepository {
+
+	private static final String INSERT_SQL = "insert into parking_session (id, license_plate, street_name, start_time, end_time, cost, is_active, active_license_plate, version) values (?, ?, ?, ?, ?, ?, ?, ?, 0)";
+
+	private static final String UPDATE_SQL = "update parking_session set end_time = ?, cost = ?, is_active = ?, active_license_plate = ?, version = version + 1 where id = ? and version = ?";
+
+	private static final String SELECT_ACTIVE_SQL = "select id, license_plate, street_name, start_time, end_time, cost, is_active, version from parking_session where active_license_plate in (:licensePlates)";
+
+	private static final String SELECT_ARCHIVABLE_IDS_SQL = "select id from parking_session where is_active = false and end_time < :endedBefore order by id fetch first :batchSize rows only";
+
+	private static final String ARCHIVE_SQL = "insert into parking_session_archive (id, license_plate, street_name, start_time, end_time, cost, is_active, version, archived_at) "
+			+ "select id, license_plate, street_name, start_time, end_time, cost, is_active, version, :archivedAt from parking_session where id in (:ids)";
+
+	private static final String DELETE_ARCHIVED_SQL = "delete from parking_session where id in (:ids) and is_active = false";
+
+	private static final String SELECT_HISTORY_SQL = "select id, license_plate, street_name, start_time, end_time, cost, is_active, version from parking_session where license_plate = :licensePlate "
+			+ "union all select id, license_plate, street_name, start_time, end_time, cost, is_active, version from parking_session_archive where license_plate = :licensePlate "
+			+ "order by start_time, id";
+
+	private static final String SELECT_OVERLAPPING_SQL = "select id, license_plate, street_name, start_time, end_time, cost, is_active, version from parking_session "
+			+ "where license_plate in (:licensePlates) and start_time <= :to and (end_time is null or end_time >= :from) "
+			+ "union all select id, license_plate, street_name, start_time, end_time, cost, is_active, version from parking_session_archive "
+			+ "where license_plate in (:licensePlates) and start_time <= :to and end_time >= :from";
+
+	private static final RowMapper<ParkingSession> SESSION_ROW_MAPPER = (resultSet, rowNum) -> {
+		ParkingSession session = new ParkingSession();
+		session.setId(resultSet.getLong("id"));
+		session.setLicensePlate(resultSet.getString("license_plate"));
+		session.setStreetName(resultSet.getString("street_name"));
+		session.setStartTime(toLocalDateTime(resultSet.getTimestamp("start_time")));
+		session.setEndTime(toLocalDateTime(resultSet.getTimestamp("end_time")));
+		session.setCost(resultSet.getDouble("cost"));
+		session.setActive(resultSet.getBoolean("is_active"));
+		session.setVersion(resultSet.getLong("version"));
+		return session;
+	};
+
+	private final NamedParameterJdbcTemplate jdbcTemplate;
+
+	private final PooledSequenceAllocator idAllocator;
+
+	public ParkingSessionBatchRepository(NamedParameterJdbcTemplate jdbcTemplate) {
+		this.jdbcTemplate = jdbcTemplate;
+		this.idAllocator = new PooledSequenceAllocator(jdbcTemplate.getJdbcTemplate(), ParkingSession.ID_SEQUENCE, ParkingSession.ID_ALLOCATION_SIZE);
+	}
+
+	/*
+	 * Returns the active sessions of the given license plates in a single IN query, as unmanaged entities
+	 * @param licensePlates - license plates to look up
+	 * @return the active sessions found
+	 */
+	public List<ParkingSession> findActiveSessions(Collection<String> licensePlates) {
+		if (licensePlates.isEmpty()) {
+			return List.of();
+		}
+		return jdbcTemplate.query(SELECT_ACTIVE_SQL, new MapSqlParameterSource("licensePlates", licensePlates), SESSION_ROW_MAPPER);
+	}
+
+	/*
+	 * Allocates the id of a new session from the pooled sequence, for sessions that are inserted later
+	 * @return the id
+	 */
+	public long allocateId() {
+		return idAllocator.allocate(1)[0];
+	}
+
+	/*
+	 * Inserts the sessions in a single JDBC batch, assigning ids from the pooled sequence to sessions without one
+	 * @param sessions - new sessions, their ids are set on return
+	 */
+	public void insertAll(List<ParkingSession> sessions) {
+		if (sessions.isEmpty()) {
+			return;
+		}
+		long[] ids = idAllocator.allocate((int) sessions.stream().filter(session -> session.getId() == null).count());
+		int nextId = 0;
+		List<Object[]> rows = new ArrayList<>(sessions.size());
+		for (ParkingSession session : sessions) {
+			if (session.getId() == null) {
+				session.setId(ids[nextId++]);
+			}
+			rows.add(new Object[] {
+					session.getId(),
+					session.getLicensePlate(),
+					session.getStreetName(),
+					toTimestamp(session.getStartTime()),
+					toTimestamp(session.getEndTime()),
+					session.getCost(),
+					session.isActive(),
+					activeLicensePlate(session)
+			});
+		}
+		jdbcTemplate.getJdbcTemplate().batchUpdate(INSERT_SQL, rows);
+		sessions.forEach(session -> session.setVersion(0L));
+	}
+
+	/*
+	 * Stores the end time, cost and state of stored sessions in a single JDBC batch, checking their versions
+	 * @param sessions - sessions with an id and version, their versions are incremented on return
+	 * @throws ObjectOptimisticLockingFailureException, if a session was changed since it was read
+	 */
+	public void updateAll(List<ParkingSession> sessions) {
+		if (sessions.isEmpty()) {
+			return;
+		}
+		List<Object[]> rows = new ArrayList<>(sessions.size());
+		for (ParkingSession session : sessions) {
+			rows.add(new Object[] {
+					toTimestamp(session.getEndTime()),
+					session.getCost(),
+					session.isActive(),
+					activeLicensePlate(session),
+					session.getId(),
+					session.getVersion()
+			});
+		}
+		int[] updated = jdbcTemplate.getJdbcTemplate().batchUpdate(UPDATE_SQL, rows);
+		for (int i = 0; i < updated.length; i++) {
+			if (updated[i] == 0) {
+				throw new ObjectOptimisticLockingFailureException(ParkingSession.class, sessions.get(i).getId());
+			}
+		}
+		sessions.forEach(session -> session.setVersion(session.getVersion() + 1));
+	}
+
+	/*
+	 * Moves ended sessions to the parking_session_archive table, copying and deleting them with one statement each.
+	 * Must run in a transaction so that a session is never in both tables or in neither.
+	 * @param endedBefore - sessions that ended before this time are archived
+	 * @param batchSize - maximum number of sessions moved
+	 * @param archivedAt - time recorded on the archived rows
+	 * @return the number of sessions moved, less than batchSize once no archivable session is left
+	 */
+	public int archiveEndedBefore(LocalDateTime endedBefore, int batchSize, LocalDateTime archivedAt) {
+		List<Long> ids = jdbcTemplate.queryForList(SELECT_ARCHIVABLE_IDS_SQL,
+				new MapSqlParameterSource("endedBefore", toTimestamp(endedBefore)).addValue("batchSize", batchSize), Long.class);
+		if (ids.isEmpty()) {
+			return 0;
+		}
+		MapSqlParameterSource parameters = new MapSqlParameterSource("ids", ids).addValue("archivedAt", toTimestamp(archivedAt));
+		jdbcTemplate.update(ARCHIVE_SQL, parameters);
+		return jdbcTemplate.update(DELETE_ARCHIVED_SQL, parameters);
+	}
+
+	/*
+	 * Returns every session of the license plate, from the live and the archive table, ordered by start time
+	 * @param licensePlate - license plate to look up
+	 * @return the sessions found, as unmanaged entities
+	 */
+	public List<ParkingSession> findSessionHistory(String licensePlate) {
+		return jdbcTemplate.query(SELECT_HISTORY_SQL, new MapSqlParameterSource("licensePlate", licensePlate), SESSION_ROW_MAPPER);
+	}
+
+	/*
+	 * Returns the sessions of the given license plates, from the live and the archive table, that may have covered a moment
+	 * between the two times, in a single IN query. Sessions that ended in the minute of the from time are included, their
+	 * end time is truncated to minutes.
+	 * @param licensePlates - license plates to look up
+	 * @param from - earliest moment (inclusive)
+	 * @param to - latest moment (inclusive)
+	 * @return the sessions found in no particular order, as unmanaged entities
+	 */
+	public List<ParkingSession> findSessionsOverlapping(Collection<String> licensePlates, LocalDateTime from, LocalDateTime to) {
+		if (licensePlates.isEmpty()) {
+			return List.of();
+		}
+		MapSqlParameterSource parameters = new MapSqlParameterSource("licensePlates", licensePlates)
+				.addValue("from", toTimestamp(from.minusMinutes(1)))
+				.addValue("to", toTimestamp(to));
+		return jdbcTemplate.query(SELECT_OVERLAPPING_SQL, parameters, SESSION_ROW_MAPPER);
+	}
+
+	private static String activeLicensePlate(ParkingSession session) {
+		return session.isActive() ? session.getLicensePlate() : null;
+	}
+
+	private static Timestamp toTimestamp(LocalDateTime time) {
+		return time == null ? null : Timestamp.valueOf(time);
+	}
+
+	private static LocalDateTime toLocalDateTime(Timestamp timestamp) {
+		return timestamp == null ? null : timestamp.toLocalDateTime();
+	}
+}
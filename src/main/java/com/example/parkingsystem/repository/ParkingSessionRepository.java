@@ -1,8 +1,14 @@
 package com.example.parkingsystem.repository;
 
+import com.example.parkingsystem.dto.SessionHistoryEntry;
 import com.example.parkingsystem.entity.ParkingSession;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -11,4 +17,46 @@ public interface ParkingSessionRepository extends JpaRepository<ParkingSession,
     List<ParkingSession> findByLicensePlateAndEndTimeIsNull(String licensePlate);
     
     Optional<ParkingSession> findByLicensePlateAndIsActive(String licensePlate, boolean isActive);
-}
\ No newline at end of file
+
+    List<ParkingSession> findByIsActive(boolean isActive);
+
+    /*
+     * Returns the license plates that have a parking session, active, ended or archived
+     */
+    @Query(value = "select license_plate from parking_session union select license_plate from parking_session_archive", nativeQuery = true)
+    List<String> findAllLicensePlates();
+
+    /*
+     * Returns the license plates that have an ended parking session, archived ones included
+     */
+    @Query(value = "select license_plate from parking_session where is_active = false union select license_plate from parking_session_archive", nativeQuery = true)
+    List<String> findAllEndedLicensePlates();
+
+    /*
+     * Returns which of the given license plates have an ended parking session, archived ones included, in a single IN query
+     * per table on their license plate indexes
+     */
+    @Query(value = "select license_plate from parking_session where is_active = false and license_plate in (:licensePlates) "
+    		+ "union select license_plate from parking_session_archive where license_plate in (:licensePlates)", nativeQuery = true)
+    List<String> findEndedLicensePlates(@Param("licensePlates") Collection<String> licensePlates);
+
+    /*
+     * Returns the next page of the live session history of a license plate, started within [from, to) and after the seek position
+     * in (start time, id) order, as projections without loading the entities. The position is a predicate on the
+     * (license_plate, start_time) index instead of an offset, so every page reads only its own rows.
+     */
+    @Query("select new com.example.parkingsystem.dto.SessionHistoryEntry(s.id, s.licensePlate, s.streetName, s.startTime, s.endTime, s.cost, s.isActive) from ParkingSession s "
+    		+ "where s.licensePlate = :licensePlate and s.startTime >= :from and s.startTime < :to "
+    		+ "and (s.startTime > :afterStartTime or s.startTime = :afterStartTime and s.id > :afterId) order by s.startTime, s.id")
+    List<SessionHistoryEntry> findPlateHistory(@Param("licensePlate") String licensePlate, @Param("from") LocalDateTime from, @Param("to") LocalDateTime to,
+    		@Param("afterStartTime") LocalDateTime afterStartTime, @Param("afterId") long afterId, Limit limit);
+
+    /*
+     * Returns the next page of the live session history of a street like @see #findPlateHistory, on the (street_name, start_time) index
+     */
+    @Query("select new com.example.parkingsystem.dto.SessionHistoryEntry(s.id, s.licensePlate, s.streetName, s.startTime, s.endTime, s.cost, s.isActive) from ParkingSession s "
+    		+ "where s.streetName = :streetName and s.startTime >= :from and s.startTime < :to "
+    		+ "and (s.startTime > :afterStartTime or s.startTime = :afterStartTime and s.id > :afterId) order by s.startTime, s.id")
+    List<SessionHistoryEntry> findStreetHistory(@Param("streetName") String streetName, @Param("from") LocalDateTime from, @Param("to") LocalDateTime to,
+    		@Param("afterStartTime") LocalDateTime afterStartTime, @Param("afterId") long afterId, Limit limit);
+}
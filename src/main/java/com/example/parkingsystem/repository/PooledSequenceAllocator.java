@@ -0,0 +1,68 @@
+package com.example.parkingsystem.repository;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.locks.ReentrantLock;
+
+/*
+ * Hands out ids from a database sequence with the same pooled semantics Hibernate uses for
+ * @SequenceGenerator(allocationSize = n): every sequence value v reserves the block [v - n + 1, v].
+ * Ids allocated here never collide with ids Hibernate allocates from the same sequence, and one
+ * round trip reserves the blocks needed for a whole JDBC batch.
+ */
+public class PooledSequenceAllocator {
+
+	private final JdbcTemplate jdbcTemplate;
+
+	private final String sequenceName;
+
+	private final int allocationSize;
+
+	private final Deque<Long> reservedBlocks = new ArrayDeque<>();
+
+	private final ReentrantLock lock = new ReentrantLock();
+
+	private long nextId = 1;
+
+	private long hiId = 0;
+
+	public PooledSequenceAllocator(JdbcTemplate jdbcTemplate, String sequenceName, int allocationSize) {
+		this.jdbcTemplate = jdbcTemplate;
+		this.sequenceName = sequenceName;
+		this.allocationSize = allocationSize;
+	}
+
+	/*
+	 * Allocates a number of ids
+	 * @param count - number of ids needed
+	 * @return the allocated ids
+	 */
+	public long[] allocate(int count) {
+		long[] ids = new long[count];
+		lock.lock();
+		try {
+			for (int i = 0; i < count; i++) {
+				if (nextId > hiId) {
+					if (reservedBlocks.isEmpty()) {
+						reserveBlocks(count - i);
+					}
+					hiId = reservedBlocks.poll();
+					// the very first sequence value is below the allocation size, Hibernate treats it as a block of its own
+					nextId = Math.max(1, hiId - allocationSize + 1);
+				}
+				ids[i] = nextId++;
+			}
+		} finally {
+			lock.unlock();
+		}
+		return ids;
+	}
+
+	private void reserveBlocks(int idsNeeded) {
+		int blocks = (idsNeeded + allocationSize - 1) / allocationSize;
+		reservedBlocks.addAll(jdbcTemplate.queryForList(
+				"select next value for " + sequenceName + " from system_range(1, ?)", Long.class, blocks));
+	}
+}
@@ -0,0 +1,35 @@
+package com.example.parkingsystem.service;
+
+import java.io.OutputStream;
+import java.nio.file.Path;
+import java.util.List;
+
+import com.example.parkingsystem.dto.EnforcementReport;
+
+public interface EnforcementReportService {
+
+	/*
+	 * Lists the published unregistered plates reports
+	 * @return the reports, newest first
+	 */
+	List<EnforcementReport> listReports();
+
+	/*
+	 * Resolves a published report file
+	 * @param name - file name of the report
+	 * @return path of the report file
+	 * @throws NotFoundException, if no published report exists with that name
+	 */
+	Path getReport(String name);
+
+	/*
+	 * Copies the lines of a report that belong to a street, reading the report one line at a time
+	 * @param name - file name of the report
+	 * @param streetName - name of the street to keep
+	 * @param output - stream to write the uncompressed, filtered report to
+	 * @throws NotFoundException, if no published report exists with that name
+	 * @throws RuntimeException, if the report cannot be read
+	 */
+	void writeReportForStreet(String name, String streetName, OutputStream output);
+
+}
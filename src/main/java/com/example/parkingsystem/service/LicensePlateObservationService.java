@@ -1,20 +1,71 @@
 package com.example.parkingsystem.service;
 
+import java.io.InputStream;
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.function.LongConsumer;
 
+import com.example.parkingsystem.dto.ObservationUploadResult;
 import com.example.parkingsystem.entity.LicensePlateObservation;
 
 public interface LicensePlateObservationService {
 
 	/*
-	 * Uploads the license plate data observed during scan
+	 * Uploads the license plate data observed during scan as a new upload batch, appended to the existing observations
 	 * @param observations - list of observed license plate data 
+	 * @return ObservationUploadResult - id of the upload batch and number of observations stored
 	 */
-	void uploadObservations(List<LicensePlateObservation> observations);
+	ObservationUploadResult uploadObservations(List<LicensePlateObservation> observations);
 
 	/*
-	 * Generate a report of unregistered license plates
+	 * Uploads the license plate data observed during scan as a stream of records, written in JDBC batches
+	 * and appended to the existing observations as a new upload batch
+	 * @param input - stream of observation records
+	 * @param format - record format of the stream
+	 * @return ObservationUploadResult - id of the upload batch and number of observations stored
+	 * @throws RuntimeException, if the stream cannot be read or a record is malformed
+	 */
+	ObservationUploadResult uploadObservations(InputStream input, ObservationUploadFormat format);
+
+	/*
+	 * Uploads a stream of observation records like @see #uploadObservations(InputStream, ObservationUploadFormat),
+	 * reporting the progress after every JDBC batch
+	 * @param input - stream of observation records
+	 * @param format - record format of the stream
+	 * @param progress - receives the number of observations written so far
+	 * @return ObservationUploadResult - id of the upload batch and number of observations stored
+	 * @throws RuntimeException, if the stream cannot be read or a record is malformed
+	 */
+	ObservationUploadResult uploadObservations(InputStream input, ObservationUploadFormat format, LongConsumer progress);
+
+	/*
+	 * Generate a report of unregistered license plates, re-checking every observation
 	 */
 	void identifyUnregisteredPlates();
 
-}
\ No newline at end of file
+	/*
+	 * Generate a report of unregistered license plates for the upload batches not checked by a previous incremental run
+	 */
+	void identifyNewUnregisteredPlates();
+
+	/*
+	 * Generate a report of unregistered license plates for the given upload batches only
+	 * @param batchIds - ids of the upload batches to check
+	 */
+	void identifyUnregisteredPlates(Collection<String> batchIds);
+
+	/*
+	 * Removes observations in bulk, by upload batch and/or by upload time
+	 * @param batchIds - ids of the upload batches to remove, may be empty
+	 * @param uploadedBefore - removes every observation uploaded before this time, may be null
+	 * @return the number of observations removed
+	 */
+	int deleteObservations(Collection<String> batchIds, LocalDateTime uploadedBefore);
+
+	/*
+	 * Removes the observations older than the configured retention period
+	 */
+	void purgeExpiredObservations();
+
+}
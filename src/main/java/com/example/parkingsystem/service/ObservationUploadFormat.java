@@ -0,0 +1,47 @@
+package com.example.parkingsystem.service;
+
+import org.springframework.http.MediaType;
+
+/*
+ * Record formats accepted by the streaming observation upload
+ */
+public enum ObservationUploadFormat {
+
+	/*
+	 * One JSON observation object per line
+	 */
+	NDJSON("application/x-ndjson"),
+
+	/*
+	 * licensePlate,streetName,observationTime per line with an optional header line
+	 */
+	CSV("text/csv");
+
+	private final String mediaType;
+
+	ObservationUploadFormat(String mediaType) {
+		this.mediaType = mediaType;
+	}
+
+	public String getMediaType() {
+		return mediaType;
+	}
+
+	/*
+	 * Resolves the format from the request content type
+	 * @param contentType - content type header value
+	 * @return the matching format
+	 * @throws RuntimeException, if the content type is not supported
+	 */
+	public static ObservationUploadFormat fromContentType(String contentType) {
+		if (contentType != null) {
+			MediaType requested = MediaType.parseMediaType(contentType);
+			for (ObservationUploadFormat format : values()) {
+				if (MediaType.parseMediaType(format.mediaType).equalsTypeAndSubtype(requested)) {
+					return format;
+				}
+			}
+		}
+		throw new RuntimeException("Unsupported observation upload format: " + contentType);
+	}
+}
@@ -1,7 +1,15 @@
 package com.example.parkingsystem.service;
 
+import com.example.parkingsystem.dto.SessionCommand;
+import com.example.parkingsystem.dto.SessionCommandResult;
+import com.example.parkingsystem.dto.SessionHistoryEntry;
+import com.example.parkingsystem.dto.SessionHistoryQuery;
+import com.example.parkingsystem.dto.SessionQuote;
 import com.example.parkingsystem.entity.ParkingSession;
 
+import java.util.List;
+import java.util.stream.Stream;
+
 public interface ParkingSessionService {
 
 	/*
@@ -21,4 +29,39 @@ public interface ParkingSessionService {
 	 */
 	ParkingSession endSession(String licensePlate);
 
+	/*
+	 * Quote the cost of an active parking session as if it ended now, without changing it
+	 * @param licensePlate - licenseplate number
+	 * @return SessionQuote - cost of the session up to the current minute
+	 * @throws NotFoundException, if no active session found for the license plate
+	 */
+	SessionQuote quoteSession(String licensePlate);
+
+	/*
+	 * Applies a batch of session start and end commands in one transaction, in the given order
+	 * @param commands - start and end commands
+	 * @return the result of every command, in the order of the commands
+	 */
+	List<SessionCommandResult> applySessionCommands(List<SessionCommand> commands);
+
+	/*
+	 * Returns every parking session of the license plate, live and archived, ordered by start time
+	 * @param licensePlate - licenseplate number
+	 * @return the sessions of the license plate, empty if it never parked
+	 */
+	List<ParkingSession> getSessionHistory(String licensePlate);
+
+	/*
+	 * Streams the sessions of a license plate or a street, live and archived, in start time and id order
+	 * @param query - license plate or street name, start time range, seek position and limit @see SessionHistoryQuery
+	 * @return the sessions, read lazily in keyset pages as the stream is consumed
+	 * @throws RuntimeException, if neither or both of the license plate and the street name are given
+	 */
+	Stream<SessionHistoryEntry> streamSessionHistory(SessionHistoryQuery query);
+
+	/*
+	 * Moves the sessions that ended longer ago than the configured age to the archive, in batches
+	 */
+	void archiveEndedSessions();
+
 }
\ No newline at end of file
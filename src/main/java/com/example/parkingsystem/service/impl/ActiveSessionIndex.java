@@ -0,0 +1,122 @@
+package com.example.parkingsystem.service.impl;
+
+import com.example.parkingsystem.entity.ParkingSession;
+import com.example.parkingsystem.repository.ParkingSessionRepository;
+
+import jakarta.annotation.PostConstruct;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/*
+ * In-memory index of the active parking sessions keyed by license plate, together with the license plates that have
+ * an ended session. It is rebuilt from the database on startup and kept up to date by the session service after every
+ * successful write to ParkingSessionRepository, so active sessions and plates with an ended session can be resolved
+ * without a query. A plate never leaves the ended plates, as an ended session is never changed again.
+ * The index keeps its own copies of the sessions and hands them out to concurrent readers, that read them without
+ * the session lock of the plate. They are never changed: a session change is made on a copy and put back.
+ */
+@Component
+public class ActiveSessionIndex {
+
+	private static final Logger logger = LoggerFactory.getLogger(ActiveSessionIndex.class);
+
+	private final ParkingSessionRepository parkingSessionRepository;
+
+	private final Map<String, ParkingSession> activeSessions = new ConcurrentHashMap<>();
+
+	private final Set<String> endedPlates = ConcurrentHashMap.newKeySet();
+
+	private final LongAdder hits = new LongAdder();
+
+	private final LongAdder misses = new LongAdder();
+
+	public ActiveSessionIndex(ParkingSessionRepository parkingSessionRepository) {
+		this.parkingSessionRepository = parkingSessionRepository;
+	}
+
+	/*
+	 * Rebuilds the index from the active sessions and the license plates with an ended session stored in the database
+	 */
+	@PostConstruct
+	public void rebuild() {
+		activeSessions.clear();
+		for (ParkingSession session : parkingSessionRepository.findByIsActive(true)) {
+			activeSessions.put(session.getLicensePlate(), session);
+		}
+		endedPlates.clear();
+		endedPlates.addAll(parkingSessionRepository.findAllEndedLicensePlates());
+		logger.info("Active session index rebuilt with {} sessions and {} plates with an ended session", activeSessions.size(), endedPlates.size());
+	}
+
+	/*
+	 * Returns the active session of a license plate
+	 * @param licensePlate - licenseplate number
+	 * @return the shared, read-only active session or null if the plate has no active session in the index
+	 */
+	public ParkingSession get(String licensePlate) {
+		ParkingSession session = activeSessions.get(licensePlate);
+		(session != null ? hits : misses).increment();
+		return session;
+	}
+
+	/*
+	 * Validates whether the license plate has an active session in the index
+	 * @param licensePlate - licenseplate number
+	 * @return true or false
+	 */
+	public boolean contains(String licensePlate) {
+		return get(licensePlate) != null;
+	}
+
+	/*
+	 * Validates whether the license plate has an ended session in the index
+	 * @param licensePlate - licenseplate number
+	 * @return true or false
+	 */
+	public boolean hasEndedSession(String licensePlate) {
+		return licensePlate != null && endedPlates.contains(licensePlate);
+	}
+
+	/*
+	 * Records a session that has been stored as active
+	 * @param session - the stored parking session, a copy of it is recorded
+	 */
+	public void put(ParkingSession session) {
+		activeSessions.put(session.getLicensePlate(), session.copy());
+	}
+
+	/*
+	 * Removes the active session of a license plate once it has been stored as ended
+	 * @param licensePlate - licenseplate number
+	 */
+	public void remove(String licensePlate) {
+		activeSessions.remove(licensePlate);
+	}
+
+	/*
+	 * Records a license plate whose session has been stored as ended
+	 * @param licensePlate - licenseplate number
+	 */
+	public void addEndedPlate(String licensePlate) {
+		endedPlates.add(licensePlate);
+	}
+
+	public long getHits() {
+		return hits.sum();
+	}
+
+	public long getMisses() {
+		return misses.sum();
+	}
+
+	public int size() {
+		return activeSessions.size();
+	}
+}
@@ -0,0 +1,125 @@
+package com.example.parkingsystem.service.impl;
+
+import com.example.parkingsystem.dto.EnforcementReport;
+import com.example.parkingsystem.exception.NotFoundException;
+import com.example.parkingsystem.service.EnforcementReportService;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+
+@Service
+public class EnforcementReportServiceImpl implements EnforcementReportService {
+
+	private static final Logger logger = LoggerFactory.getLogger(EnforcementReportServiceImpl.class);
+
+	private UnregisteredPlatesReportWriter reportWriter;
+
+	public EnforcementReportServiceImpl(UnregisteredPlatesReportWriter reportWriter) {
+		this.reportWriter = reportWriter;
+	}
+
+	/*
+	 * Lists the published unregistered plates reports
+	 * @return the reports, newest first
+	 */
+	@Override
+	public List<EnforcementReport> listReports() {
+		Path reportDirectory = reportWriter.getReportDirectory();
+		if (!Files.isDirectory(reportDirectory)) {
+			return List.of();
+		}
+		try (Stream<Path> files = Files.list(reportDirectory)) {
+			return files.filter(this::isPublishedReport)
+					.map(this::toEnforcementReport)
+					.sorted(Comparator.comparing(EnforcementReport::getName).reversed())
+					.toList();
+		} catch (IOException | UncheckedIOException e) {
+			logger.error("Failed to list reports: " + e.getMessage());
+			throw new RuntimeException("Failed to list reports");
+		}
+	}
+
+	/*
+	 * Resolves a published report file
+	 * @param name - file name of the report
+	 * @return path of the report file
+	 * @throws NotFoundException, if no published report exists with that name
+	 */
+	@Override
+	public Path getReport(String name) {
+		Path reportDirectory = reportWriter.getReportDirectory();
+		Path report = reportDirectory.resolve(name).normalize();
+		if (!reportDirectory.equals(report.getParent()) || !isPublishedReport(report) || !Files.isRegularFile(report)) {
+			logger.error("Invalid report: {}", name);
+			throw new NotFoundException("No report found for name: " + name);
+		}
+		return report;
+	}
+
+	/*
+	 * Copies the lines of a report that belong to a street, reading the report one line at a time
+	 * @param name - file name of the report
+	 * @param streetName - name of the street to keep
+	 * @param output - stream to write the uncompressed, filtered report to
+	 * @throws NotFoundException, if no published report exists with that name
+	 * @throws RuntimeException, if the report cannot be read
+	 */
+	@Override
+	public void writeReportForStreet(String name, String streetName, OutputStream output) {
+		Path report = getReport(name);
+		String streetMarker = ", Street: " + streetName + ", ";
+		try (InputStream input = openReport(report);
+				BufferedReader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8), 1 << 16)) {
+			BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8), 1 << 16);
+			String line;
+			while ((line = reader.readLine()) != null) {
+				if (!line.startsWith("License Plate: ") || line.contains(streetMarker)) {
+					writer.write(line);
+					writer.write('\n');
+				}
+			}
+			writer.flush();
+		} catch (IOException e) {
+			logger.error("Failed to read report {}: {}", name, e.getMessage());
+			throw new RuntimeException("Failed to read report: " + name);
+		}
+	}
+
+	private InputStream openReport(Path report) throws IOException {
+		InputStream input = Files.newInputStream(report);
+		return report.getFileName().toString().endsWith(".gz") ? new GZIPInputStream(input, 1 << 16) : input;
+	}
+
+	private boolean isPublishedReport(Path file) {
+		String fileName = file.getFileName().toString();
+		return fileName.startsWith(UnregisteredPlatesReportWriter.REPORT_FILE_PREFIX) && !fileName.endsWith(".tmp");
+	}
+
+	private EnforcementReport toEnforcementReport(Path report) {
+		try {
+			BasicFileAttributes attributes = Files.readAttributes(report, BasicFileAttributes.class);
+			String fileName = report.getFileName().toString();
+			return new EnforcementReport(fileName, attributes.size(), attributes.lastModifiedTime().toInstant(), fileName.endsWith(".gz"));
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+}
@@ -1,81 +1,569 @@
 package com.example.parkingsystem.service.impl;
 
+import com.example.parkingsystem.dto.ObservationUploadResult;
+import com.example.parkingsystem.entity.EnforcementCheckpoint;
 import com.example.parkingsystem.entity.LicensePlateObservation;
+import com.example.parkingsystem.entity.ParkingSession;
+import com.example.parkingsystem.repository.EnforcementCheckpointRepository;
+import com.example.parkingsystem.repository.LicensePlateObservationBatchRepository;
 import com.example.parkingsystem.repository.LicensePlateObservationRepository;
+import com.example.parkingsystem.repository.ParkingSessionBatchRepository;
 import com.example.parkingsystem.repository.ParkingSessionRepository;
 import com.example.parkingsystem.service.LicensePlateObservationService;
+import com.example.parkingsystem.service.ObservationUploadFormat;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityManager;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
-import java.io.BufferedWriter;
-import java.io.File;
-import java.io.FileWriter;
 import java.io.IOException;
+import java.io.InputStream;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongConsumer;
+import java.util.stream.Stream;
 
 @Service
 public class LicensePlateObservationServiceImpl implements LicensePlateObservationService {
 	
 	private static final Logger logger = LoggerFactory.getLogger(LicensePlateObservationServiceImpl.class);
 	
+	private static final int LOOKUP_CHUNK_SIZE = 1000;
+	
+	// lower bound of the upload times before the first incremental run
+	private static final LocalDateTime FIRST_UPLOAD = LocalDateTime.of(1970, 1, 1, 0, 0);
+	
     private LicensePlateObservationRepository licensePlateObservationRepository;
     
+    private LicensePlateObservationBatchRepository licensePlateObservationBatchRepository;
+    
+    private ObjectMapper objectMapper;
+    
     private ParkingSessionRepository parkingSessionRepository;
     
-    public LicensePlateObservationServiceImpl(LicensePlateObservationRepository licensePlateObservationRepository, ParkingSessionRepository parkingSessionRepository) {
+    private ActiveSessionIndex activeSessionIndex;
+    
+    private SessionPlateFilter sessionPlateFilter;
+    
+    private UnregisteredPlatesReportWriter reportWriter;
+    
+    private EntityManager entityManager;
+    
+    private MeterRegistry meterRegistry;
+    
+    private EnforcementCheckpointRepository enforcementCheckpointRepository;
+    
+    private ParkingSessionBatchRepository parkingSessionBatchRepository;
+    
+    private TransactionTemplate transactionTemplate;
+    
+    private TransactionTemplate readOnlyTransactionTemplate;
+    
+    @Value("${parkingsystem.ingest.batch-size}")
+    private int ingestBatchSize = 1000;
+    
+    @Value("${parkingsystem.observations.retention}")
+    private Duration observationRetention;
+    
+    @Value("${parkingsystem.timezone}")
+    private String timezone;
+    
+    @Value("${parkingsystem.enforcement.parallelism}")
+    private int enforcementParallelism = 1;
+    
+    @Value("${parkingsystem.enforcement.time-window}")
+    private boolean timeWindowMatching = true;
+    
+    @Value("${parkingsystem.enforcement.incremental.lag}")
+    private Duration incrementalLag = Duration.ofMinutes(15);
+    
+    @Value("${parkingsystem.enforcement.incremental.max-batches}")
+    private int incrementalMaxBatches = 100;
+    
+    private ForkJoinPool enforcementPool;
+    
+    public LicensePlateObservationServiceImpl(LicensePlateObservationRepository licensePlateObservationRepository, LicensePlateObservationBatchRepository licensePlateObservationBatchRepository, ObjectMapper objectMapper,
+    		ParkingSessionRepository parkingSessionRepository, ActiveSessionIndex activeSessionIndex, UnregisteredPlatesReportWriter reportWriter, EntityManager entityManager,
+    		MeterRegistry meterRegistry, SessionPlateFilter sessionPlateFilter, EnforcementCheckpointRepository enforcementCheckpointRepository,
+    		ParkingSessionBatchRepository parkingSessionBatchRepository, PlatformTransactionManager transactionManager) {
     	this.licensePlateObservationRepository = licensePlateObservationRepository;
+    	this.licensePlateObservationBatchRepository = licensePlateObservationBatchRepository;
+    	this.objectMapper = objectMapper;
     	this.parkingSessionRepository = parkingSessionRepository;
+    	this.activeSessionIndex = activeSessionIndex;
+    	this.reportWriter = reportWriter;
+    	this.entityManager = entityManager;
+    	this.meterRegistry = meterRegistry;
+    	this.sessionPlateFilter = sessionPlateFilter;
+    	this.enforcementCheckpointRepository = enforcementCheckpointRepository;
+    	this.parkingSessionBatchRepository = parkingSessionBatchRepository;
+    	this.transactionTemplate = new TransactionTemplate(transactionManager);
+    	this.readOnlyTransactionTemplate = new TransactionTemplate(transactionManager);
+    	this.readOnlyTransactionTemplate.setReadOnly(true);
+    }
+    
+    /*
+     * Creates the bounded pool of the parallel enforcement mode, the sequential mode runs on the caller's thread
+     */
+    @PostConstruct
+    public void init() {
+    	if (enforcementParallelism > 1) {
+    		enforcementPool = new ForkJoinPool(enforcementParallelism);
+    		logger.info("Unregistered plates are checked in {} partitions in parallel", enforcementParallelism);
+    	}
+    }
+    
+    @PreDestroy
+    public void shutdown() {
+    	if (enforcementPool != null) {
+    		enforcementPool.shutdown();
+    	}
     }
     
     /*
-     * Uploads the license plate data observed during scan
+     * Uploads the license plate data observed during scan as a new upload batch, appended to the existing observations
      * @param observations - list of observed license plate data 
+     * @return ObservationUploadResult - id of the upload batch and number of observations stored
      */
     @Override
-	public void uploadObservations(List<LicensePlateObservation> observations) {
-    	//Clear old data before uploading
-    	licensePlateObservationRepository.deleteAll();
-    	logger.info("Observed license plates details are : {}", observations);
+	public ObservationUploadResult uploadObservations(List<LicensePlateObservation> observations) {
+    	long startNanos = System.nanoTime();
+    	String batchId = UUID.randomUUID().toString();
+    	LocalDateTime uploadedAt = LocalDateTime.now(ZoneId.of(timezone));
+    	observations.forEach(observation -> tagObservation(observation, batchId, uploadedAt));
     	licensePlateObservationRepository.saveAll(observations);
+    	recordIngestBatch("json", observations.size());
+    	recordUpload("json", observations.size(), startNanos);
+    	logger.info("Number of observed license plates uploaded in batch {} : {}", batchId, observations.size());
+    	return new ObservationUploadResult(batchId, observations.size());
     }
 
     /*
-     * Generate a report of unregistered license plates
+     * Uploads the license plate data observed during scan as a stream of records, written in JDBC batches
+     * and appended to the existing observations as a new upload batch
+     * @param input - stream of observation records
+     * @param format - record format of the stream
+     * @return ObservationUploadResult - id of the upload batch and number of observations stored
+     * @throws RuntimeException, if the stream cannot be read or a record is malformed
      */
     @Override
-	@Scheduled(cron = "${parkingsystem.cron.unregistered.plates}")
+    @Transactional
+	public ObservationUploadResult uploadObservations(InputStream input, ObservationUploadFormat format) {
+    	return uploadObservations(input, format, uploaded -> {});
+    }
+    
+    /*
+     * Uploads a stream of observation records, reporting the progress after every JDBC batch
+     * @param input - stream of observation records
+     * @param format - record format of the stream
+     * @param progress - receives the number of observations written so far
+     * @return ObservationUploadResult - id of the upload batch and number of observations stored
+     * @throws RuntimeException, if the stream cannot be read or a record is malformed
+     */
+    @Override
+    @Transactional
+	public ObservationUploadResult uploadObservations(InputStream input, ObservationUploadFormat format, LongConsumer progress) {
+    	long startNanos = System.nanoTime();
+    	String formatTag = format.name().toLowerCase();
+    	String batchId = UUID.randomUUID().toString();
+    	LocalDateTime uploadedAt = LocalDateTime.now(ZoneId.of(timezone));
+    	long uploaded = 0;
+    	List<LicensePlateObservation> batch = new ArrayList<>(ingestBatchSize);
+    	try (ObservationRecordReader reader = new ObservationRecordReader(input, format, objectMapper)) {
+    		LicensePlateObservation observation;
+    		while ((observation = reader.next()) != null) {
+    			batch.add(tagObservation(observation, batchId, uploadedAt));
+    			if (batch.size() == ingestBatchSize) {
+    				licensePlateObservationBatchRepository.insertAll(batch);
+    				recordIngestBatch(formatTag, batch.size());
+    				uploaded += batch.size();
+    				progress.accept(uploaded);
+    				batch.clear();
+    			}
+    		}
+    		if (!batch.isEmpty()) {
+    			licensePlateObservationBatchRepository.insertAll(batch);
+    			recordIngestBatch(formatTag, batch.size());
+    			uploaded += batch.size();
+    			progress.accept(uploaded);
+    		}
+    	} catch (IOException e) {
+    		logger.error("Failed to read observations: " + e.getMessage());
+    		throw new RuntimeException("Failed to read observations: " + e.getMessage());
+    	}
+    	recordUpload(formatTag, uploaded, startNanos);
+    	logger.info("Number of observed license plates uploaded in batch {} : {}", batchId, uploaded);
+    	return new ObservationUploadResult(batchId, uploaded);
+    }
+    
+    private void recordIngestBatch(String format, int size) {
+    	DistributionSummary.builder("parking.ingest.batch.size")
+    			.description("Observations written per ingest batch")
+    			.baseUnit("observations")
+    			.tag("format", format)
+    			.register(meterRegistry)
+    			.record(size);
+    }
+    
+    /*
+     * Records the duration of an upload and the number of observations stored, the ingest rate is the rate of the counter
+     */
+    private void recordUpload(String format, long observations, long startNanos) {
+    	Timer.builder("parking.ingest.upload")
+    			.description("Duration of an observation upload")
+    			.tag("format", format)
+    			.register(meterRegistry)
+    			.record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    	Counter.builder("parking.ingest.observations")
+    			.description("Observations stored by uploads")
+    			.baseUnit("observations")
+    			.tag("format", format)
+    			.register(meterRegistry)
+    			.increment(observations);
+    }
+    
+    private LicensePlateObservation tagObservation(LicensePlateObservation observation, String batchId, LocalDateTime uploadedAt) {
+    	observation.setUploadBatchId(batchId);
+    	observation.setUploadedAt(uploadedAt);
+    	return observation;
+    }
+
+    /*
+     * Generate a report of unregistered license plates, re-checking every observation
+     */
+    @Override
+    @Transactional(readOnly = true)
     public void identifyUnregisteredPlates() {
     	logger.info("Scheduler starting to check for any unregistered plates");
-    	List<LicensePlateObservation> unregisteredPlates = licensePlateObservationRepository.findAll().stream()
-                .filter(data -> parkingSessionRepository.findByLicensePlateAndIsActive(data.getLicensePlate(), false).isPresent())
-                .toList();
-    	logger.info("Unregistered plates are : {}", unregisteredPlates);
-    	// Generate and write the report to a file
-        writeReportToFile(unregisteredPlates);
+    	try (Stream<LicensePlateObservation> observations = licensePlateObservationRepository.streamAllByOrderByIdAsc()) {
+    		// Generate and write the report to a file
+    		writeReport(observations, "all");
+    	}
+    }
+
+    /*
+     * Generate a report of unregistered license plates for the upload batches not checked by a previous incremental run.
+     * Batches are found from the upload time of the latest checked batch minus the configured lag, which covers uploads
+     * that committed after a later upload was checked, so a run reads the new observations only and never the whole table.
+     * Each run publishes its own report and records a checkpoint per checked batch once the report is published.
+     * At most the configured number of batches are checked per run, the next run continues with the rest.
+     * The batches are read and the report is written in a read-only transaction, the checkpoints are stored afterwards
+     * in their own short transaction, so no write transaction stays open while the report is written.
+     */
+    @Override
+	@Scheduled(cron = "${parkingsystem.cron.unregistered.plates}")
+    public void identifyNewUnregisteredPlates() {
+    	List<EnforcementCheckpoint> batches = readOnlyTransactionTemplate.execute(status -> checkNewUploadBatches());
+    	if (batches.isEmpty()) {
+    		return;
+    	}
+    	LocalDateTime checkedAt = LocalDateTime.now(ZoneId.of(timezone));
+    	transactionTemplate.executeWithoutResult(status -> {
+    		for (EnforcementCheckpoint checkpoint : batches) {
+    			checkpoint.setCheckedAt(checkedAt);
+    			entityManager.persist(checkpoint);
+    		}
+    	});
+    }
+    
+    /*
+     * Writes the report of the unchecked upload batches
+     * @return the checked upload batches, empty if there are none or the report has not been published
+     */
+    private List<EnforcementCheckpoint> checkNewUploadBatches() {
+    	LocalDateTime uploadedSince = enforcementCheckpointRepository.findLatestUploadedAt()
+    			.map(latest -> latest.minus(incrementalLag))
+    			.orElse(FIRST_UPLOAD);
+    	List<EnforcementCheckpoint> batches = licensePlateObservationRepository.findUncheckedUploadBatches(uploadedSince, PageRequest.of(0, incrementalMaxBatches));
+    	if (batches.isEmpty()) {
+    		logger.debug("No new upload batches uploaded since {}", uploadedSince);
+    		return List.of();
+    	}
+    	logger.info("Checking {} new upload batches for any unregistered plates", batches.size());
+    	List<String> batchIds = batches.stream().map(EnforcementCheckpoint::getUploadBatchId).toList();
+    	try (Stream<LicensePlateObservation> observations = licensePlateObservationRepository.streamByUploadBatchIdInOrderByIdAsc(batchIds)) {
+    		return writeReport(observations, "incremental") ? batches : List.of();
+    	}
+    }
+
+    /*
+     * Generate a report of unregistered license plates for the given upload batches only
+     * @param batchIds - ids of the upload batches to check
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public void identifyUnregisteredPlates(Collection<String> batchIds) {
+    	logger.info("Checking upload batches {} for any unregistered plates", batchIds);
+    	try (Stream<LicensePlateObservation> observations = licensePlateObservationRepository.streamByUploadBatchIdInOrderByIdAsc(batchIds)) {
+    		writeReport(observations, "batches");
+    	}
+    }
+    
+    /*
+     * Reads the observations from the cursor in chunks of LOOKUP_CHUNK_SIZE (one per partition in the parallel mode) and writes
+     * the unregistered plates of each chunk to a new report, so memory use does not depend on the number of observations or violations
+     * @param observations - cursor over the observations to check
+     * @param scope - metric tag of the run, all observations, new upload batches or selected upload batches
+     * @return true if the report has been published
+     */
+    private boolean writeReport(Stream<LicensePlateObservation> observations, String scope) {
+    	long startNanos = System.nanoTime();
+    	long checked = 0;
+    	String outcome = "error";
+    	long unregistered = 0;
+    	try (UnregisteredPlatesReportWriter.Report report = reportWriter.open(LocalDateTime.now(ZoneId.of(timezone)))) {
+    		int chunkSize = enforcementPool == null ? LOOKUP_CHUNK_SIZE : LOOKUP_CHUNK_SIZE * enforcementParallelism;
+    		List<LicensePlateObservation> chunk = new ArrayList<>(chunkSize);
+    		Iterator<LicensePlateObservation> iterator = observations.iterator();
+    		while (iterator.hasNext()) {
+    			LicensePlateObservation observation = iterator.next();
+    			// keep the persistence context from growing with the cursor
+    			entityManager.detach(observation);
+    			chunk.add(observation);
+    			checked++;
+    			if (chunk.size() == chunkSize) {
+    				writeUnregisteredPlates(chunk, report);
+    				chunk.clear();
+    			}
+    		}
+    		writeUnregisteredPlates(chunk, report);
+    		report.commit();
+    		unregistered = report.getEntries();
+    		outcome = "success";
+    	} catch (IOException e) {
+    		logger.error("Failed to write report file: " + e.getMessage());
+    	} finally {
+    		recordEnforcementRun(scope, outcome, System.nanoTime() - startNanos, checked, unregistered);
+    	}
+    	return outcome.equals("success");
+    }
+    
+    /*
+     * Records the duration of an enforcement run with the number of observations checked and unregistered plates reported
+     */
+    private void recordEnforcementRun(String scope, String outcome, long durationNanos, long checked, long unregistered) {
+    	Timer.builder("parking.enforcement.run")
+    			.description("Duration of an unregistered plates run")
+    			.tag("scope", scope)
+    			.tag("outcome", outcome)
+    			.register(meterRegistry)
+    			.record(durationNanos, TimeUnit.NANOSECONDS);
+    	DistributionSummary.builder("parking.enforcement.observations")
+    			.description("Observations checked per unregistered plates run")
+    			.baseUnit("observations")
+    			.tag("scope", scope)
+    			.register(meterRegistry)
+    			.record(checked);
+    	DistributionSummary.builder("parking.enforcement.unregistered")
+    			.description("Unregistered plates reported per unregistered plates run")
+    			.baseUnit("observations")
+    			.tag("scope", scope)
+    			.register(meterRegistry)
+    			.record(unregistered);
+    	logger.info("Unregistered plates run ({}) checked {} observations and reported {} in {} ms", scope, checked, unregistered, TimeUnit.NANOSECONDS.toMillis(durationNanos));
+    }
+    
+    private void writeUnregisteredPlates(List<LicensePlateObservation> observations, UnregisteredPlatesReportWriter.Report report) throws IOException {
+    	List<LicensePlateObservation> unregistered = enforcementPool == null ? filterUnregisteredPlates(observations) : filterUnregisteredPlatesInParallel(observations);
+    	for (LicensePlateObservation data : unregistered) {
+    		report.write(data);
+    	}
+    }
+    
+    /*
+     * Splits the observations by license plate hash into one partition per thread of the enforcement pool and checks the
+     * partitions concurrently, each with its own bulk session lookups. All observations of a plate fall in the same partition.
+     * @param observations - observations to check
+     * @return the observations of unregistered plates, in the order they were given as in the sequential mode
+     */
+    private List<LicensePlateObservation> filterUnregisteredPlatesInParallel(List<LicensePlateObservation> observations) {
+    	List<List<LicensePlateObservation>> partitions = new ArrayList<>(enforcementParallelism);
+    	for (int i = 0; i < enforcementParallelism; i++) {
+    		partitions.add(new ArrayList<>(observations.size() / enforcementParallelism + 1));
+    	}
+    	for (LicensePlateObservation observation : observations) {
+    		partitions.get(Math.floorMod(Objects.hashCode(observation.getLicensePlate()), enforcementParallelism)).add(observation);
+    	}
+    	List<ForkJoinTask<List<LicensePlateObservation>>> tasks = new ArrayList<>(enforcementParallelism);
+    	for (List<LicensePlateObservation> partition : partitions) {
+    		if (!partition.isEmpty()) {
+    			tasks.add(enforcementPool.submit(() -> filterUnregisteredPlates(partition)));
+    		}
+    	}
+    	// merge the partitions back into the cursor order
+    	Set<LicensePlateObservation> unregistered = Collections.newSetFromMap(new IdentityHashMap<>());
+    	for (ForkJoinTask<List<LicensePlateObservation>> task : tasks) {
+    		unregistered.addAll(task.join());
+    	}
+    	return observations.stream()
+    			.filter(unregistered::contains)
+    			.toList();
+    }
+
+    /*
+     * Returns the observations of unregistered plates, in the order they were given, matched against the sessions live at
+     * the observation time or, with time-window matching disabled, by whether the plate has an ended session
+     * @param observations - observations to check
+     */
+    private List<LicensePlateObservation> filterUnregisteredPlates(List<LicensePlateObservation> observations) {
+    	return timeWindowMatching ? filterUncoveredObservations(observations) : filterPlatesWithEndedSession(observations);
     }
     
-    private void writeReportToFile(List<LicensePlateObservation> unregisteredPlates) {
-        File reportFile = new File("unregistered_plates_report.txt");
+    /*
+     * Returns the observations not covered by a parking session of their plate at the observation time, so a late upload
+     * is judged by the sessions of that moment and not by the current ones. Observations after the start of the plate's
+     * current session in the active session index, and observations of plates the session plate filter rules out, which
+     * never had a session to be covered by, are resolved without a query. The sessions of the remaining plates
+     * overlapping the observation times are read in a single query and indexed per plate, after which every observation
+     * is matched in logarithmic time. An observation without an observation time is matched at the time of the run.
+     * @param observations - observations to check
+     * @return the uncovered observations, in the order they were given
+     */
+    private List<LicensePlateObservation> filterUncoveredObservations(List<LicensePlateObservation> observations) {
+    	LocalDateTime runTime = LocalDateTime.now(ZoneId.of(timezone));
+    	List<LicensePlateObservation> candidates = new ArrayList<>();
+    	Set<String> unresolvedPlates = new HashSet<>();
+    	LocalDateTime from = null;
+    	LocalDateTime to = null;
+    	for (LicensePlateObservation observation : observations) {
+    		if (observation.getLicensePlate() == null) {
+    			candidates.add(observation);
+    			continue;
+    		}
+    		LocalDateTime observedAt = observedAt(observation, runTime);
+    		ParkingSession activeSession = activeSessionIndex.get(observation.getLicensePlate());
+    		if (activeSession != null && !activeSession.getStartTime().isAfter(observedAt)) {
+    			continue;
+    		}
+    		candidates.add(observation);
+    		if (!sessionPlateFilter.mightContain(observation.getLicensePlate())) {
+    			continue;
+    		}
+    		unresolvedPlates.add(observation.getLicensePlate());
+    		from = from == null || observedAt.isBefore(from) ? observedAt : from;
+    		to = to == null || observedAt.isAfter(to) ? observedAt : to;
+    	}
+    	if (unresolvedPlates.isEmpty()) {
+    		return candidates;
+    	}
+    	SessionIntervalIndex sessionIntervals = SessionIntervalIndex.build(parkingSessionBatchRepository.findSessionsOverlapping(unresolvedPlates, from, to));
+    	return candidates.stream()
+    			.filter(observation -> !sessionIntervals.covers(observation.getLicensePlate(), observedAt(observation, runTime)))
+    			.toList();
+    }
+    
+    private static LocalDateTime observedAt(LicensePlateObservation observation, LocalDateTime runTime) {
+    	return observation.getObservationTime() != null ? observation.getObservationTime() : runTime;
+    }
 
-        try (BufferedWriter writer = new BufferedWriter(new FileWriter(reportFile))) {
-            writer.write("Unregistered Plates Report\n");
-            writer.write("==========================\n");
+    /*
+     * Returns the observations whose license plate has an ended parking session. Plates with an ended session in the
+     * active session index and plates the session plate filter rules out are resolved without a query, the remaining
+     * plates are checked against the database in bulk.
+     * @param observations - observations to check
+     * @return the observations of unregistered plates, in the order they were given
+     */
+    private List<LicensePlateObservation> filterPlatesWithEndedSession(List<LicensePlateObservation> observations) {
+    	Set<String> endedPlates = new HashSet<>();
+    	Set<String> unresolvedPlates = new HashSet<>();
+    	for (LicensePlateObservation observation : observations) {
+    		String licensePlate = observation.getLicensePlate();
+    		if (licensePlate == null || endedPlates.contains(licensePlate)) {
+    			continue;
+    		}
+    		if (activeSessionIndex.hasEndedSession(licensePlate)) {
+    			endedPlates.add(licensePlate);
+    		} else if (sessionPlateFilter.mightContain(licensePlate)) {
+    			// a plate without any session cannot have an ended one
+    			unresolvedPlates.add(licensePlate);
+    		}
+    	}
+    	endedPlates.addAll(findEndedLicensePlates(unresolvedPlates));
+    	return observations.stream()
+    			.filter(observation -> endedPlates.contains(observation.getLicensePlate()))
+    			.toList();
+    }
+    
+    /*
+     * Returns which of the given license plates have an ended parking session, querying in chunks of LOOKUP_CHUNK_SIZE plates
+     */
+    private Set<String> findEndedLicensePlates(Collection<String> licensePlates) {
+    	Set<String> endedPlates = new HashSet<>();
+    	List<String> chunk = new ArrayList<>(LOOKUP_CHUNK_SIZE);
+    	for (String licensePlate : licensePlates) {
+    		chunk.add(licensePlate);
+    		if (chunk.size() == LOOKUP_CHUNK_SIZE) {
+    			endedPlates.addAll(parkingSessionRepository.findEndedLicensePlates(chunk));
+    			chunk.clear();
+    		}
+    	}
+    	if (!chunk.isEmpty()) {
+    		endedPlates.addAll(parkingSessionRepository.findEndedLicensePlates(chunk));
+    	}
+    	return endedPlates;
+    }
 
-            for (LicensePlateObservation data : unregisteredPlates) {
-                writer.write(String.format(
-                    "License Plate: %s, Street: %s, Date: %s\n",
-                    data.getLicensePlate(),
-                    data.getStreetName(),
-                    data.getObservationTime()
-                ));
-            }
+    /*
+     * Removes observations in bulk, by upload batch and/or by upload time
+     * @param batchIds - ids of the upload batches to remove, may be empty
+     * @param uploadedBefore - removes every observation uploaded before this time, may be null
+     * @return the number of observations removed
+     */
+    @Override
+    @Transactional
+    public int deleteObservations(Collection<String> batchIds, LocalDateTime uploadedBefore) {
+    	int deleted = 0;
+    	if (batchIds != null && !batchIds.isEmpty()) {
+    		deleted += licensePlateObservationRepository.deleteByUploadBatchIds(batchIds);
+    	}
+    	if (uploadedBefore != null) {
+    		deleted += licensePlateObservationRepository.deleteUploadedBefore(uploadedBefore);
+    	}
+    	logger.info("Number of observations removed : {}", deleted);
+    	return deleted;
+    }
 
-            logger.info("Report generated: {}", reportFile.getAbsolutePath());
-        } catch (IOException e) {
-        	logger.error("Failed to write report file: " + e.getMessage());
-        }
+    /*
+     * Removes the observations older than the configured retention period
+     */
+    @Override
+    @Transactional
+    @Scheduled(cron = "${parkingsystem.cron.observations.retention}")
+    public void purgeExpiredObservations() {
+    	LocalDateTime uploadedBefore = LocalDateTime.now(ZoneId.of(timezone)).minus(observationRetention);
+    	int deleted = licensePlateObservationRepository.deleteUploadedBefore(uploadedBefore);
+    	// the checkpoints of the removed batches are no longer needed to skip them
+    	enforcementCheckpointRepository.deleteUploadedBefore(uploadedBefore);
+    	logger.info("Number of observations uploaded before {} removed : {}", uploadedBefore, deleted);
     }
-}
\ No newline at end of file
+}
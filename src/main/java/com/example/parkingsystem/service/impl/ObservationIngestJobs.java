@@ -0,0 +1,286 @@
+package com.example.parkingsystem.service.impl;
+
+import com.example.parkingsystem.dto.IngestJobStatus;
+import com.example.parkingsystem.dto.ObservationUploadResult;
+import com.example.parkingsystem.exception.NotFoundException;
+import com.example.parkingsystem.exception.ServiceUnavailableException;
+import com.example.parkingsystem.service.LicensePlateObservationService;
+import com.example.parkingsystem.service.ObservationUploadFormat;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/*
+ * Runs streaming observation uploads as background jobs. The request body is spooled to a file and the request is
+ * answered right away, the file is then parsed and stored by one of a fixed number of workers.
+ * - backpressure: jobs wait in a bounded queue, a job is rejected when the queue is full. Every running job holds one
+ *   pooled connection, so the number of workers bounds the connections uploads take from the session requests.
+ * - status: the state and progress of a job are kept in memory until job-retention after it has finished, and are lost
+ *   on restart together with the jobs still queued. The state is published together with its times and result, so a
+ *   finished job is never reported as running.
+ */
+@Component
+public class ObservationIngestJobs {
+
+	private static final Logger logger = LoggerFactory.getLogger(ObservationIngestJobs.class);
+
+	private static final long SHUTDOWN_TIMEOUT_SECONDS = 30;
+
+	private final LicensePlateObservationService licensePlateObservationService;
+
+	private final MeterRegistry meterRegistry;
+
+	private final Map<String, IngestJob> jobs = new ConcurrentHashMap<>();
+
+	@Value("${parkingsystem.ingest.jobs.workers}")
+	private int workers = 2;
+
+	@Value("${parkingsystem.ingest.jobs.queue-capacity}")
+	private int queueCapacity = 16;
+
+	@Value("${parkingsystem.ingest.jobs.spool-dir}")
+	private String spoolDir;
+
+	@Value("${parkingsystem.ingest.jobs.job-retention}")
+	private Duration jobRetention = Duration.ofHours(1);
+
+	@Value("${parkingsystem.timezone}")
+	private String timezone;
+
+	@Value("${spring.threads.virtual.enabled}")
+	private boolean virtualThreads;
+
+	private ThreadPoolExecutor executor;
+
+	public ObservationIngestJobs(LicensePlateObservationService licensePlateObservationService, MeterRegistry meterRegistry) {
+		this.licensePlateObservationService = licensePlateObservationService;
+		this.meterRegistry = meterRegistry;
+	}
+
+	/*
+	 * Creates the worker pool, on virtual threads in the virtual thread mode. The pool size still bounds the running jobs
+	 * and thus the connections they hold.
+	 */
+	@PostConstruct
+	public void init() {
+		AtomicInteger threads = new AtomicInteger();
+		ThreadFactory threadFactory = virtualThreads ? Thread.ofVirtual().name("observation-ingest-", 1).factory()
+				: task -> new Thread(task, "observation-ingest-" + threads.incrementAndGet());
+		executor = new ThreadPoolExecutor(workers, workers, 0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(queueCapacity),
+				threadFactory, new ThreadPoolExecutor.AbortPolicy());
+		Gauge.builder("parking.ingest.jobs.queued", executor, pool -> pool.getQueue().size())
+				.description("Ingest jobs waiting for a worker")
+				.register(meterRegistry);
+		Gauge.builder("parking.ingest.jobs.running", executor, ThreadPoolExecutor::getActiveCount)
+				.description("Ingest jobs being processed")
+				.register(meterRegistry);
+	}
+
+	/*
+	 * Stops accepting jobs and waits a bounded time for the queued ones
+	 */
+	@PreDestroy
+	public void shutdown() throws InterruptedException {
+		executor.shutdown();
+		if (!executor.awaitTermination(SHUTDOWN_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+			logger.warn("Ingest jobs still queued or running at shutdown are abandoned : {}", executor.shutdownNow().size());
+		}
+	}
+
+	/*
+	 * Spools the upload and queues it as a new job
+	 * @param input - stream of observation records
+	 * @param format - record format of the stream
+	 * @return IngestJobStatus - the queued job
+	 * @throws ServiceUnavailableException, if the queue is full
+	 * @throws RuntimeException, if the upload cannot be spooled
+	 */
+	public IngestJobStatus submit(InputStream input, ObservationUploadFormat format) {
+		evictFinishedJobs();
+		if (executor.getQueue().remainingCapacity() == 0) {
+			// rejected before the body is spooled
+			throw rejected();
+		}
+		Path spool = null;
+		try {
+			spool = Files.createTempFile(getSpoolDir(), "observations-", "." + format.name().toLowerCase());
+			long bytes = Files.copy(input, spool, StandardCopyOption.REPLACE_EXISTING);
+			IngestJob job = new IngestJob(UUID.randomUUID().toString(), format, bytes, now());
+			jobs.put(job.jobId, job);
+			Path file = spool;
+			try {
+				executor.execute(() -> run(job, file));
+			} catch (RejectedExecutionException e) {
+				jobs.remove(job.jobId);
+				throw rejected();
+			}
+			spool = null;
+			meterRegistry.counter("parking.ingest.jobs", "outcome", "accepted").increment();
+			logger.info("Ingest job {} queued with {} bytes of {}", job.jobId, bytes, format);
+			return job.status();
+		} catch (IOException e) {
+			logger.error("Failed to spool observations: " + e.getMessage());
+			throw new RuntimeException("Failed to spool observations: " + e.getMessage());
+		} finally {
+			if (spool != null) {
+				deleteSpool(spool);
+			}
+		}
+	}
+
+	/*
+	 * Returns the state and progress of a job
+	 * @param jobId - id of the job
+	 * @return IngestJobStatus - current state of the job
+	 * @throws NotFoundException, if no job found for the id, or it finished longer than job-retention ago
+	 */
+	public IngestJobStatus getStatus(String jobId) {
+		IngestJob job = jobId == null ? null : jobs.get(jobId);
+		if (job == null) {
+			throw new NotFoundException("No ingest job found for job id: " + jobId);
+		}
+		return job.status();
+	}
+
+	private void run(IngestJob job, Path spool) {
+		LocalDateTime startedAt = now();
+		job.phase = new Phase(IngestJobStatus.State.RUNNING, startedAt, null, null, null);
+		try (InputStream input = new CountingInputStream(Files.newInputStream(spool), job)) {
+			ObservationUploadResult result = licensePlateObservationService.uploadObservations(input, job.format, uploaded -> job.observations = uploaded);
+			job.observations = result.getObservations();
+			job.phase = new Phase(IngestJobStatus.State.SUCCEEDED, startedAt, now(), result.getBatchId(), null);
+			logger.info("Ingest job {} stored {} observations in batch {}", job.jobId, result.getObservations(), result.getBatchId());
+		} catch (IOException | RuntimeException e) {
+			job.phase = new Phase(IngestJobStatus.State.FAILED, startedAt, now(), null, e.getMessage());
+			logger.error("Ingest job {} failed: {}", job.jobId, e.getMessage());
+		} finally {
+			deleteSpool(spool);
+			meterRegistry.counter("parking.ingest.jobs", "outcome", job.phase.state() == IngestJobStatus.State.SUCCEEDED ? "succeeded" : "failed").increment();
+		}
+	}
+
+	private ServiceUnavailableException rejected() {
+		meterRegistry.counter("parking.ingest.jobs", "outcome", "rejected").increment();
+		logger.warn("Ingest job rejected, {} jobs queued", executor.getQueue().size());
+		return new ServiceUnavailableException("Ingest queue is full, try again later");
+	}
+
+	private void evictFinishedJobs() {
+		LocalDateTime finishedBefore = now().minus(jobRetention);
+		jobs.values().removeIf(job -> job.phase.finishedAt() != null && job.phase.finishedAt().isBefore(finishedBefore));
+	}
+
+	private void deleteSpool(Path spool) {
+		try {
+			Files.deleteIfExists(spool);
+		} catch (IOException e) {
+			logger.warn("Spooled upload not deleted : {}", spool);
+		}
+	}
+
+	private Path getSpoolDir() throws IOException {
+		if (spoolDir == null || spoolDir.isBlank()) {
+			return Path.of(System.getProperty("java.io.tmpdir"));
+		}
+		return Files.createDirectories(Path.of(spoolDir));
+	}
+
+	private LocalDateTime now() {
+		return LocalDateTime.now(ZoneId.of(timezone));
+	}
+
+	/*
+	 * Progress of a job, written by its worker only
+	 */
+	private static final class IngestJob {
+
+		private final String jobId;
+
+		private final ObservationUploadFormat format;
+
+		private final long bytesTotal;
+
+		private final LocalDateTime submittedAt;
+
+		private volatile Phase phase = new Phase(IngestJobStatus.State.QUEUED, null, null, null, null);
+
+		private volatile long bytesRead;
+
+		private volatile long observations;
+
+		private IngestJob(String jobId, ObservationUploadFormat format, long bytesTotal, LocalDateTime submittedAt) {
+			this.jobId = jobId;
+			this.format = format;
+			this.bytesTotal = bytesTotal;
+			this.submittedAt = submittedAt;
+		}
+
+		private IngestJobStatus status() {
+			// read first, the final progress is written before a finished phase
+			Phase current = phase;
+			return new IngestJobStatus(jobId, current.state(), format.name(), submittedAt, current.startedAt(), current.finishedAt(),
+					bytesTotal, bytesRead, observations, current.batchId(), current.error());
+		}
+	}
+
+	/*
+	 * State of a job with the times and result that belong to it, replaced as a whole
+	 */
+	private record Phase(IngestJobStatus.State state, LocalDateTime startedAt, LocalDateTime finishedAt, String batchId, String error) {
+	}
+
+	private static final class CountingInputStream extends FilterInputStream {
+
+		private final IngestJob job;
+
+		private CountingInputStream(InputStream input, IngestJob job) {
+			super(input);
+			this.job = job;
+		}
+
+		@Override
+		public int read() throws IOException {
+			int read = super.read();
+			if (read >= 0) {
+				job.bytesRead++;
+			}
+			return read;
+		}
+
+		@Override
+		public int read(byte[] buffer, int offset, int length) throws IOException {
+			int read = super.read(buffer, offset, length);
+			if (read > 0) {
+				job.bytesRead += read;
+			}
+			return read;
+		}
+	}
+}
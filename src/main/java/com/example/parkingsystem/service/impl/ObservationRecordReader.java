@@ -0,0 +1,89 @@
+package com.example.parkingsystem.service.impl;
+
+import com.example.parkingsystem.entity.LicensePlateObservation;
+import com.example.parkingsystem.service.ObservationUploadFormat;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+
+/*
+ * Reads license plate observations one record at a time from an NDJSON or CSV stream,
+ * so an upload never has to be held in memory as a whole
+ */
+class ObservationRecordReader implements Closeable {
+
+	private static final String CSV_HEADER_START = "licensePlate";
+
+	private final MappingIterator<LicensePlateObservation> jsonRecords;
+
+	private final BufferedReader csvLines;
+
+	private long lineNumber;
+
+	ObservationRecordReader(InputStream input, ObservationUploadFormat format, ObjectMapper objectMapper) throws IOException {
+		if (format == ObservationUploadFormat.NDJSON) {
+			this.jsonRecords = objectMapper.readerFor(LicensePlateObservation.class).readValues(input);
+			this.csvLines = null;
+		} else {
+			this.jsonRecords = null;
+			this.csvLines = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8));
+		}
+	}
+
+	/*
+	 * Returns the next observation
+	 * @return the next observation or null at the end of the stream
+	 * @throws RuntimeException, if a record is malformed
+	 */
+	LicensePlateObservation next() throws IOException {
+		if (jsonRecords != null) {
+			lineNumber++;
+			try {
+				return jsonRecords.hasNextValue() ? jsonRecords.nextValue() : null;
+			} catch (IOException e) {
+				throw new RuntimeException("Malformed observation record " + lineNumber + ": " + e.getMessage());
+			}
+		}
+		String line;
+		while ((line = csvLines.readLine()) != null) {
+			lineNumber++;
+			if (!line.isBlank() && !(lineNumber == 1 && line.startsWith(CSV_HEADER_START))) {
+				return parseCsvLine(line);
+			}
+		}
+		return null;
+	}
+
+	private LicensePlateObservation parseCsvLine(String line) {
+		String[] fields = line.split(",", -1);
+		if (fields.length != 3) {
+			throw new RuntimeException("Malformed observation record " + lineNumber + ": expected 3 fields but found " + fields.length);
+		}
+		LicensePlateObservation observation = new LicensePlateObservation();
+		observation.setLicensePlate(fields[0].trim());
+		observation.setStreetName(fields[1].trim());
+		try {
+			observation.setObservationTime(LocalDateTime.parse(fields[2].trim()));
+		} catch (DateTimeParseException e) {
+			throw new RuntimeException("Malformed observation record " + lineNumber + ": invalid observation time " + fields[2].trim());
+		}
+		return observation;
+	}
+
+	@Override
+	public void close() throws IOException {
+		if (jsonRecords != null) {
+			jsonRecords.close();
+		} else {
+			csvLines.close();
+		}
+	}
+}
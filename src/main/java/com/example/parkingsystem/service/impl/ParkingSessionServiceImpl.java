@@ -1,148 +1,628 @@
 package com.example.parkingsystem.service.impl;
 
-import com.example.parkingsystem.config.FreeParkingTimingConfig;
-import com.example.parkingsystem.config.HolidayConfig;
-import com.example.parkingsystem.config.StreetParkingPricing;
+import com.example.parkingsystem.config.StreetPricing;
+import com.example.parkingsystem.config.StreetPricingConfig;
+import com.example.parkingsystem.config.TariffCalendarConfig;
+import com.example.parkingsystem.dto.SessionCommand;
+import com.example.parkingsystem.dto.SessionCommandResult;
+import com.example.parkingsystem.dto.SessionHistoryEntry;
+import com.example.parkingsystem.dto.SessionHistoryQuery;
+import com.example.parkingsystem.dto.SessionQuote;
 import com.example.parkingsystem.entity.ParkingSession;
+import com.example.parkingsystem.exception.NotFoundException;
+import com.example.parkingsystem.repository.ParkingSessionArchiveRepository;
+import com.example.parkingsystem.repository.ParkingSessionBatchRepository;
 import com.example.parkingsystem.repository.ParkingSessionRepository;
 import com.example.parkingsystem.service.ParkingSessionService;
 
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
-import java.time.LocalDate;
+import java.time.Clock;
+import java.time.Duration;
 import java.time.LocalDateTime;
-import java.time.LocalTime;
-import java.time.ZoneId;
 import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
 
 @Service
 public class ParkingSessionServiceImpl implements ParkingSessionService {
 	
     private static final Logger logger = LoggerFactory.getLogger(ParkingSessionServiceImpl.class);
 
+    // street tag of the metrics of requests for a street that is not configured
+    private static final String UNKNOWN_STREET = "unknown";
+
+    private static final String ACTIVE_SESSION_EXISTS = "Active session already exists for license plate: ";
+
+    // bounds of the session history when the request gives no range
+    private static final LocalDateTime HISTORY_START = LocalDateTime.of(1970, 1, 1, 0, 0);
+
+    private static final LocalDateTime HISTORY_END = LocalDateTime.of(9999, 12, 31, 0, 0);
+
+    private static final Comparator<SessionHistoryEntry> HISTORY_ORDER = Comparator.comparing(SessionHistoryEntry::getStartTime).thenComparing(SessionHistoryEntry::getId);
+
     private ParkingSessionRepository parkingSessionRepository;
 
-    private StreetParkingPricing streetParkingPricingConfig;
+    private StreetPricingConfig streetPricingConfig;
 
-    private HolidayConfig holidayConfig;
+    private TariffCalendarConfig tariffCalendarConfig;
+    
+    private ActiveSessionIndex activeSessionIndex;
+    
+    private MeterRegistry meterRegistry;
+    
+    private ParkingSessionBatchRepository parkingSessionBatchRepository;
+    
+    private SessionLockStripes sessionLockStripes;
+    
+    private TransactionTemplate transactionTemplate;
+    
+    private SessionPlateFilter sessionPlateFilter;
+    
+    private SessionQuoteCache sessionQuoteCache;
     
-    private FreeParkingTimingConfig freeParkingTimingConfig;
+    private SessionWriteBehind sessionWriteBehind;
     
-    @Value("${parkingsystem.timezone}")
-    private String timezone;
+    private ParkingSessionArchiveRepository parkingSessionArchiveRepository;
     
-    public ParkingSessionServiceImpl(ParkingSessionRepository parkingSessionRepository, StreetParkingPricing streetParkingPricingConfig, HolidayConfig holidayConfig, FreeParkingTimingConfig freeParkingTimingConfig) {
+    // meters of the session operations by street tag, registered on first use
+    private final Map<String, StreetMeters> streetMeters = new ConcurrentHashMap<>();
+    
+    // source of the current time, read in the zone of the tariff calendar
+    private Clock clock = Clock.systemUTC();
+    
+    @Value("${parkingsystem.sessions.archive-after}")
+    private Duration archiveAfter;
+    
+    @Value("${parkingsystem.sessions.archive-batch-size}")
+    private int archiveBatchSize = 1000;
+    
+    @Value("${parkingsystem.sessions.history.page-size}")
+    private int historyPageSize = 500;
+    
+    public ParkingSessionServiceImpl(ParkingSessionRepository parkingSessionRepository, StreetPricingConfig streetPricingConfig, TariffCalendarConfig tariffCalendarConfig, ActiveSessionIndex activeSessionIndex,
+    		MeterRegistry meterRegistry, ParkingSessionBatchRepository parkingSessionBatchRepository, SessionLockStripes sessionLockStripes, TransactionTemplate transactionTemplate,
+    		SessionPlateFilter sessionPlateFilter, SessionQuoteCache sessionQuoteCache, SessionWriteBehind sessionWriteBehind,
+    		ParkingSessionArchiveRepository parkingSessionArchiveRepository) {
     	this.parkingSessionRepository = parkingSessionRepository;
-        this.streetParkingPricingConfig = streetParkingPricingConfig;
-        this.holidayConfig = holidayConfig;
-        this.freeParkingTimingConfig = freeParkingTimingConfig;
-        
+    	this.parkingSessionBatchRepository = parkingSessionBatchRepository;
+    	this.sessionLockStripes = sessionLockStripes;
+    	this.transactionTemplate = transactionTemplate;
+    	this.sessionPlateFilter = sessionPlateFilter;
+    	this.sessionQuoteCache = sessionQuoteCache;
+    	this.sessionWriteBehind = sessionWriteBehind;
+    	this.parkingSessionArchiveRepository = parkingSessionArchiveRepository;
+        this.streetPricingConfig = streetPricingConfig;
+        this.tariffCalendarConfig = tariffCalendarConfig;
+        this.activeSessionIndex = activeSessionIndex;
+        this.meterRegistry = meterRegistry;
     }
 
     /*
-     * Initiate the parking session
+     * Initiate the parking session. With write-behind enabled the session is queued and stored with the next group commit,
+     * a second session of the plate is then rejected by the active session index only.
      * @param licensePlate - licenseplate number
      * @param streetName - name of the street, where car is parked
      * @return ParkingSession - parking session object with all details mentioned in @see ParkingSession
-     * @throws RuntimeException, if invalid street name
+     * @throws RuntimeException, if invalid street name or the license plate already has an active session
      */
     @Override
 	public ParkingSession startSession(String licensePlate, String streetName) {
-        ParkingSession session = new ParkingSession();
-        session.setLicensePlate(licensePlate);
-        if(!getStreetConfig(streetName).isEmpty()) {
+    	Timer.Sample sample = Timer.start(meterRegistry);
+    	boolean succeeded = false;
+    	ReentrantLock lock = sessionLockStripes.lockFor(licensePlate);
+    	lock.lock();
+    	try {
+    		if (activeSessionIndex.get(licensePlate) != null) {
+    			logger.error("Active session already exists for : {}", licensePlate);
+    			throw new RuntimeException(ACTIVE_SESSION_EXISTS + licensePlate);
+    		}
+            ParkingSession session = new ParkingSession();
+            session.setLicensePlate(licensePlate);
+            StreetPricing streetPricing = streetPricingConfig.getStreetPricing();
+            getStreetId(streetPricing, streetName);
             session.setStreetName(streetName);
-        }
-        session.setStartTime(LocalDateTime.now(ZoneId.of(timezone)).truncatedTo(ChronoUnit.MINUTES));
-        session.setActive(true);
-       	logger.info("Parking session object with current time : {}", session);
-        return parkingSessionRepository.save(session);
+            session.setStartTime(LocalDateTime.now(clock.withZone(streetPricing.getTariffCalendar().getZoneId())).truncatedTo(ChronoUnit.MINUTES));
+            session.setActive(true);
+           	logger.debug("Parking session object with current time : {}", session);
+            // added before the write, enforcement must never read the committed session as a definite negative
+            sessionPlateFilter.add(licensePlate);
+            ParkingSession savedSession;
+            try {
+            	if (sessionWriteBehind.isEnabled()) {
+            		sessionWriteBehind.insert(session);
+            		savedSession = session;
+            	} else {
+            		savedSession = parkingSessionRepository.save(session);
+            	}
+            } catch (DataIntegrityViolationException e) {
+            	sessionPlateFilter.remove(licensePlate);
+            	// started by another instance, the unique active license plate rejected the second session
+            	logger.error("Active session already exists for : {}", licensePlate);
+            	throw new RuntimeException(ACTIVE_SESSION_EXISTS + licensePlate);
+            } catch (RuntimeException e) {
+            	sessionPlateFilter.remove(licensePlate);
+            	throw e;
+            }
+            activeSessionIndex.put(savedSession);
+            succeeded = true;
+            return savedSession;
+    	} finally {
+    		lock.unlock();
+    		StreetMeters meters = streetMeters(streetTag(streetName));
+    		sample.stop(succeeded ? meters.startSuccess : meters.startError);
+    	}
     }
 
     /*
-     * End the parking session
+     * End the parking session. With write-behind enabled the ended session is queued and stored with the next group commit.
      * @param licensePlate - licenseplate number
      * @return ParkingSession - parking session object with all details mentioned in @see ParkingSession
      * @throws RuntimeException, if invalid street name or no active session found for the license plate
      */
     @Override
 	public ParkingSession endSession(String licensePlate) {
-    	List<ParkingSession> sessions = parkingSessionRepository.findByLicensePlateAndEndTimeIsNull(licensePlate);
-        if (sessions.isEmpty()) {
-        	logger.error("No session found for : {}", licensePlate);
-            throw new RuntimeException("No active session found for license plate: " + licensePlate);
-        }
-        ParkingSession session = sessions.get(0);
-        session.setActive(false);
-        session.setEndTime(LocalDateTime.now(ZoneId.of(timezone)).truncatedTo(ChronoUnit.MINUTES));
-        logger.info("Parking session for license plate number: {}, is found : {}", session.getLicensePlate(), session);
+    	Timer.Sample sample = Timer.start(meterRegistry);
+    	String street = UNKNOWN_STREET;
+    	boolean succeeded = false;
+    	ReentrantLock lock = sessionLockStripes.lockFor(licensePlate);
+    	lock.lock();
+    	try {
+    		// the session of the index is read concurrently without the lock, only a private copy is changed
+    		ParkingSession indexedSession = activeSessionIndex.get(licensePlate);
+    		ParkingSession session = indexedSession != null ? indexedSession.copy() : findStoredActiveSession(licensePlate);
+    		street = streetTag(session.getStreetName());
+            // one snapshot, the end time and the cost are computed on the calendar the prices were compiled against
+            StreetPricing streetPricing = streetPricingConfig.getStreetPricing();
+            session.setActive(false);
+            session.setEndTime(LocalDateTime.now(clock.withZone(streetPricing.getTariffCalendar().getZoneId())).truncatedTo(ChronoUnit.MINUTES));
+            logger.debug("Parking session for license plate number: {}, is found : {}", session.getLicensePlate(), session);
 
-        // Calculate the cost of parking
-        double cost = calculateCost(session);
-        logger.info("Ending parking session with cost for license number {} is {}", session.getLicensePlate(), cost);
-        session.setCost(cost);
+            // Calculate the cost of parking
+            double cost = calculateCost(session, streetPricing);
+            logger.info("Ending parking session with cost for license number {} is {}", session.getLicensePlate(), cost);
+            session.setCost(cost);
 
-        return parkingSessionRepository.save(session);
+            ParkingSession savedSession;
+            if (sessionWriteBehind.isEnabled()) {
+            	sessionWriteBehind.update(session);
+            	savedSession = session;
+            } else {
+            	savedSession = parkingSessionRepository.save(session);
+            }
+            activeSessionIndex.remove(licensePlate);
+            if (!sessionWriteBehind.isEnabled()) {
+            	// a queued end is recorded by the write-behind once it has been stored
+            	activeSessionIndex.addEndedPlate(licensePlate);
+            }
+            sessionQuoteCache.remove(licensePlate);
+            succeeded = true;
+            return savedSession;
+    	} finally {
+    		lock.unlock();
+    		StreetMeters meters = streetMeters(street);
+    		sample.stop(succeeded ? meters.endSuccess : meters.endError);
+    	}
     }
     
     /*
-     * Returns the config map to return configured street with pricing details
+     * Quote the cost of an active parking session as if it ended now, without changing it. The session is resolved
+     * from the active session index only: it holds every active session stored through this instance, including the
+     * queued write-behind starts, so a poll never reads the database or waits for a flush. The quote is computed at most
+     * once per session, minute and pricing snapshot.
+     * @param licensePlate - licenseplate number
+     * @return SessionQuote - cost of the session up to the current minute
+     * @throws NotFoundException, if no active session found for the license plate
+     * @throws RuntimeException, if invalid street name
+     */
+    @Override
+    public SessionQuote quoteSession(String licensePlate) {
+    	StreetPricing streetPricing = streetPricingConfig.getStreetPricing();
+    	ParkingSession session = activeSessionIndex.get(licensePlate);
+    	if (session == null) {
+    		logger.debug("No active session to quote for : {}", licensePlate);
+    		throw new NotFoundException("No active session found for license plate: " + licensePlate);
+    	}
+    	LocalDateTime quotedAt = LocalDateTime.now(clock.withZone(streetPricing.getTariffCalendar().getZoneId())).truncatedTo(ChronoUnit.MINUTES);
+    	return sessionQuoteCache.get(session, quotedAt, streetPricing, () -> new SessionQuote(session.getId(), session.getLicensePlate(),
+    			session.getStreetName(), session.getStartTime(), quotedAt,
+    			streetPricing.cost(getStreetId(streetPricing, session.getStreetName()), session.getStartTime(), quotedAt)));
+    }
+    
+    /*
+     * Applies a batch of session start and end commands in one transaction, in the given order. Streets are validated
+     * against a single snapshot of the pricing, active sessions are looked up in bulk and all changes are written in JDBC
+     * batches. A command that fails does not affect the other commands of the batch. The locks of all plates of the batch
+     * are held until the transaction has completed, and are taken before it starts: like the single session changes,
+     * a batch never waits for a lock while holding a pooled connection. Queued write-behind changes are flushed first,
+     * so the batch reads and changes the stored sessions.
+     * @param commands - start and end commands
+     * @return the result of every command, in the order of the commands
+     */
+    @Override
+    public List<SessionCommandResult> applySessionCommands(List<SessionCommand> commands) {
+    	List<ReentrantLock> locks = sessionLockStripes.lockAll(commands.stream().map(SessionCommand::getLicensePlate).toList());
+    	try {
+    		sessionWriteBehind.awaitFlushed();
+    		return transactionTemplate.execute(status -> applyLockedSessionCommands(commands));
+    	} finally {
+    		sessionLockStripes.unlockAll(locks);
+    	}
+    }
+    
+    /*
+     * Returns every parking session of the license plate, read across the live and the archive table in one query
+     * @param licensePlate - licenseplate number
+     * @return the sessions of the license plate, ordered by start time
+     */
+    @Override
+    public List<ParkingSession> getSessionHistory(String licensePlate) {
+    	return parkingSessionBatchRepository.findSessionHistory(licensePlate);
+    }
+    
+    /*
+     * Streams the sessions of a license plate or a street, live and archived, in start time and id order. The sessions are
+     * read in keyset pages of the configured size as the stream is consumed: every page continues after the start time and
+     * id of the previous one with a seek on the start time index of both tables, so a deep page costs the same as the first,
+     * and rows are selected into projections without entering the persistence context. The first page is read eagerly.
+     * @param query - license plate or street name, start time range, seek position and limit @see SessionHistoryQuery
+     * @return the sessions, read lazily in keyset pages as the stream is consumed
+     * @throws RuntimeException, if neither or both of the license plate and the street name are given
+     */
+    @Override
+    public Stream<SessionHistoryEntry> streamSessionHistory(SessionHistoryQuery query) {
+    	boolean byLicensePlate = query.getLicensePlate() != null && !query.getLicensePlate().isBlank();
+    	boolean byStreet = query.getStreetName() != null && !query.getStreetName().isBlank();
+    	if (byLicensePlate == byStreet) {
+    		throw new RuntimeException("Either a license plate or a street name is required");
+    	}
+    	LocalDateTime from = query.getFrom() != null ? query.getFrom() : HISTORY_START;
+    	LocalDateTime to = query.getTo() != null ? query.getTo() : HISTORY_END;
+    	int pageSize = query.getLimit() != null ? Math.max(0, Math.min(query.getLimit(), historyPageSize)) : historyPageSize;
+    	if (pageSize == 0) {
+    		return Stream.empty();
+    	}
+    	HistoryPage firstPage = findSessionHistoryPage(query, from, to, query.getAfterStartTime() != null ? query.getAfterStartTime() : from,
+    			query.getAfterStartTime() != null && query.getAfterId() != null ? query.getAfterId() : Long.MIN_VALUE, pageSize);
+    	Stream<SessionHistoryEntry> sessions = Stream.iterate(firstPage, page -> !page.sessions().isEmpty(), page -> {
+    				if (!page.hasMore()) {
+    					return new HistoryPage(List.of(), false);
+    				}
+    				SessionHistoryEntry last = page.sessions().get(page.sessions().size() - 1);
+    				return findSessionHistoryPage(query, from, to, last.getStartTime(), last.getId(), pageSize);
+    			})
+    			.flatMap(page -> page.sessions().stream());
+    	return query.getLimit() != null ? sessions.limit(query.getLimit()) : sessions;
+    }
+    
+    /*
+     * Reads the next page of the history from the live table and then from the archive table and merges them. A session
+     * archived in between may be read from both tables and is returned once, the archival job never moves it back.
+     */
+    private HistoryPage findSessionHistoryPage(SessionHistoryQuery query, LocalDateTime from, LocalDateTime to, LocalDateTime afterStartTime, long afterId, int pageSize) {
+    	Limit limit = Limit.of(pageSize);
+    	// the seek position bounds the start time range too, so the index range scan starts at it rather than at from
+    	LocalDateTime startedFrom = afterStartTime.isAfter(from) ? afterStartTime : from;
+    	List<SessionHistoryEntry> live;
+    	List<SessionHistoryEntry> archived;
+    	if (query.getLicensePlate() != null && !query.getLicensePlate().isBlank()) {
+    		live = parkingSessionRepository.findPlateHistory(query.getLicensePlate(), startedFrom, to, afterStartTime, afterId, limit);
+    		archived = parkingSessionArchiveRepository.findPlateHistory(query.getLicensePlate(), startedFrom, to, afterStartTime, afterId, limit);
+    	} else {
+    		live = parkingSessionRepository.findStreetHistory(query.getStreetName(), startedFrom, to, afterStartTime, afterId, limit);
+    		archived = parkingSessionArchiveRepository.findStreetHistory(query.getStreetName(), startedFrom, to, afterStartTime, afterId, limit);
+    	}
+    	boolean hasMore = live.size() == pageSize || archived.size() == pageSize;
+    	if (archived.isEmpty()) {
+    		return new HistoryPage(live, hasMore);
+    	}
+    	Set<Long> liveIds = new HashSet<>();
+    	List<SessionHistoryEntry> sessions = new ArrayList<>(live.size() + archived.size());
+    	for (SessionHistoryEntry session : live) {
+    		liveIds.add(session.getId());
+    		sessions.add(session);
+    	}
+    	for (SessionHistoryEntry session : archived) {
+    		if (!liveIds.contains(session.getId())) {
+    			sessions.add(session);
+    		}
+    	}
+    	sessions.sort(HISTORY_ORDER);
+    	if (sessions.size() > pageSize) {
+    		return new HistoryPage(sessions.subList(0, pageSize), true);
+    	}
+    	return new HistoryPage(sessions, hasMore);
+    }
+    
+    /*
+     * Moves the sessions that ended longer ago than the configured age to the archive table. Every batch is moved in
+     * its own short transaction, so the job never holds many row locks or a connection for long. Only ended sessions
+     * are moved, which no session change touches again, so the job needs no session locks.
+     */
+    @Override
+    @Scheduled(cron = "${parkingsystem.cron.sessions.archive}")
+    public void archiveEndedSessions() {
+    	Timer.Sample sample = Timer.start(meterRegistry);
+    	LocalDateTime now = LocalDateTime.now(clock.withZone(tariffCalendarConfig.getTariffCalendar().getZoneId()));
+    	LocalDateTime endedBefore = now.minus(archiveAfter);
+    	long archived = 0;
+    	int moved;
+    	do {
+    		moved = transactionTemplate.execute(status -> parkingSessionBatchRepository.archiveEndedBefore(endedBefore, archiveBatchSize, now));
+    		archived += moved;
+    	} while (moved == archiveBatchSize);
+    	meterRegistry.counter("parking.sessions.archived").increment(archived);
+    	sample.stop(meterRegistry.timer("parking.sessions.archive"));
+    	logger.info("Number of sessions ended before {} archived : {}", endedBefore, archived);
+    }
+    
+    private List<SessionCommandResult> applyLockedSessionCommands(List<SessionCommand> commands) {
+    	StreetPricing streetPricing = streetPricingConfig.getStreetPricing();
+    	LocalDateTime now = LocalDateTime.now(clock.withZone(streetPricing.getTariffCalendar().getZoneId())).truncatedTo(ChronoUnit.MINUTES);
+    	Map<String, ParkingSession> activeSessions = findActiveSessions(commands);
+    	List<ParkingSession> startedSessions = new ArrayList<>();
+    	List<ParkingSession> endedSessions = new ArrayList<>();
+    	List<SessionCommandResult> results = new ArrayList<>(commands.size());
+    	for (SessionCommand command : commands) {
+    		if (command.getAction() == null || command.getLicensePlate() == null) {
+    			results.add(SessionCommandResult.failed(command, "Action and license plate are required"));
+    		} else if (command.getAction() == SessionCommand.Action.START) {
+    			if (!streetPricing.contains(command.getStreetName())) {
+    				results.add(SessionCommandResult.failed(command, "No street found for street name: " + command.getStreetName()));
+    				continue;
+    			}
+    			if (activeSessions.containsKey(command.getLicensePlate())) {
+    				results.add(SessionCommandResult.failed(command, ACTIVE_SESSION_EXISTS + command.getLicensePlate()));
+    				continue;
+    			}
+    			ParkingSession session = new ParkingSession();
+    			session.setLicensePlate(command.getLicensePlate());
+    			session.setStreetName(command.getStreetName());
+    			session.setStartTime(now);
+    			session.setActive(true);
+    			activeSessions.put(session.getLicensePlate(), session);
+    			startedSessions.add(session);
+    			results.add(SessionCommandResult.succeeded(command, session));
+    		} else {
+    			ParkingSession session = activeSessions.get(command.getLicensePlate());
+    			if (session == null) {
+    				results.add(SessionCommandResult.failed(command, "No active session found for license plate: " + command.getLicensePlate()));
+    				continue;
+    			}
+    			session.setEndTime(now);
+    			try {
+    				session.setCost(calculateCost(session, streetPricing));
+    			} catch (RuntimeException e) {
+    				session.setEndTime(null);
+    				results.add(SessionCommandResult.failed(command, e.getMessage()));
+    				continue;
+    			}
+    			session.setActive(false);
+    			activeSessions.remove(command.getLicensePlate());
+    			// sessions started in this batch are inserted in their final state
+    			if (session.getId() != null) {
+    				endedSessions.add(session);
+    			}
+    			results.add(SessionCommandResult.succeeded(command, session));
+    		}
+    	}
+    	List<String> startedPlates = startedSessions.stream()
+    			.map(ParkingSession::getLicensePlate)
+    			.toList();
+    	// added before the writes, enforcement must never read the committed sessions as definite negatives
+    	afterRollback(() -> startedPlates.forEach(sessionPlateFilter::remove));
+    	startedPlates.forEach(sessionPlateFilter::add);
+    	// ended sessions first, a plate ended and started again in the batch must give up its active license plate before the insert
+    	parkingSessionBatchRepository.updateAll(endedSessions);
+    	parkingSessionBatchRepository.insertAll(startedSessions);
+    	logger.info("Session batch applied: {} commands, {} sessions inserted, {} sessions ended", commands.size(), startedSessions.size(), endedSessions.size());
+    	afterCommit(() -> {
+    		endedSessions.forEach(session -> {
+    			activeSessionIndex.remove(session.getLicensePlate());
+    			activeSessionIndex.addEndedPlate(session.getLicensePlate());
+    			sessionQuoteCache.remove(session.getLicensePlate());
+    		});
+    		startedSessions.forEach(session -> {
+    			if (session.isActive()) {
+    				activeSessionIndex.put(session);
+    			} else {
+    				activeSessionIndex.addEndedPlate(session.getLicensePlate());
+    			}
+    		});
+    	});
+    	return results;
+    }
+    
+    /*
+     * Returns the active sessions the license plates of the batch have before the batch, from the active session index
+     * and a single query for the plates missing from it. Sessions of the index are copied, the index itself
+     * only changes once the batch has committed.
+     */
+    private Map<String, ParkingSession> findActiveSessions(List<SessionCommand> commands) {
+    	Map<String, ParkingSession> activeSessions = new HashMap<>();
+    	Set<String> misses = new HashSet<>();
+    	for (SessionCommand command : commands) {
+    		if (command.getAction() != null && command.getLicensePlate() != null
+    				&& !activeSessions.containsKey(command.getLicensePlate()) && !misses.contains(command.getLicensePlate())) {
+    			ParkingSession session = activeSessionIndex.get(command.getLicensePlate());
+    			if (session != null) {
+    				activeSessions.put(command.getLicensePlate(), session.copy());
+    			} else {
+    				misses.add(command.getLicensePlate());
+    			}
+    		}
+    	}
+    	for (ParkingSession session : parkingSessionBatchRepository.findActiveSessions(misses)) {
+    		activeSessions.putIfAbsent(session.getLicensePlate(), session);
+    	}
+    	return activeSessions;
+    }
+    
+    /*
+     * Runs the action once the current transaction has committed, or right away without a transaction
+     */
+    private void afterCommit(Runnable action) {
+    	if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+    		action.run();
+    		return;
+    	}
+    	TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+    		@Override
+    		public void afterCommit() {
+    			action.run();
+    		}
+    	});
+    }
+    
+    /*
+     * Runs the action if the current transaction rolls back, nothing is run without a transaction
+     */
+    private void afterRollback(Runnable action) {
+    	if (TransactionSynchronizationManager.isSynchronizationActive()) {
+    		TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+    			@Override
+    			public void afterCompletion(int status) {
+    				if (status == STATUS_ROLLED_BACK) {
+    					action.run();
+    				}
+    			}
+    		});
+    	}
+    }
+    
+    /*
+     * Returns the active session of a license plate from the database. Queued write-behind changes are flushed before
+     * the database is read, a queued end must not be read as still active.
+     * @param licensePlate - licenseplate number
+     * @return the active parking session, read by this call only
+     * @throws RuntimeException, if no active session found for the license plate
+     */
+    private ParkingSession findStoredActiveSession(String licensePlate) {
+        sessionWriteBehind.awaitFlushed();
+    	return parkingSessionRepository.findByLicensePlateAndIsActive(licensePlate, true)
+    			.orElseThrow(() -> {
+    				logger.error("No session found for : {}", licensePlate);
+    				return new RuntimeException("No active session found for license plate: " + licensePlate);
+    			});
+    }
+    
+    /*
+     * Returns the id of a configured street in the pricing snapshot
+     * @param streetPricing - pricing snapshot used for the whole request
      * @param streetName - name of the street, where car is parked
-     * @return the config map with streetname as key and pricing as value
+     * @return the street id
      * @throws RuntimeException, if invalid street name
      */
-    private Map<String, Integer> getStreetConfig(String streetName) {
-        Map<String, Integer> map = streetParkingPricingConfig.getValues();
-        if(!map.containsKey(streetName)) {
+    private int getStreetId(StreetPricing streetPricing, String streetName) {
+        int streetId = streetPricing.streetId(streetName);
+        if(streetId < 0) {
         	logger.error("Invalid street: {}", streetName);
         	throw new RuntimeException("No street found for street name: " + streetName);
         }
-        return map;
+        return streetId;
     }
     
     /*
      * Returns the cost for a parking session
      * @param session - parking session object @see ParkingSession
+     * @param streetPricing - pricing snapshot used for the whole request, with the tariff calendar it was compiled against
      * @return the cost
      */
-    private double calculateCost(ParkingSession session) {
-        LocalDateTime start = session.getStartTime();
-        LocalDateTime end = session.getEndTime();
-        Map<String, Integer> map = getStreetConfig(session.getStreetName());
-        double pricePerMinute = map.get(session.getStreetName());
-        
-        List<LocalDate> holidays = holidayConfig.getHolidayList();
-    	logger.info("Holidays List : {}", holidays);
-    	
-    	int freeParkingStartHrs = freeParkingTimingConfig.getFreeParkingStartHrs();
-    	int freeParkingStartMins =  freeParkingTimingConfig.getFreeParkingStartMins();
-    	int freeParkingEndHrs = freeParkingTimingConfig.getFreeParkingEndHrs();
-    	int freeParkingEndMins = freeParkingTimingConfig.getFreeParkingEndMins();
-    	
-        double totalMinutes = 0;
-        while (start.isBefore(end)) {
-            if (isChargeable(start, freeParkingStartHrs, freeParkingStartMins, freeParkingEndHrs, freeParkingEndMins, holidays)) {
-                totalMinutes++;
-            }
-            start = start.plusMinutes(1);
-        }
-        logger.info("Price per minute is : {}", pricePerMinute);
-        logger.info("Total chargeable minutes are : {}", totalMinutes);
-        return totalMinutes * pricePerMinute /100.0;
+    private double calculateCost(ParkingSession session, StreetPricing streetPricing) {
+        long startNanos = System.nanoTime();
+        int streetId = getStreetId(streetPricing, session.getStreetName());
+        long totalMinutes = streetPricing.getTariffCalendar().chargeableMinutes(session.getStartTime(), session.getEndTime());
+        logger.debug("Base price per minute is : {}", streetPricing.pricePerMinute(streetId));
+        logger.debug("Total chargeable minutes are : {}", totalMinutes);
+        double cost = streetPricing.cost(streetId, session.getStartTime(), session.getEndTime(), totalMinutes);
+        StreetMeters meters = streetMeters(session.getStreetName());
+        meters.costSuccess.record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+        meters.chargeableMinutes.record(totalMinutes);
+        return cost;
+    }
+    
+    /*
+     * Returns the meters of a street, registering them on the first call for the street so that the request path
+     * neither builds meters nor looks them up in the registry
+     */
+    private StreetMeters streetMeters(String street) {
+    	StreetMeters meters = streetMeters.get(street);
+    	if (meters == null) {
+    		meters = streetMeters.computeIfAbsent(street, tag -> new StreetMeters(meterRegistry, tag));
+    	}
+    	return meters;
+    }
+    
+    /*
+     * Returns the street as metric tag, streets that are not configured share one tag to keep the number of series bounded
+     */
+    private String streetTag(String streetName) {
+    	return streetName != null && streetPricingConfig.getStreetPricing().contains(streetName) ? streetName : UNKNOWN_STREET;
+    }
+    
+    private record HistoryPage(List<SessionHistoryEntry> sessions, boolean hasMore) {
     }
     
     /*
-     * Validates whether the time is chargeable or not.No charge for Sunday and any holidays and between 9PM and 8AM on other days
-     * @param time - any time
-     * @return true or false
+     * Timers of the session operations of one street by outcome, with client side percentiles so they can be graphed
+     * without a histogram backend, and the distribution of its chargeable minutes
      */
-    private boolean isChargeable(LocalDateTime time, int freeParkingStartHrs, int freeParkingStartMins, int freeParkingEndHrs, int freeParkingEndMins, List<LocalDate> holidays) {
-    	LocalTime localTime = time.toLocalTime();
-        return !(localTime.isAfter(LocalTime.of(freeParkingStartHrs, freeParkingStartMins)) || localTime.isBefore(LocalTime.of(freeParkingEndHrs, freeParkingEndMins)) || time.getDayOfWeek().getValue() == 7 || holidays.contains(time.toLocalDate()));
+    private static final class StreetMeters {
+    	
+    	private final Timer startSuccess;
+    	
+    	private final Timer startError;
+    	
+    	private final Timer endSuccess;
+    	
+    	private final Timer endError;
+    	
+    	private final Timer costSuccess;
+    	
+    	private final DistributionSummary chargeableMinutes;
+    	
+    	private StreetMeters(MeterRegistry meterRegistry, String street) {
+    		startSuccess = timer(meterRegistry, "parking.session.start", street, "success");
+    		startError = timer(meterRegistry, "parking.session.start", street, "error");
+    		endSuccess = timer(meterRegistry, "parking.session.end", street, "success");
+    		endError = timer(meterRegistry, "parking.session.end", street, "error");
+    		costSuccess = timer(meterRegistry, "parking.session.cost", street, "success");
+    		chargeableMinutes = DistributionSummary.builder("parking.session.chargeable.minutes")
+    				.description("Chargeable minutes per ended parking session")
+    				.baseUnit("minutes")
+    				.tag("street", street)
+    				.publishPercentileHistogram()
+    				.register(meterRegistry);
+    	}
+    	
+    	private static Timer timer(MeterRegistry meterRegistry, String name, String street, String outcome) {
+    		return Timer.builder(name)
+    				.tag("street", street)
+    				.tag("outcome", outcome)
+    				.publishPercentiles(0.5, 0.95, 0.99)
+    				.register(meterRegistry);
+    	}
     }
 }
@@ -0,0 +1,95 @@
+package com.example.parkingsystem.service.impl;
+
+import com.example.parkingsystem.entity.ParkingSession;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/*
+ * Immutable per-plate index of parking session intervals, built for one enforcement chunk. The sessions of every plate
+ * are sorted by start time with the running maximum of their end times, so whether any session of the plate covered
+ * a moment is one binary search, whatever the number of sessions.
+ * A session covers [start time, end time + 1 minute): the stored times are truncated to minutes, so the session is
+ * taken to last until the end of the minute in which it ended. A session without an end time has not ended yet.
+ */
+public final class SessionIntervalIndex {
+
+	private static final long SECONDS_PER_MINUTE = 60;
+
+	private final Map<String, Intervals> intervals;
+
+	private SessionIntervalIndex(Map<String, Intervals> intervals) {
+		this.intervals = intervals;
+	}
+
+	/*
+	 * Builds the index
+	 * @param sessions - sessions of any plates, in any order
+	 * @return the index
+	 */
+	public static SessionIntervalIndex build(List<ParkingSession> sessions) {
+		Map<String, List<ParkingSession>> sessionsByPlate = new HashMap<>();
+		for (ParkingSession session : sessions) {
+			if (session.getLicensePlate() != null && session.getStartTime() != null) {
+				sessionsByPlate.computeIfAbsent(session.getLicensePlate(), licensePlate -> new ArrayList<>()).add(session);
+			}
+		}
+		Map<String, Intervals> intervals = new HashMap<>(sessionsByPlate.size() * 2);
+		sessionsByPlate.forEach((licensePlate, plateSessions) -> {
+			plateSessions.sort(Comparator.comparing(ParkingSession::getStartTime));
+			long[] starts = new long[plateSessions.size()];
+			long[] maxEnds = new long[plateSessions.size()];
+			long maxEnd = Long.MIN_VALUE;
+			for (int i = 0; i < starts.length; i++) {
+				ParkingSession session = plateSessions.get(i);
+				starts[i] = epochSecond(session.getStartTime());
+				long end = session.getEndTime() == null ? Long.MAX_VALUE : epochSecond(session.getEndTime()) + SECONDS_PER_MINUTE;
+				maxEnd = Math.max(maxEnd, end);
+				maxEnds[i] = maxEnd;
+			}
+			intervals.put(licensePlate, new Intervals(starts, maxEnds));
+		});
+		return new SessionIntervalIndex(intervals);
+	}
+
+	/*
+	 * Validates whether a session of the plate covered the given moment
+	 * @param licensePlate - licenseplate number
+	 * @param time - moment of the observation
+	 * @return true or false
+	 */
+	public boolean covers(String licensePlate, LocalDateTime time) {
+		Intervals plateIntervals = intervals.get(licensePlate);
+		if (plateIntervals == null) {
+			return false;
+		}
+		long second = epochSecond(time);
+		int index = Arrays.binarySearch(plateIntervals.starts, second);
+		// the last session that started at or before the moment, equal starts are searched past
+		if (index >= 0) {
+			while (index + 1 < plateIntervals.starts.length && plateIntervals.starts[index + 1] == second) {
+				index++;
+			}
+		} else {
+			index = -index - 2;
+		}
+		return index >= 0 && plateIntervals.maxEnds[index] > second;
+	}
+
+	public int size() {
+		return intervals.size();
+	}
+
+	private static long epochSecond(LocalDateTime time) {
+		return time.toEpochSecond(ZoneOffset.UTC);
+	}
+
+	private record Intervals(long[] starts, long[] maxEnds) {
+	}
+}
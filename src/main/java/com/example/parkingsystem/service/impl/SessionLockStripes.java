@@ -0,0 +1,80 @@
+package com.example.parkingsystem.service.impl;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.concurrent.locks.ReentrantLock;
+
+/*
+ * Striped per license plate locks serializing the session changes of a plate within this instance.
+ * Plates map onto a fixed number of stripes, so changes of different plates rarely contend and the
+ * memory used does not grow with the number of plates. Across instances the unique active license
+ * plate column of ParkingSession is the guarantee.
+ */
+@Component
+public class SessionLockStripes {
+
+	private final ReentrantLock[] locks;
+
+	private final int mask;
+
+	public SessionLockStripes(@Value("${parkingsystem.sessions.lock-stripes}") int stripes) {
+		int size = Integer.highestOneBit(Math.max(1, stripes - 1)) << 1;
+		this.locks = new ReentrantLock[size];
+		this.mask = size - 1;
+		for (int i = 0; i < size; i++) {
+			locks[i] = new ReentrantLock();
+		}
+	}
+
+	/*
+	 * Returns the lock of a license plate, shared with the other plates of its stripe
+	 * @param licensePlate - licenseplate number
+	 * @return the lock, not yet acquired
+	 */
+	public ReentrantLock lockFor(String licensePlate) {
+		return locks[stripe(licensePlate)];
+	}
+
+	/*
+	 * Acquires the locks of several license plates, always in stripe order so that two callers cannot deadlock
+	 * @param licensePlates - licenseplate numbers
+	 * @return the acquired locks, to be released with unlockAll
+	 */
+	public List<ReentrantLock> lockAll(Collection<String> licensePlates) {
+		TreeSet<Integer> stripes = new TreeSet<>();
+		for (String licensePlate : licensePlates) {
+			stripes.add(stripe(licensePlate));
+		}
+		List<ReentrantLock> acquired = new ArrayList<>(stripes.size());
+		try {
+			for (int stripe : stripes) {
+				locks[stripe].lock();
+				acquired.add(locks[stripe]);
+			}
+		} catch (RuntimeException | Error e) {
+			unlockAll(acquired);
+			throw e;
+		}
+		return acquired;
+	}
+
+	public void unlockAll(List<ReentrantLock> acquired) {
+		for (int i = acquired.size() - 1; i >= 0; i--) {
+			acquired.get(i).unlock();
+		}
+	}
+
+	public int getStripes() {
+		return locks.length;
+	}
+
+	private int stripe(String licensePlate) {
+		int hash = licensePlate == null ? 0 : licensePlate.hashCode();
+		return (hash ^ (hash >>> 16)) & mask;
+	}
+}
@@ -0,0 +1,194 @@
+package com.example.parkingsystem.service.impl;
+
+import com.example.parkingsystem.repository.ParkingSessionRepository;
+
+import jakarta.annotation.PostConstruct;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.concurrent.atomic.LongAdder;
+
+/*
+ * Counting Bloom filter of the license plates with a parking session, active or ended, kept off-heap.
+ * A plate the filter does not contain has never had a session, so enforcement can settle it without a query;
+ * a plate it contains may be a false positive and has to be confirmed against the database.
+ * It is rebuilt from the database on startup and kept up to date by the session service: a plate is added before
+ * its session start is written and removed again if the write fails. Ending a session keeps its plate.
+ * The filter may thus hold a plate whose session is not stored yet, a stale positive that only costs a lookup, but
+ * never misses a stored session. That makes negatives definite as long as every session change goes through
+ * this instance, which holds for the embedded database.
+ */
+@Component
+public class SessionPlateFilter {
+
+	private static final Logger logger = LoggerFactory.getLogger(SessionPlateFilter.class);
+
+	private static final VarHandle COUNTERS = MethodHandles.byteBufferViewVarHandle(int[].class, ByteOrder.nativeOrder());
+
+	private final ParkingSessionRepository parkingSessionRepository;
+
+	private final boolean enabled;
+
+	private final double falsePositiveRate;
+
+	private final int counterCount;
+
+	private final int hashCount;
+
+	private final ByteBuffer counters;
+
+	private final LongAdder definiteNegatives = new LongAdder();
+
+	private final LongAdder possibleHits = new LongAdder();
+
+	public SessionPlateFilter(ParkingSessionRepository parkingSessionRepository,
+			@Value("${parkingsystem.enforcement.plate-filter.enabled}") boolean enabled,
+			@Value("${parkingsystem.enforcement.plate-filter.expected-plates}") int expectedPlates,
+			@Value("${parkingsystem.enforcement.plate-filter.false-positive-rate}") double falsePositiveRate) {
+		this.parkingSessionRepository = parkingSessionRepository;
+		this.enabled = enabled;
+		this.falsePositiveRate = falsePositiveRate;
+		// optimal Bloom filter size and number of hash functions for the expected plates and false positive rate
+		long bits = (long) Math.ceil(-Math.max(1, expectedPlates) * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+		this.counterCount = (int) Math.min(Integer.MAX_VALUE / Integer.BYTES, Math.max(64, bits));
+		this.hashCount = Math.max(1, (int) Math.round((double) counterCount / Math.max(1, expectedPlates) * Math.log(2)));
+		this.counters = ByteBuffer.allocateDirect(enabled ? counterCount * Integer.BYTES : 0).order(ByteOrder.nativeOrder());
+	}
+
+	/*
+	 * Rebuilds the filter from the sessions stored in the database
+	 */
+	@PostConstruct
+	public void rebuild() {
+		if (!enabled) {
+			return;
+		}
+		for (int i = 0; i < counterCount; i++) {
+			COUNTERS.setVolatile(counters, i * Integer.BYTES, 0);
+		}
+		int plates = 0;
+		for (String licensePlate : parkingSessionRepository.findAllLicensePlates()) {
+			add(licensePlate);
+			plates++;
+		}
+		logger.info("Session plate filter rebuilt with {} plates in {} counters and {} hash functions", plates, counterCount, hashCount);
+	}
+
+	/*
+	 * Records a license plate whose session is about to be stored
+	 * @param licensePlate - licenseplate number
+	 */
+	public void add(String licensePlate) {
+		if (enabled && licensePlate != null) {
+			long hash = hash(licensePlate);
+			for (int i = 0; i < hashCount; i++) {
+				COUNTERS.getAndAdd(counters, offset(hash, i), 1);
+			}
+		}
+	}
+
+	/*
+	 * Removes a license plate whose session could not be stored
+	 * @param licensePlate - licenseplate number
+	 */
+	public void remove(String licensePlate) {
+		if (enabled && licensePlate != null) {
+			long hash = hash(licensePlate);
+			for (int i = 0; i < hashCount; i++) {
+				int offset = offset(hash, i);
+				int count;
+				do {
+					count = (int) COUNTERS.getVolatile(counters, offset);
+				} while (count > 0 && !COUNTERS.compareAndSet(counters, offset, count, count - 1));
+			}
+		}
+	}
+
+	/*
+	 * Validates whether the license plate may have a parking session
+	 * @param licensePlate - licenseplate number
+	 * @return false if the plate has no session for sure, true if it may have one or the filter is disabled
+	 */
+	public boolean mightContain(String licensePlate) {
+		if (!enabled || licensePlate == null) {
+			return true;
+		}
+		long hash = hash(licensePlate);
+		for (int i = 0; i < hashCount; i++) {
+			if ((int) COUNTERS.getVolatile(counters, offset(hash, i)) == 0) {
+				definiteNegatives.increment();
+				return false;
+			}
+		}
+		possibleHits.increment();
+		return true;
+	}
+
+	public boolean isEnabled() {
+		return enabled;
+	}
+
+	public double getFalsePositiveRate() {
+		return falsePositiveRate;
+	}
+
+	/*
+	 * Returns the false positive rate for the plates currently in the filter, estimated from the share of counters in use
+	 */
+	public double getEstimatedFalsePositiveRate() {
+		if (!enabled) {
+			return 0;
+		}
+		int used = 0;
+		for (int i = 0; i < counterCount; i++) {
+			if ((int) COUNTERS.getVolatile(counters, i * Integer.BYTES) != 0) {
+				used++;
+			}
+		}
+		return Math.pow((double) used / counterCount, hashCount);
+	}
+
+	public long getMemoryBytes() {
+		return counters.capacity();
+	}
+
+	public long getDefiniteNegatives() {
+		return definiteNegatives.sum();
+	}
+
+	public long getPossibleHits() {
+		return possibleHits.sum();
+	}
+
+	/*
+	 * Byte offset of the i-th counter of a plate, derived from two halves of one 64 bit hash (Kirsch-Mitzenmacher)
+	 */
+	private int offset(long hash, int i) {
+		int combined = (int) hash + i * (int) (hash >>> 32);
+		return Math.floorMod(combined, counterCount) * Integer.BYTES;
+	}
+
+	/*
+	 * 64 bit FNV-1a hash of the plate, finalized with the MurmurHash3 mix for well spread halves
+	 */
+	private static long hash(String licensePlate) {
+		long hash = 0xcbf29ce484222325L;
+		for (int i = 0; i < licensePlate.length(); i++) {
+			hash ^= licensePlate.charAt(i);
+			hash *= 0x100000001b3L;
+		}
+		hash ^= hash >>> 33;
+		hash *= 0xff51afd7ed558ccdL;
+		hash ^= hash >>> 33;
+		hash *= 0xc4ceb9fe1a85ec53L;
+		hash ^= hash >>> 33;
+		return hash;
+	}
+}
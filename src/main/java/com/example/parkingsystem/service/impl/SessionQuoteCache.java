@@ -0,0 +1,72 @@
+package com.example.parkingsystem.service.impl;
+
+import com.example.parkingsystem.config.StreetPricing;
+import com.example.parkingsystem.dto.SessionQuote;
+import com.example.parkingsystem.entity.ParkingSession;
+
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/*
+ * Cache of the latest cost quote of every active session, keyed by license plate. A quote is reused while the
+ * session, the quoted minute and the pricing snapshot are unchanged, so polling a running session computes its
+ * cost at most once a minute. Entries are replaced on the next minute and removed when the session ends.
+ */
+@Component
+public class SessionQuoteCache {
+
+	private final Map<String, CachedQuote> quotes = new ConcurrentHashMap<>();
+
+	private final LongAdder hits = new LongAdder();
+
+	private final LongAdder misses = new LongAdder();
+
+	/*
+	 * Returns the cached quote of the session for the minute, computing and caching it if there is none
+	 * @param session - active session to quote
+	 * @param quotedAt - minute the quote is for
+	 * @param streetPricing - pricing snapshot the quote is computed with
+	 * @param quote - computes the quote on a miss
+	 * @return the quote
+	 */
+	public SessionQuote get(ParkingSession session, LocalDateTime quotedAt, StreetPricing streetPricing, Supplier<SessionQuote> quote) {
+		CachedQuote cached = quotes.get(session.getLicensePlate());
+		if (cached != null && Objects.equals(cached.sessionId(), session.getId()) && cached.quotedAt().equals(quotedAt) && cached.streetPricing() == streetPricing) {
+			hits.increment();
+			return cached.quote();
+		}
+		misses.increment();
+		SessionQuote computed = quote.get();
+		quotes.put(session.getLicensePlate(), new CachedQuote(session.getId(), quotedAt, streetPricing, computed));
+		return computed;
+	}
+
+	/*
+	 * Removes the quote of a license plate once its session has ended
+	 * @param licensePlate - licenseplate number
+	 */
+	public void remove(String licensePlate) {
+		quotes.remove(licensePlate);
+	}
+
+	public int size() {
+		return quotes.size();
+	}
+
+	public long getHits() {
+		return hits.sum();
+	}
+
+	public long getMisses() {
+		return misses.sum();
+	}
+
+	private record CachedQuote(Long sessionId, LocalDateTime quotedAt, StreetPricing streetPricing, SessionQuote quote) {
+	}
+}
@@ -0,0 +1,408 @@
+package com.example.parkingsystem.service.impl;
+
+import com.example.parkingsystem.entity.ParkingSession;
+import com.example.parkingsystem.repository.ParkingSessionBatchRepository;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/*
+ * Optional write-behind of single session starts and ends. A change is acknowledged to the caller as soon as it is in
+ * a bounded in-memory queue, and one flusher thread stores the queued changes in group-committed JDBC batches once
+ * batch-size changes are queued or flush-interval has passed since the first one.
+ * - ordering: the queue is FIFO and drained by a single thread, so the changes of a plate are stored in the order in
+ *   which they were made under the plate's session lock. A session started and ended in the same batch is inserted
+ *   in its final state, and ends are stored before starts so a plate can end and start again within a batch.
+ * - backpressure: a change waits at most offer-timeout for a free slot and is rejected when the queue stays full.
+ * - shutdown: new changes are rejected and the queue is drained and flushed before the application context closes.
+ *   Closing and queueing are guarded by one lock, so every change acknowledged before the close is flushed.
+ * - durability: queued changes live in memory only, a crash of the JVM loses the changes that were not yet flushed.
+ * - failures: a batch that fails is retried, and a batch that still fails is stored one change at a time, each in
+ *   its own transaction. Only a change that then fails is dropped and logged, and the in-memory indexes of its plate
+ *   are reverted so that the plate is resolved from the database again. A later update of a dropped insert is dropped
+ *   as well, without touching the database.
+ */
+@Component
+public class SessionWriteBehind {
+
+	private static final Logger logger = LoggerFactory.getLogger(SessionWriteBehind.class);
+
+	private static final int MAX_FLUSH_ATTEMPTS = 3;
+
+	private final ParkingSessionBatchRepository parkingSessionBatchRepository;
+
+	private final TransactionTemplate transactionTemplate;
+
+	private final ActiveSessionIndex activeSessionIndex;
+
+	private final SessionPlateFilter sessionPlateFilter;
+
+	private final MeterRegistry meterRegistry;
+
+	private final boolean enabled;
+
+	private final int batchSize;
+
+	private final Duration flushInterval;
+
+	private final Duration offerTimeout;
+
+	private final Duration flushTimeout;
+
+	private final BlockingQueue<Object> queue;
+
+	// queueing holds the read lock and closing the write lock, nothing is queued once the queue is closed
+	private final ReadWriteLock closeLock = new ReentrantReadWriteLock();
+
+	private volatile boolean closed;
+
+	// ids of the dropped inserts whose session may still be updated, used by the flusher thread only
+	private final Set<Long> droppedInserts = new HashSet<>();
+
+	private Thread flusher;
+
+	public SessionWriteBehind(ParkingSessionBatchRepository parkingSessionBatchRepository, TransactionTemplate transactionTemplate,
+			ActiveSessionIndex activeSessionIndex, SessionPlateFilter sessionPlateFilter, MeterRegistry meterRegistry,
+			@Value("${parkingsystem.sessions.write-behind.enabled}") boolean enabled,
+			@Value("${parkingsystem.sessions.write-behind.queue-capacity}") int queueCapacity,
+			@Value("${parkingsystem.sessions.write-behind.batch-size}") int batchSize,
+			@Value("${parkingsystem.sessions.write-behind.flush-interval}") Duration flushInterval,
+			@Value("${parkingsystem.sessions.write-behind.offer-timeout}") Duration offerTimeout,
+			@Value("${parkingsystem.sessions.write-behind.flush-timeout}") Duration flushTimeout) {
+		this.parkingSessionBatchRepository = parkingSessionBatchRepository;
+		this.transactionTemplate = transactionTemplate;
+		this.activeSessionIndex = activeSessionIndex;
+		this.sessionPlateFilter = sessionPlateFilter;
+		this.meterRegistry = meterRegistry;
+		this.enabled = enabled;
+		this.batchSize = batchSize;
+		this.flushInterval = flushInterval;
+		this.offerTimeout = offerTimeout;
+		this.flushTimeout = flushTimeout;
+		this.queue = new ArrayBlockingQueue<>(queueCapacity);
+	}
+
+	@PostConstruct
+	public void init() {
+		if (!enabled) {
+			return;
+		}
+		Gauge.builder("parking.sessions.write.behind.queue", queue, BlockingQueue::size)
+				.description("Session changes waiting to be stored")
+				.register(meterRegistry);
+		flusher = new Thread(this::run, "session-write-behind");
+		flusher.start();
+		logger.info("Session write-behind started with batch size {} and flush interval {}", batchSize, flushInterval);
+	}
+
+	/*
+	 * Stops accepting changes and stores the queued ones
+	 */
+	@PreDestroy
+	public void shutdown() throws InterruptedException {
+		closeLock.writeLock().lock();
+		try {
+			closed = true;
+		} finally {
+			closeLock.writeLock().unlock();
+		}
+		if (flusher != null) {
+			flusher.join();
+			logger.info("Session write-behind stopped, queued changes stored");
+		}
+	}
+
+	public boolean isEnabled() {
+		return enabled;
+	}
+
+	/*
+	 * Queues the insert of a new session, assigning its id and version first
+	 * @param session - new session, a copy of it is stored
+	 * @throws RuntimeException, if the queue stays full or is closed
+	 */
+	public void insert(ParkingSession session) {
+		session.setId(parkingSessionBatchRepository.allocateId());
+		session.setVersion(0L);
+		offer(new SessionChange(session.copy(), true));
+	}
+
+	/*
+	 * Queues the update of a stored or queued session
+	 * @param session - changed session, a copy of it is stored
+	 * @throws RuntimeException, if the queue stays full or is closed
+	 */
+	public void update(ParkingSession session) {
+		offer(new SessionChange(session.copy(), false));
+	}
+
+	/*
+	 * Waits until every change queued before the call has been flushed
+	 * @throws RuntimeException, if the changes are not flushed within flush-timeout
+	 */
+	public void awaitFlushed() {
+		if (flusher == null) {
+			return;
+		}
+		long deadline = System.nanoTime() + flushTimeout.toNanos();
+		CountDownLatch flushed = new CountDownLatch(1);
+		boolean queued;
+		try {
+			closeLock.readLock().lock();
+			try {
+				queued = !closed && queue.offer(flushed, flushTimeout.toNanos(), TimeUnit.NANOSECONDS);
+			} finally {
+				closeLock.readLock().unlock();
+			}
+			if (queued) {
+				if (!flushed.await(deadline - System.nanoTime(), TimeUnit.NANOSECONDS)) {
+					throw flushTimedOut();
+				}
+			} else if (closed) {
+				// flushed by shutdown
+				TimeUnit.NANOSECONDS.timedJoin(flusher, Math.max(1, deadline - System.nanoTime()));
+				if (flusher.isAlive()) {
+					throw flushTimedOut();
+				}
+			} else {
+				throw flushTimedOut();
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException("Interrupted while waiting for queued session changes");
+		}
+	}
+
+	private RuntimeException flushTimedOut() {
+		logger.error("Queued session changes not flushed within {}, {} changes queued", flushTimeout, queue.size());
+		return new RuntimeException("Timed out waiting for queued session changes");
+	}
+
+	private void offer(SessionChange change) {
+		closeLock.readLock().lock();
+		try {
+			if (closed) {
+				throw new RuntimeException("Session write queue is closed");
+			}
+			if (!queue.offer(change, offerTimeout.toMillis(), TimeUnit.MILLISECONDS)) {
+				meterRegistry.counter("parking.sessions.write.behind.rejected").increment();
+				throw new RuntimeException("Session write queue is full, try again later");
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException("Interrupted while queueing session change");
+		} finally {
+			closeLock.readLock().unlock();
+		}
+	}
+
+	private void run() {
+		List<Object> batch = new ArrayList<>(batchSize);
+		while (!closed || !queue.isEmpty()) {
+			try {
+				Object first = queue.poll(flushInterval.toMillis(), TimeUnit.MILLISECONDS);
+				if (first == null) {
+					continue;
+				}
+				batch.add(first);
+				long deadline = System.nanoTime() + flushInterval.toNanos();
+				// a waiting barrier flushes the batch right away instead of after the flush interval
+				while (batch.size() < batchSize && !(batch.get(batch.size() - 1) instanceof CountDownLatch)) {
+					int drained = batch.size();
+					queue.drainTo(batch, batchSize - batch.size());
+					long remaining = deadline - System.nanoTime();
+					if (batch.size() >= batchSize || remaining <= 0 || hasBarrier(batch, drained)) {
+						break;
+					}
+					Object next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+					if (next == null) {
+						break;
+					}
+					batch.add(next);
+				}
+				flush(batch);
+			} catch (InterruptedException e) {
+				// the queue is still drained, shutdown waits for it
+				logger.warn("Session write-behind interrupted, {} changes queued", queue.size());
+			} catch (RuntimeException e) {
+				logger.error("Session write-behind failed", e);
+			} finally {
+				batch.forEach(item -> {
+					if (item instanceof CountDownLatch flushed) {
+						flushed.countDown();
+					}
+				});
+				batch.clear();
+			}
+		}
+	}
+
+	private static boolean hasBarrier(List<Object> batch, int from) {
+		for (int i = from; i < batch.size(); i++) {
+			if (batch.get(i) instanceof CountDownLatch) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private void flush(List<Object> batch) {
+		// sessions by id, a session inserted and updated within the batch is inserted in its last state
+		Map<Long, ParkingSession> inserts = new LinkedHashMap<>();
+		Map<Long, ParkingSession> updates = new LinkedHashMap<>();
+		for (Object item : batch) {
+			if (item instanceof SessionChange change) {
+				ParkingSession session = change.session();
+				if (change.insert() || inserts.containsKey(session.getId())) {
+					inserts.put(session.getId(), session);
+				} else if (droppedInserts.remove(session.getId())) {
+					// there is no row to update, the plate is not active in the database either
+					logger.error("Session change dropped, inserting the session was dropped : {}", session);
+					meterRegistry.counter("parking.sessions.write.behind.dropped").increment();
+				} else {
+					updates.put(session.getId(), session);
+				}
+			}
+		}
+		if (inserts.isEmpty() && updates.isEmpty()) {
+			return;
+		}
+		Timer.Sample sample = Timer.start(meterRegistry);
+		if (storeBatch(inserts.values(), updates.values())) {
+			updates.values().forEach(this::recordEndedPlate);
+			inserts.values().forEach(this::recordEndedPlate);
+		} else {
+			// ended sessions first, a plate ended and started again in the batch must give up its active license plate first
+			updates.values().forEach(session -> store(session, false));
+			inserts.values().forEach(session -> store(session, true));
+		}
+		sample.stop(meterRegistry.timer("parking.sessions.write.behind.flush"));
+		DistributionSummary.builder("parking.sessions.write.behind.batch.size")
+				.description("Session changes stored per group commit")
+				.register(meterRegistry)
+				.record(inserts.size() + updates.size());
+		logger.debug("Session changes stored: {} inserted, {} updated", inserts.size(), updates.size());
+	}
+
+	/*
+	 * Stores the batch in one transaction, retrying failures that may be transient
+	 * @return true if stored, false if the batch conflicts with the stored sessions or still fails after retries
+	 */
+	private boolean storeBatch(Collection<ParkingSession> inserts, Collection<ParkingSession> updates) {
+		for (int attempt = 1; ; attempt++) {
+			try {
+				// copies, the versions of the changes are only moved on by a commit
+				List<ParkingSession> updated = updates.stream().map(ParkingSession::copy).toList();
+				List<ParkingSession> inserted = inserts.stream().map(ParkingSession::copy).toList();
+				transactionTemplate.executeWithoutResult(status -> {
+					parkingSessionBatchRepository.updateAll(updated);
+					parkingSessionBatchRepository.insertAll(inserted);
+				});
+				return true;
+			} catch (RuntimeException e) {
+				if (isConflict(e) || attempt == MAX_FLUSH_ATTEMPTS) {
+					logger.warn("Storing {} session changes in one batch failed, storing them one at a time", inserts.size() + updates.size(), e);
+					return false;
+				}
+				logger.warn("Storing {} session changes failed, attempt {}", inserts.size() + updates.size(), attempt, e);
+				try {
+					Thread.sleep(flushInterval.toMillis() * attempt);
+				} catch (InterruptedException interrupted) {
+					// retried right away, the batch is never given up before its last attempt
+				}
+			}
+		}
+	}
+
+	/*
+	 * Stores one change of a failed batch in its own transaction, dropping it if that fails too
+	 */
+	private void store(ParkingSession session, boolean insert) {
+		try {
+			transactionTemplate.executeWithoutResult(status -> {
+				if (insert) {
+					parkingSessionBatchRepository.insertAll(List.of(session));
+				} else {
+					parkingSessionBatchRepository.updateAll(List.of(session));
+				}
+			});
+			recordEndedPlate(session);
+		} catch (RuntimeException e) {
+			if (insert) {
+				dropInsert(session, e);
+			} else {
+				dropUpdate(session, e);
+			}
+		}
+	}
+
+	private static boolean isConflict(RuntimeException e) {
+		return e instanceof DataIntegrityViolationException || e instanceof OptimisticLockingFailureException;
+	}
+
+	/*
+	 * Reverts the in-memory state of a dropped insert, the database keeps the last stored state of its plate
+	 */
+	private void dropInsert(ParkingSession session, RuntimeException e) {
+		logger.error("Session change dropped, not inserted : {}", session, e);
+		if (session.isActive()) {
+			ParkingSession indexed = activeSessionIndex.get(session.getLicensePlate());
+			if (indexed != null && session.getId().equals(indexed.getId())) {
+				activeSessionIndex.remove(session.getLicensePlate());
+			}
+			// its end may still be queued
+			droppedInserts.add(session.getId());
+		}
+		// added when the start was queued, whether or not the session has ended since
+		sessionPlateFilter.remove(session.getLicensePlate());
+		meterRegistry.counter("parking.sessions.write.behind.dropped").increment();
+	}
+
+	/*
+	 * Drops a failed update without recording its end, the database keeps the last stored state of its plate
+	 */
+	private void dropUpdate(ParkingSession session, RuntimeException e) {
+		logger.error("Session change dropped, not updated : {}", session, e);
+		meterRegistry.counter("parking.sessions.write.behind.dropped").increment();
+	}
+
+	/*
+	 * Records the plate of a stored session that has ended, enforcement reads a queued end only once it is stored
+	 */
+	private void recordEndedPlate(ParkingSession session) {
+		if (!session.isActive()) {
+			activeSessionIndex.addEndedPlate(session.getLicensePlate());
+		}
+	}
+
+	private record SessionChange(ParkingSession session, boolean insert) {
+	}
+}
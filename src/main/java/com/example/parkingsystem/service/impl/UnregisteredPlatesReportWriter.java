@@ -0,0 +1,201 @@
+package com.example.parkingsystem.service.impl;
+
+import com.example.parkingsystem.entity.LicensePlateObservation;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.zip.GZIPOutputStream;
+
+/*
+ * Writes unregistered plates reports one line at a time through a large NIO buffer, optionally gzipped.
+ * Every run goes to its own timestamped file which is written under a temporary name and atomically
+ * renamed once complete, so readers never see a partial report. Runs started in the same millisecond
+ * get numbered names, so one run never writes into or replaces the report of another.
+ */
+@Component
+public class UnregisteredPlatesReportWriter {
+
+	private static final Logger logger = LoggerFactory.getLogger(UnregisteredPlatesReportWriter.class);
+
+	public static final String REPORT_FILE_PREFIX = "unregistered_plates_report_";
+
+	private static final DateTimeFormatter REPORT_TIMESTAMP = DateTimeFormatter.ofPattern("yyyyMMdd'T'HHmmssSSS");
+
+	private static final String REPORT_HEADER = "Unregistered Plates Report\n==========================\n";
+
+	private static final int MAX_NAME_ATTEMPTS = 100;
+
+	private final Path reportDirectory;
+
+	private final boolean gzip;
+
+	private final int bufferSize;
+
+	public UnregisteredPlatesReportWriter(@Value("${parkingsystem.report.dir}") String reportDirectory,
+			@Value("${parkingsystem.report.gzip}") boolean gzip,
+			@Value("${parkingsystem.report.buffer-size}") int bufferSize) {
+		// normalized once, so the report lookups can compare the parent of a resolved report name with it
+		this.reportDirectory = Paths.get(reportDirectory).toAbsolutePath().normalize();
+		this.gzip = gzip;
+		this.bufferSize = bufferSize;
+	}
+
+	public Path getReportDirectory() {
+		return reportDirectory;
+	}
+
+	/*
+	 * Starts a new report run
+	 * @param runTime - time of the run, used in the report file name
+	 * @return the report to write the unregistered plates to
+	 * @throws RuntimeException, if the report file cannot be created
+	 */
+	public Report open(LocalDateTime runTime) {
+		String name = REPORT_FILE_PREFIX + REPORT_TIMESTAMP.format(runTime);
+		String extension = ".txt" + (gzip ? ".gz" : "");
+		try {
+			Files.createDirectories(reportDirectory);
+			for (int attempt = 0; attempt < MAX_NAME_ATTEMPTS; attempt++) {
+				Report report = tryOpen(reportDirectory.resolve(attempt == 0 ? name + extension : name + "_" + attempt + extension));
+				if (report != null) {
+					report.write(REPORT_HEADER);
+					return report;
+				}
+			}
+		} catch (IOException e) {
+			logger.error("Failed to create report file: " + e.getMessage());
+			throw new RuntimeException("Failed to create report file: " + name + extension);
+		}
+		logger.error("No free report file name for run : {}", runTime);
+		throw new RuntimeException("Failed to create report file: " + name + extension);
+	}
+
+	/*
+	 * Creates the temporary file of a report, which reserves the report name until the report is committed or discarded
+	 * @param reportFile - final name of the report
+	 * @return the report, or null if another run is writing or has published a report under that name
+	 */
+	private Report tryOpen(Path reportFile) throws IOException {
+		Path temporaryFile = reportFile.resolveSibling(reportFile.getFileName() + ".tmp");
+		FileChannel fileChannel;
+		try {
+			fileChannel = FileChannel.open(temporaryFile, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+		} catch (FileAlreadyExistsException e) {
+			return null;
+		}
+		// checked while holding the temporary name, a committing run renames its temporary file into the report atomically
+		if (Files.exists(reportFile)) {
+			fileChannel.close();
+			Files.delete(temporaryFile);
+			return null;
+		}
+		return new Report(reportFile, temporaryFile, fileChannel);
+	}
+
+	/*
+	 * A report being written. Nothing is visible under the final file name until commit() is called,
+	 * closing the report without committing discards it.
+	 */
+	public class Report implements Closeable {
+
+		private final Path reportFile;
+
+		private final Path temporaryFile;
+
+		private final FileChannel fileChannel;
+
+		private final WritableByteChannel target;
+
+		private final ByteBuffer buffer = ByteBuffer.allocateDirect(bufferSize);
+
+		private final StringBuilder line = new StringBuilder(128);
+
+		private long entries;
+
+		private boolean committed;
+
+		private Report(Path reportFile, Path temporaryFile, FileChannel fileChannel) throws IOException {
+			this.reportFile = reportFile;
+			this.temporaryFile = temporaryFile;
+			this.fileChannel = fileChannel;
+			this.target = gzip ? Channels.newChannel(new GZIPOutputStream(Channels.newOutputStream(fileChannel), bufferSize)) : fileChannel;
+		}
+
+		/*
+		 * Appends an unregistered plate to the report
+		 * @param data - observation of the unregistered plate
+		 */
+		public void write(LicensePlateObservation data) throws IOException {
+			line.setLength(0);
+			line.append("License Plate: ").append(data.getLicensePlate())
+				.append(", Street: ").append(data.getStreetName())
+				.append(", Date: ").append(data.getObservationTime())
+				.append('\n');
+			write(line);
+			entries++;
+		}
+
+		private void write(CharSequence text) throws IOException {
+			byte[] bytes = text.toString().getBytes(StandardCharsets.UTF_8);
+			if (buffer.remaining() < bytes.length) {
+				flush();
+			}
+			if (bytes.length > buffer.capacity()) {
+				target.write(ByteBuffer.wrap(bytes));
+			} else {
+				buffer.put(bytes);
+			}
+		}
+
+		private void flush() throws IOException {
+			buffer.flip();
+			while (buffer.hasRemaining()) {
+				target.write(buffer);
+			}
+			buffer.clear();
+		}
+
+		public long getEntries() {
+			return entries;
+		}
+
+		/*
+		 * Flushes the report and atomically publishes it under its final name
+		 * @return the published report file
+		 */
+		public Path commit() throws IOException {
+			flush();
+			target.close();
+			Files.move(temporaryFile, reportFile, StandardCopyOption.ATOMIC_MOVE);
+			committed = true;
+			logger.info("Report generated with {} unregistered plates: {}", entries, reportFile.toAbsolutePath());
+			return reportFile;
+		}
+
+		@Override
+		public void close() throws IOException {
+			if (!committed) {
+				target.close();
+				Files.deleteIfExists(temporaryFile);
+			}
+		}
+	}
+}
@@ -0,0 +1,204 @@
+package com.example.parkingsystem.config;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.env.StandardEnvironment;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class StreetPricingTest {
+
+    private final TariffCalendar tariffCalendar = TariffCalendar.compile(LocalTime.of(20, 59), LocalTime.of(8, 0),
+            List.of(LocalDate.of(2025, 3, 3)), ZoneId.of("Europe/Amsterdam"));
+
+    @TempDir
+    private Path pricingDirectory;
+
+    @Test
+    public void testCompile() {
+        StreetPricing streetPricing = StreetPricing.compile(Map.of("Java", 15, "Azure", 10, "Spring", 10), Map.of(), tariffCalendar);
+        assertEquals(3, streetPricing.size());
+        assertEquals(List.of("Azure", "Java", "Spring"), List.copyOf(streetPricing.getPrices().keySet()));
+        int java = streetPricing.streetId("Java");
+        assertEquals("Java", streetPricing.streetName(java));
+        assertEquals(15, streetPricing.pricePerMinute(java));
+        // Tuesday 4th March 2025
+        assertEquals(0.45, streetPricing.cost(java, LocalDateTime.of(2025, 3, 4, 10, 0), LocalDateTime.of(2025, 3, 4, 10, 3)));
+        assertEquals(-1, streetPricing.streetId("Jakarta"));
+        assertFalse(streetPricing.contains(null));
+    }
+
+    @Test
+    public void testCompileInvalidPrice() {
+        Map<String, Integer> prices = new HashMap<>();
+        prices.put("Java", -1);
+        RuntimeException exception = assertThrows(RuntimeException.class, () -> StreetPricing.compile(prices, Map.of(), tariffCalendar));
+        assertEquals("Invalid price for street name: Java", exception.getMessage());
+        exception = assertThrows(RuntimeException.class, () -> StreetPricing.compile(Map.of("Java", 15), Map.of("Java", List.of("MON-FRI 08:00=20")), tariffCalendar));
+        assertEquals("Invalid tariff band: MON-FRI 08:00=20", exception.getMessage());
+        exception = assertThrows(RuntimeException.class, () -> StreetPricing.compile(Map.of("Java", 15), Map.of("Spring", List.of("08:00-12:00=20")), tariffCalendar));
+        assertEquals("No street found for tariff bands of street name: Spring", exception.getMessage());
+    }
+
+    @Test
+    public void testCostWithTariffBands() {
+        StreetPricing streetPricing = StreetPricing.compile(Map.of("Java", 15),
+                Map.of("Java", List.of("MON-FRI 08:00-12:00=20", "SAT 10:00-11:00=30", "WED 09:00-10:00=5")), tariffCalendar);
+        int java = streetPricing.streetId("Java");
+        // Tuesday 4th March 2025, 2 peak minutes and 1 base minute
+        assertEquals(0.55, streetPricing.cost(java, LocalDateTime.of(2025, 3, 4, 11, 58), LocalDateTime.of(2025, 3, 4, 12, 1)));
+        // Wednesday 5th March 2025, the later band overrides the peak band
+        assertEquals(0.05, streetPricing.cost(java, LocalDateTime.of(2025, 3, 5, 9, 0), LocalDateTime.of(2025, 3, 5, 9, 1)));
+        // Saturday 1st March 2025 until Tuesday 4th March 2025 10:00, Sunday and the holiday on Monday are free
+        long expected = 2 * 60 * 15 + 60 * 30 + 9 * 60 * 15 + 60 * 15 + 2 * 60 * 20;
+        assertEquals(expected / 100.0, streetPricing.cost(java, LocalDateTime.of(2025, 3, 1, 8, 0), LocalDateTime.of(2025, 3, 4, 10, 0)));
+    }
+
+    @Test
+    public void testCostOfCountedChargeableMinutes() {
+        StreetPricing streetPricing = StreetPricing.compile(Map.of("Java", 15, "Spring", 10), Map.of("Java", List.of("MON-FRI 08:00-12:00=20")), tariffCalendar);
+        // Saturday 1st March 2025 until Tuesday 4th March 2025 10:00, Sunday and the holiday on Monday are free
+        LocalDateTime from = LocalDateTime.of(2025, 3, 1, 8, 0);
+        LocalDateTime to = LocalDateTime.of(2025, 3, 4, 10, 0);
+        long chargeableMinutes = tariffCalendar.chargeableMinutes(from, to);
+        for (String streetName : List.of("Java", "Spring")) {
+            int streetId = streetPricing.streetId(streetName);
+            assertEquals(streetPricing.cost(streetId, from, to), streetPricing.cost(streetId, from, to, chargeableMinutes));
+        }
+        // a street without tariff bands is priced from the count alone
+        assertEquals(0.3, streetPricing.cost(streetPricing.streetId("Spring"), from, to, 3));
+    }
+
+    @Test
+    public void testCostMatchesPerMinuteWalk() {
+        StreetPricing streetPricing = StreetPricing.compile(Map.of("Java", 15), Map.of("Java", List.of("MON-FRI 08:00-12:00=20", "FRI-MON 20:00-09:00=7")), tariffCalendar);
+        TariffBand peak = TariffBand.parse("MON-FRI 08:00-12:00=20");
+        TariffBand night = TariffBand.parse("FRI-MON 20:00-09:00=7");
+        LocalDateTime start = LocalDateTime.of(2025, 2, 26, 13, 17);
+        for (int hours : new int[] {0, 1, 7, 13, 24, 49, 24 * 8 + 5, 24 * 40 + 11}) {
+            LocalDateTime end = start.plusHours(hours).plusMinutes(hours % 59);
+            long expected = 0;
+            for (LocalDateTime time = start; time.isBefore(end); time = time.plusMinutes(1)) {
+                if (tariffCalendar.isChargeable(time)) {
+                    int minuteOfWeek = (time.getDayOfWeek().getValue() - 1) * TariffCalendar.MINUTES_PER_DAY + time.getHour() * 60 + time.getMinute();
+                    expected += night.covers(minuteOfWeek) ? 7 : peak.covers(minuteOfWeek) ? 20 : 15;
+                }
+            }
+            assertEquals(expected / 100.0, streetPricing.cost(0, start, end), "session of " + hours + " hours");
+        }
+    }
+
+    @Test
+    public void testRefreshFromPricingFile() throws IOException {
+        Path pricingFile = pricingDirectory.resolve("pricing.properties");
+        Files.writeString(pricingFile, "parkingsystem.street.values.Java=15\n");
+        StreetParkingPricing streetParkingPricing = new StreetParkingPricing();
+        streetParkingPricing.setValues(Map.of("Spring", 10));
+        TariffCalendarConfig tariffCalendarConfig = mock(TariffCalendarConfig.class);
+        when(tariffCalendarConfig.getTariffCalendar()).thenReturn(tariffCalendar);
+        when(tariffCalendarConfig.compile(any(), any(), any())).thenReturn(new TariffCalendarConfig.CompiledCalendar(tariffCalendar, null));
+        StreetPricingConfig streetPricingConfig = new StreetPricingConfig(streetParkingPricing, new StandardEnvironment(), tariffCalendarConfig);
+        ReflectionTestUtils.setField(streetPricingConfig, "pricingFile", pricingFile.toString());
+        streetPricingConfig.init();
+        StreetPricing initial = streetPricingConfig.getStreetPricing();
+        assertEquals(Map.of("Java", 15), initial.getPrices());
+
+        // an invalid file keeps the current snapshot
+        Files.writeString(pricingFile, "parkingsystem.street.values.Java=free\n");
+        Files.setLastModifiedTime(pricingFile, FileTime.fromMillis(Files.getLastModifiedTime(pricingFile).toMillis() + 1000));
+        streetPricingConfig.refreshIfModified();
+        assertSame(initial, streetPricingConfig.getStreetPricing());
+
+        // a file without any street price keeps the current snapshot
+        Files.writeString(pricingFile, "parkingsystem.street.bands.Java=MON-FRI 08:00-12:00=25\n");
+        RuntimeException exception = assertThrows(RuntimeException.class, streetPricingConfig::refresh);
+        assertEquals("No street prices found in parkingsystem.street.values.*", exception.getMessage());
+        assertSame(initial, streetPricingConfig.getStreetPricing());
+
+        Files.writeString(pricingFile, "parkingsystem.street.values.Java=20\nparkingsystem.street.values.Jakarta=13\nparkingsystem.street.bands.Java=MON-FRI 08:00-12:00=25,SAT 10:00-12:00=30\n");
+        Files.setLastModifiedTime(pricingFile, FileTime.fromMillis(Files.getLastModifiedTime(pricingFile).toMillis() + 2000));
+        streetPricingConfig.refreshIfModified();
+        StreetPricing refreshed = streetPricingConfig.getStreetPricing();
+        assertEquals(Map.of("Jakarta", 13, "Java", 20), refreshed.getPrices());
+        assertEquals(List.of("MON-FRI 08:00-12:00=25", "SAT 10:00-12:00=30"), refreshed.getBands().get("Java"));
+        // the old snapshot is never changed
+        assertEquals(Map.of("Java", 15), initial.getPrices());
+
+        // a rebuilt tariff calendar recompiles the same prices
+        TariffCalendar rebuilt = TariffCalendar.compile(LocalTime.of(20, 59), LocalTime.of(8, 0), List.of(), ZoneId.of("Europe/Amsterdam"));
+        when(tariffCalendarConfig.getTariffCalendar()).thenReturn(rebuilt);
+        StreetPricing recompiled = streetPricingConfig.getStreetPricing();
+        assertSame(rebuilt, recompiled.getTariffCalendar());
+        assertEquals(refreshed.getBands(), recompiled.getBands());
+        assertSame(recompiled, streetPricingConfig.getStreetPricing());
+    }
+
+    @Test
+    public void testRefreshRebuildsTariffCalendar() throws IOException {
+        Path pricingFile = pricingDirectory.resolve("pricing.properties");
+        Files.writeString(pricingFile, "parkingsystem.street.values.Java=15\n");
+        HolidayConfig holidayConfig = new HolidayConfig();
+        ReflectionTestUtils.setField(holidayConfig, "holidays", "2025-01-01");
+        holidayConfig.init();
+        FreeParkingTimingConfig freeParkingTimingConfig = new FreeParkingTimingConfig();
+        ReflectionTestUtils.setField(freeParkingTimingConfig, "freeParkingStartTime", "20:59");
+        ReflectionTestUtils.setField(freeParkingTimingConfig, "freeParkingEndTime", "08:00");
+        freeParkingTimingConfig.init();
+        TariffCalendarConfig tariffCalendarConfig = new TariffCalendarConfig(holidayConfig, freeParkingTimingConfig);
+        ReflectionTestUtils.setField(tariffCalendarConfig, "timezone", "Europe/Amsterdam");
+        tariffCalendarConfig.init();
+        StreetPricingConfig streetPricingConfig = new StreetPricingConfig(new StreetParkingPricing(), new StandardEnvironment(), tariffCalendarConfig);
+        ReflectionTestUtils.setField(streetPricingConfig, "pricingFile", pricingFile.toString());
+        streetPricingConfig.init();
+        TariffCalendar initial = tariffCalendarConfig.getTariffCalendar();
+        // the calendar is not recompiled while its settings are unchanged
+        streetPricingConfig.refresh();
+        assertSame(initial, tariffCalendarConfig.getTariffCalendar());
+        LocalDateTime monday = LocalDateTime.of(2025, 3, 3, 10, 0);
+        assertEquals(0.15, streetPricingConfig.getStreetPricing().cost(0, monday, monday.plusMinutes(1)));
+
+        Files.writeString(pricingFile, "parkingsystem.street.values.Java=15\nparkingsystem.holidays=2025-01-01,2025-03-03\nparkingsystem.freeparking.endtime=09:00\n");
+        Files.setLastModifiedTime(pricingFile, FileTime.fromMillis(Files.getLastModifiedTime(pricingFile).toMillis() + 1000));
+        streetPricingConfig.refreshIfModified();
+        TariffCalendar rebuilt = tariffCalendarConfig.getTariffCalendar();
+        assertNotSame(initial, rebuilt);
+        assertTrue(rebuilt.isHoliday(LocalDate.of(2025, 3, 3)));
+        assertFalse(rebuilt.isChargeable(LocalDateTime.of(2025, 3, 4, 8, 30)));
+        assertSame(rebuilt, streetPricingConfig.getStreetPricing().getTariffCalendar());
+        assertEquals(0, streetPricingConfig.getStreetPricing().cost(0, monday, monday.plusMinutes(1)));
+
+        // invalid settings keep the current calendar and prices
+        StreetPricing current = streetPricingConfig.getStreetPricing();
+        Files.writeString(pricingFile, "parkingsystem.street.values.Java=15\nparkingsystem.holidays=2025-02-30\n");
+        Files.setLastModifiedTime(pricingFile, FileTime.fromMillis(Files.getLastModifiedTime(pricingFile).toMillis() + 2000));
+        streetPricingConfig.refreshIfModified();
+        assertSame(rebuilt, tariffCalendarConfig.getTariffCalendar());
+        assertSame(current, streetPricingConfig.getStreetPricing());
+
+        // an invalid price table keeps the current calendar as well, even with new calendar settings
+        Files.writeString(pricingFile, "parkingsystem.street.values.Java=-1\nparkingsystem.holidays=2025-01-01\n");
+        assertThrows(RuntimeException.class, streetPricingConfig::refresh);
+        assertSame(rebuilt, tariffCalendarConfig.getTariffCalendar());
+        assertSame(current, streetPricingConfig.getStreetPricing());
+
+        // a calendar rebuilt from outside a refresh recompiles the current prices when they are next read
+        tariffCalendarConfig.rebuild(null, null, null);
+        assertNotSame(rebuilt, tariffCalendarConfig.getTariffCalendar());
+        assertSame(tariffCalendarConfig.getTariffCalendar(), streetPricingConfig.getStreetPricing().getTariffCalendar());
+        assertEquals(current.getPrices(), streetPricingConfig.getStreetPricing().getPrices());
+    }
+}
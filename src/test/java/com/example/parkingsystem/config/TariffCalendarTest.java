@@ -0,0 +1,58 @@
+package com.example.parkingsystem.config;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TariffCalendarTest {
+
+    private final TariffCalendar tariffCalendar = TariffCalendar.compile(LocalTime.of(20, 59), LocalTime.of(8, 0),
+            List.of(LocalDate.of(2025, 3, 3), LocalDate.of(2025, 3, 9)), ZoneId.of("Europe/Amsterdam"));
+
+    @Test
+    public void testChargeableMinutesWithinOneDay() {
+        // Saturday 1st March 2025
+        assertEquals(60, tariffCalendar.chargeableMinutes(LocalDateTime.of(2025, 3, 1, 20, 0), LocalDateTime.of(2025, 3, 1, 23, 0)));
+        assertEquals(780, tariffCalendar.chargeableMinutes(LocalDateTime.of(2025, 3, 1, 0, 0), LocalDateTime.of(2025, 3, 2, 0, 0)));
+        assertEquals(0, tariffCalendar.chargeableMinutes(LocalDateTime.of(2025, 3, 1, 7, 0), LocalDateTime.of(2025, 3, 1, 8, 0)));
+    }
+
+    @Test
+    public void testChargeableMinutesEndNotAfterStart() {
+        LocalDateTime time = LocalDateTime.of(2025, 3, 4, 10, 0);
+        assertEquals(0, tariffCalendar.chargeableMinutes(time, time));
+        assertEquals(0, tariffCalendar.chargeableMinutes(time, time.minusHours(1)));
+    }
+
+    @Test
+    public void testChargeableMinutesMatchesPerMinuteWalk() {
+        LocalDateTime start = LocalDateTime.of(2025, 2, 26, 13, 17);
+        for (int hours : new int[] {0, 1, 7, 13, 24, 49, 24 * 8 + 5, 24 * 40 + 11}) {
+            LocalDateTime end = start.plusHours(hours).plusMinutes(hours % 59);
+            long expected = 0;
+            for (LocalDateTime time = start; time.isBefore(end); time = time.plusMinutes(1)) {
+                if (tariffCalendar.isChargeable(time)) {
+                    expected++;
+                }
+            }
+            assertEquals(expected, tariffCalendar.chargeableMinutes(start, end), "session of " + hours + " hours");
+        }
+    }
+
+    @Test
+    public void testIsChargeable() {
+        assertTrue(tariffCalendar.isChargeable(LocalDateTime.of(2025, 3, 4, 8, 0)));
+        assertTrue(tariffCalendar.isChargeable(LocalDateTime.of(2025, 3, 4, 20, 59)));
+        assertFalse(tariffCalendar.isChargeable(LocalDateTime.of(2025, 3, 4, 21, 0)));
+        assertFalse(tariffCalendar.isChargeable(LocalDateTime.of(2025, 3, 4, 7, 59)));
+        // Sunday and holiday
+        assertFalse(tariffCalendar.isChargeable(LocalDateTime.of(2025, 3, 2, 12, 0)));
+        assertFalse(tariffCalendar.isChargeable(LocalDateTime.of(2025, 3, 3, 12, 0)));
+    }
+}
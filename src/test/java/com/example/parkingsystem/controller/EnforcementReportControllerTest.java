@@ -0,0 +1,129 @@
+package com.example.parkingsystem.controller;
+
+import com.example.parkingsystem.dto.EnforcementReport;
+import com.example.parkingsystem.exception.GlobalExceptionHandler;
+import com.example.parkingsystem.exception.NotFoundException;
+import com.example.parkingsystem.service.impl.EnforcementReportServiceImpl;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+public class EnforcementReportControllerTest {
+    private static final String REPORT_NAME = "unregistered_plates_report_20250303T101500000.txt";
+    private static final String REPORT_CONTENT = "Unregistered Plates Report\n==========================\nLicense Plate: TN5678, Street: Jakarta, Date: 2025-03-03T10:15\n";
+
+    @Mock
+    private EnforcementReportServiceImpl enforcementReportService;
+
+    @InjectMocks
+    private EnforcementReportController controller;
+
+    @TempDir
+    private Path reportDirectory;
+
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        MockitoAnnotations.openMocks(this);
+        mockMvc = MockMvcBuilders.standaloneSetup(controller).setControllerAdvice(new GlobalExceptionHandler()).build();
+        Path report = Files.writeString(reportDirectory.resolve(REPORT_NAME), REPORT_CONTENT);
+        when(enforcementReportService.getReport(REPORT_NAME)).thenReturn(report);
+    }
+
+    @Test
+    public void testListReports() throws Exception {
+        when(enforcementReportService.listReports()).thenReturn(List.of(new EnforcementReport(REPORT_NAME, REPORT_CONTENT.length(), Instant.parse("2025-03-03T09:15:00Z"), false)));
+
+        mockMvc.perform(get("/api/reports"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].name").value(REPORT_NAME))
+                .andExpect(jsonPath("$[0].size").value(REPORT_CONTENT.length()));
+    }
+
+    @Test
+    public void testDownloadReport() throws Exception {
+        mockMvc.perform(get("/api/reports/" + REPORT_NAME))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ACCEPT_RANGES, "bytes"))
+                .andExpect(header().longValue(HttpHeaders.CONTENT_LENGTH, REPORT_CONTENT.length()))
+                .andExpect(content().string(REPORT_CONTENT));
+    }
+
+    @Test
+    public void testDownloadReportRange() throws Exception {
+        mockMvc.perform(get("/api/reports/" + REPORT_NAME).header(HttpHeaders.RANGE, "bytes=0-25"))
+                .andExpect(status().isPartialContent())
+                .andExpect(header().string(HttpHeaders.CONTENT_RANGE, "bytes 0-25/" + REPORT_CONTENT.length()))
+                .andExpect(content().string("Unregistered Plates Report"));
+
+        mockMvc.perform(get("/api/reports/" + REPORT_NAME).header(HttpHeaders.RANGE, "bytes=-16"))
+                .andExpect(status().isPartialContent())
+                .andExpect(content().string("025-03-03T10:15\n"));
+    }
+
+    @Test
+    public void testDownloadReportRangeNotSatisfiable() throws Exception {
+        mockMvc.perform(get("/api/reports/" + REPORT_NAME).header(HttpHeaders.RANGE, "bytes=" + REPORT_CONTENT.length() + "-"))
+                .andExpect(status().isRequestedRangeNotSatisfiable())
+                .andExpect(header().string(HttpHeaders.CONTENT_RANGE, "bytes */" + REPORT_CONTENT.length()));
+    }
+
+    @Test
+    public void testDownloadReportWithSendfile() throws Exception {
+        mockMvc.perform(get("/api/reports/" + REPORT_NAME)
+                .header(HttpHeaders.RANGE, "bytes=10-")
+                .requestAttr(EnforcementReportController.SENDFILE_SUPPORT, Boolean.TRUE))
+                .andExpect(status().isPartialContent())
+                .andExpect(request().attribute(EnforcementReportController.SENDFILE_START, 10L))
+                .andExpect(request().attribute(EnforcementReportController.SENDFILE_END, (long) REPORT_CONTENT.length()))
+                .andExpect(content().string(""));
+    }
+
+    @Test
+    public void testDownloadReportForStreet() throws Exception {
+        doAnswer(invocation -> {
+            OutputStream output = invocation.getArgument(2);
+            output.write("License Plate: TN5678, Street: Jakarta, Date: 2025-03-03T10:15\n".getBytes(StandardCharsets.UTF_8));
+            return null;
+        }).when(enforcementReportService).writeReportForStreet(eq(REPORT_NAME), eq("Jakarta"), any(OutputStream.class));
+
+        mockMvc.perform(get("/api/reports/" + REPORT_NAME).param("streetName", "Jakarta"))
+                .andExpect(status().isOk())
+                .andExpect(content().string("License Plate: TN5678, Street: Jakarta, Date: 2025-03-03T10:15\n"));
+    }
+
+    @Test
+    public void testDownloadUnknownReport() throws Exception {
+        when(enforcementReportService.getReport("missing.txt")).thenThrow(new NotFoundException("No report found for name: missing.txt"));
+
+        mockMvc.perform(get("/api/reports/missing.txt"))
+                .andExpect(status().isNotFound())
+                .andExpect(jsonPath("$.message").value("No report found for name: missing.txt"))
+                .andExpect(jsonPath("$.status").value(404));
+        mockMvc.perform(get("/api/reports/missing.txt").param("streetName", "Jakarta"))
+                .andExpect(status().isNotFound())
+                .andExpect(jsonPath("$.status").value(404));
+        verify(enforcementReportService, never()).writeReportForStreet(any(), any(), any());
+    }
+}
@@ -1,10 +1,23 @@
 package com.example.parkingsystem.controller;
 
+import com.example.parkingsystem.dto.IngestJobStatus;
+import com.example.parkingsystem.dto.ObservationUploadResult;
+import com.example.parkingsystem.dto.SessionCommand;
+import com.example.parkingsystem.dto.SessionCommandResult;
+import com.example.parkingsystem.dto.SessionHistoryEntry;
+import com.example.parkingsystem.dto.SessionHistoryQuery;
+import com.example.parkingsystem.dto.SessionQuote;
 import com.example.parkingsystem.entity.LicensePlateObservation;
 import com.example.parkingsystem.entity.ParkingSession;
+import com.example.parkingsystem.exception.GlobalExceptionHandler;
+import com.example.parkingsystem.exception.ServiceUnavailableException;
+import com.example.parkingsystem.exception.NotFoundException;
+import com.example.parkingsystem.service.ObservationUploadFormat;
 import com.example.parkingsystem.service.impl.LicensePlateObservationServiceImpl;
+import com.example.parkingsystem.service.impl.ObservationIngestJobs;
 import com.example.parkingsystem.service.impl.ParkingSessionServiceImpl;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
 
 import org.junit.jupiter.api.BeforeEach;
@@ -12,15 +25,24 @@ import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.mockito.Spy;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 
+import java.io.InputStream;
 import java.time.LocalDateTime;
+import java.time.ZoneOffset;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.stream.Stream;
 
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
@@ -30,6 +52,12 @@ public class ParkingSessionControllerTest {
     
     @Mock
     private LicensePlateObservationServiceImpl licensePlateObservationService;
+    
+    @Mock
+    private ObservationIngestJobs observationIngestJobs;
+    
+    @Spy
+    private ObjectMapper objectMapper = new ObjectMapper().registerModule(new JavaTimeModule()).disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
 
     @InjectMocks
     private ParkingSessionController controller;
@@ -39,7 +67,7 @@ public class ParkingSessionControllerTest {
        @BeforeEach
     public void setUp() {
         MockitoAnnotations.openMocks(this);
-        mockMvc = MockMvcBuilders.standaloneSetup(controller).build();
+        mockMvc = MockMvcBuilders.standaloneSetup(controller).setControllerAdvice(new GlobalExceptionHandler()).build();
     }
 
     @Test
@@ -47,6 +75,8 @@ public class ParkingSessionControllerTest {
         ParkingSession session = new ParkingSession();
         session.setLicensePlate("ABC123");
         session.setStreetName("Java");
+        session.setActiveLicensePlate("ABC123");
+        session.setVersion(0L);
 
         when(service.startSession("ABC123", "Java")).thenReturn(session);
 
@@ -56,11 +86,93 @@ public class ParkingSessionControllerTest {
                 .contentType(MediaType.APPLICATION_JSON))
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$.licensePlate").value("ABC123"))
-                .andExpect(jsonPath("$.streetName").value("Java"));
+                .andExpect(jsonPath("$.streetName").value("Java"))
+                .andExpect(jsonPath("$.activeLicensePlate").doesNotExist())
+                .andExpect(jsonPath("$.version").doesNotExist());
 
         verify(service, times(1)).startSession("ABC123", "Java");
     }
 
+    @Test
+    public void testApplySessionCommands() throws Exception {
+        ParkingSession session = new ParkingSession();
+        session.setLicensePlate("ABC123");
+        session.setStreetName("Java");
+        SessionCommand start = new SessionCommand();
+        start.setAction(SessionCommand.Action.START);
+        start.setLicensePlate("ABC123");
+        start.setStreetName("Java");
+        SessionCommand end = new SessionCommand();
+        end.setAction(SessionCommand.Action.END);
+        end.setLicensePlate("XYZ789");
+
+        when(service.applySessionCommands(List.of(start, end))).thenReturn(List.of(
+        		SessionCommandResult.succeeded(start, session),
+        		SessionCommandResult.failed(end, "No active session found for license plate: XYZ789")));
+
+        mockMvc.perform(post("/api/parking/sessions")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("[{\"action\":\"START\",\"licensePlate\":\"ABC123\",\"streetName\":\"Java\"},{\"action\":\"END\",\"licensePlate\":\"XYZ789\"}]"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].success").value(true))
+                .andExpect(jsonPath("$[0].session.streetName").value("Java"))
+                .andExpect(jsonPath("$[1].success").value(false))
+                .andExpect(jsonPath("$[1].error").value("No active session found for license plate: XYZ789"));
+    }
+
+    @Test
+    public void testGetSessionHistory() throws Exception {
+        ParkingSession archivedSession = new ParkingSession();
+        archivedSession.setLicensePlate("ABC123");
+        archivedSession.setStreetName("Java");
+        archivedSession.setCost(150);
+        ParkingSession activeSession = new ParkingSession();
+        activeSession.setLicensePlate("ABC123");
+        activeSession.setStreetName("Spring");
+        activeSession.setActive(true);
+
+        when(service.getSessionHistory("ABC123")).thenReturn(List.of(archivedSession, activeSession));
+
+        mockMvc.perform(get("/api/parking/sessions")
+                .param("licensePlate", "ABC123"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(2))
+                .andExpect(jsonPath("$[0].cost").value(150))
+                .andExpect(jsonPath("$[1].streetName").value("Spring"));
+    }
+
+    @Test
+    public void testQuoteSession() throws Exception {
+        SessionQuote quote = new SessionQuote(7L, "ABC123", "Java", LocalDateTime.of(2025, 3, 4, 10, 0), LocalDateTime.of(2025, 3, 4, 10, 3), 0.45);
+        when(service.quoteSession("ABC123")).thenReturn(quote);
+        String eTag = "\"7-" + LocalDateTime.of(2025, 3, 4, 10, 3).toEpochSecond(ZoneOffset.UTC) / 60 + "-45\"";
+
+        mockMvc.perform(get("/api/parking/quote")
+                .param("licensePlate", "ABC123"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", eTag))
+                .andExpect(header().string("Cache-Control", org.hamcrest.Matchers.startsWith("max-age=")))
+                .andExpect(jsonPath("$.cost").value(0.45))
+                .andExpect(jsonPath("$.sessionId").value(7));
+
+        mockMvc.perform(get("/api/parking/quote")
+                .param("licensePlate", "ABC123")
+                .header("If-None-Match", eTag))
+                .andExpect(status().isNotModified())
+                .andExpect(content().string(""));
+    }
+
+    @Test
+    public void testQuoteSessionNotFound() throws Exception {
+        when(service.quoteSession("ABC123")).thenThrow(new NotFoundException("No active session found for license plate: ABC123"));
+
+        mockMvc.perform(get("/api/parking/quote")
+                .param("licensePlate", "ABC123"))
+                .andExpect(status().isNotFound())
+                .andExpect(jsonPath("$.message").value("No active session found for license plate: ABC123"))
+                .andExpect(jsonPath("$.status").value(404));
+    }
+
     @Test
     public void testEndSession() throws Exception {
         ParkingSession session = new ParkingSession();
@@ -94,13 +206,126 @@ public class ParkingSessionControllerTest {
     	licensePlateObservations.add(licensePlateObservation);
     	String licensePlateRequestJson = new ObjectMapper().registerModule(new JavaTimeModule()).writeValueAsString(licensePlateObservations);
 
-        doNothing().when(licensePlateObservationService).uploadObservations(licensePlateObservations);
+        when(licensePlateObservationService.uploadObservations(licensePlateObservations)).thenReturn(new ObservationUploadResult("batch-1", 1));
 
         mockMvc.perform(post("/api/parking/upload-observations")
                 .content(licensePlateRequestJson)
                 .contentType(MediaType.APPLICATION_JSON))
-                .andExpect(status().isOk());
+                .andExpect(status().isOk())
+                .andExpect(header().string(ParkingSessionController.UPLOAD_BATCH_ID_HEADER, "batch-1"));
 
         verify(licensePlateObservationService, times(1)).uploadObservations(licensePlateObservations);
     }
+    
+    @Test
+    public void testUploadObservationStream() throws Exception {
+        when(licensePlateObservationService.uploadObservations(any(InputStream.class), eq(ObservationUploadFormat.CSV))).thenReturn(new ObservationUploadResult("batch-2", 2));
+
+        mockMvc.perform(post("/api/parking/upload-observations")
+                .content("TN1234,Java,2025-03-03T10:15\nTN5678,Jakarta,2025-03-03T10:16\n")
+                .contentType("text/csv"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(ParkingSessionController.UPLOAD_BATCH_ID_HEADER, "batch-2"))
+                .andExpect(content().string("Observations uploaded: 2"));
+
+        verify(licensePlateObservationService, times(1)).uploadObservations(any(InputStream.class), eq(ObservationUploadFormat.CSV));
+    }
+    
+    @Test
+    public void testSubmitObservationUpload() throws Exception {
+        IngestJobStatus job = new IngestJobStatus("job-1", IngestJobStatus.State.QUEUED, "CSV", LocalDateTime.of(2025, 3, 3, 10, 0), null, null, 60, 0, 0, null, null);
+        when(observationIngestJobs.submit(any(InputStream.class), eq(ObservationUploadFormat.CSV))).thenReturn(job);
+
+        mockMvc.perform(post("/api/parking/upload-observations/jobs")
+                .content("TN1234,Java,2025-03-03T10:15\nTN5678,Jakarta,2025-03-03T10:16\n")
+                .contentType("text/csv"))
+                .andExpect(status().isAccepted())
+                .andExpect(header().string("Location", "/api/parking/upload-observations/jobs/job-1"))
+                .andExpect(jsonPath("$.state").value("QUEUED"));
+
+        verify(observationIngestJobs, times(1)).submit(any(InputStream.class), eq(ObservationUploadFormat.CSV));
+        verifyNoInteractions(licensePlateObservationService);
+    }
+    
+    @Test
+    public void testSubmitObservationUploadRejectedWhenQueueIsFull() throws Exception {
+        when(observationIngestJobs.submit(any(InputStream.class), eq(ObservationUploadFormat.CSV)))
+        		.thenThrow(new ServiceUnavailableException("Ingest queue is full, try again later"));
+
+        mockMvc.perform(post("/api/parking/upload-observations/jobs")
+                .content("TN1234,Java,2025-03-03T10:15\n")
+                .contentType("text/csv"))
+                .andExpect(status().isServiceUnavailable())
+                .andExpect(jsonPath("$.message").value("Ingest queue is full, try again later"))
+                .andExpect(jsonPath("$.status").value(503));
+    }
+    
+    @Test
+    public void testGetObservationUpload() throws Exception {
+        IngestJobStatus job = new IngestJobStatus("job-1", IngestJobStatus.State.RUNNING, "CSV", LocalDateTime.of(2025, 3, 3, 10, 0),
+        		LocalDateTime.of(2025, 3, 3, 10, 1), null, 60, 30, 1000, null, null);
+        when(observationIngestJobs.getStatus("job-1")).thenReturn(job);
+
+        mockMvc.perform(get("/api/parking/upload-observations/jobs/job-1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.state").value("RUNNING"))
+                .andExpect(jsonPath("$.bytesRead").value(30))
+                .andExpect(jsonPath("$.observations").value(1000));
+    }
+    
+    @Test
+    public void testGetObservationUploadNotFound() throws Exception {
+        when(observationIngestJobs.getStatus("job-1")).thenThrow(new NotFoundException("No ingest job found for job id: job-1"));
+
+        mockMvc.perform(get("/api/parking/upload-observations/jobs/job-1"))
+                .andExpect(status().isNotFound())
+                .andExpect(jsonPath("$.message").value("No ingest job found for job id: job-1"))
+                .andExpect(jsonPath("$.status").value(404));
+    }
+    
+    @Test
+    public void testIdentifyUnregisteredPlatesInBatches() throws Exception {
+        mockMvc.perform(post("/api/parking/enforcement")
+                .param("batchId", "batch-1", "batch-2"))
+                .andExpect(status().isOk());
+
+        verify(licensePlateObservationService, times(1)).identifyUnregisteredPlates(List.of("batch-1", "batch-2"));
+    }
+    
+    @Test
+    public void testIdentifyAllUnregisteredPlates() throws Exception {
+        mockMvc.perform(post("/api/parking/enforcement"))
+                .andExpect(status().isOk());
+
+        verify(licensePlateObservationService, times(1)).identifyUnregisteredPlates();
+        verify(licensePlateObservationService, never()).identifyNewUnregisteredPlates();
+    }
+    
+    @Test
+    public void testStreamSessionHistory() throws Exception {
+        when(service.streamSessionHistory(any(SessionHistoryQuery.class))).thenReturn(Stream.of(
+        		new SessionHistoryEntry(7L, "ABC123", "Java", LocalDateTime.of(2025, 3, 3, 10, 0), LocalDateTime.of(2025, 3, 3, 11, 0), 1.5, false),
+        		new SessionHistoryEntry(9L, "ABC123", "Jakarta", LocalDateTime.of(2025, 3, 4, 9, 0), null, 0, true)));
+
+        MvcResult result = mockMvc.perform(get("/api/parking/sessions/history")
+                .param("licensePlate", "ABC123")
+                .param("from", "2025-03-01T00:00:00")
+                .param("afterStartTime", "2025-03-02T08:00:00")
+                .param("afterId", "3")
+                .param("limit", "2"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("application/x-ndjson"))
+                .andExpect(content().string("{\"id\":7,\"licensePlate\":\"ABC123\",\"streetName\":\"Java\",\"startTime\":\"2025-03-03T10:00:00\","
+                		+ "\"endTime\":\"2025-03-03T11:00:00\",\"cost\":1.5,\"active\":false}\n"
+                		+ "{\"id\":9,\"licensePlate\":\"ABC123\",\"streetName\":\"Jakarta\",\"startTime\":\"2025-03-04T09:00:00\","
+                		+ "\"endTime\":null,\"cost\":0.0,\"active\":true}\n"));
+
+        verify(service, times(1)).streamSessionHistory(argThat(query -> "ABC123".equals(query.getLicensePlate())
+        		&& LocalDateTime.of(2025, 3, 1, 0, 0).equals(query.getFrom()) && LocalDateTime.of(2025, 3, 2, 8, 0).equals(query.getAfterStartTime())
+        		&& Long.valueOf(3).equals(query.getAfterId()) && Integer.valueOf(2).equals(query.getLimit())));
+    }
 }
@@ -0,0 +1,62 @@
+package com.example.parkingsystem.controller;
+
+import com.example.parkingsystem.config.StreetPricing;
+import com.example.parkingsystem.config.StreetPricingConfig;
+import com.example.parkingsystem.config.TariffCalendar;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.Map;
+
+import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+public class StreetPricingControllerTest {
+    private static final TariffCalendar TARIFF_CALENDAR = TariffCalendar.compile(LocalTime.of(20, 59), LocalTime.of(8, 0), List.of(), ZoneId.of("Europe/Amsterdam"));
+
+    @Mock
+    private StreetPricingConfig streetPricingConfig;
+
+    @InjectMocks
+    private StreetPricingController controller;
+
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    public void setUp() {
+        MockitoAnnotations.openMocks(this);
+        mockMvc = MockMvcBuilders.standaloneSetup(controller).build();
+    }
+
+    @Test
+    public void testGetPrices() throws Exception {
+        when(streetPricingConfig.getStreetPricing()).thenReturn(StreetPricing.compile(Map.of("Java", 15), Map.of(), TARIFF_CALENDAR));
+
+        mockMvc.perform(get("/api/parking/pricing"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.Java").value(15));
+    }
+
+    @Test
+    public void testRefreshPrices() throws Exception {
+        when(streetPricingConfig.refresh()).thenReturn(StreetPricing.compile(Map.of("Java", 20, "Jakarta", 13), Map.of(), TARIFF_CALENDAR));
+
+        mockMvc.perform(post("/api/parking/pricing/refresh"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.Java").value(20))
+                .andExpect(jsonPath("$.Jakarta").value(13));
+
+        verify(streetPricingConfig, times(1)).refresh();
+    }
+}
@@ -0,0 +1,170 @@
+package com.example.parkingsystem.repository;
+
+import com.example.parkingsystem.dto.SessionHistoryEntry;
+import com.example.parkingsystem.dto.SessionHistoryQuery;
+import com.example.parkingsystem.entity.ParkingSession;
+import com.example.parkingsystem.service.ParkingSessionService;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/*
+ * Runs the archive move and the queries across the live and archive tables against the real database. The sessions
+ * are from 2020, so that no other test's sessions are archived or read.
+ */
+@SpringBootTest(properties = {
+		"parkingsystem.cron.unregistered.plates=-",
+		"parkingsystem.cron.observations.retention=-",
+		"parkingsystem.cron.sessions.archive=-",
+		"parkingsystem.report.dir=target/test-reports"
+})
+public class ParkingSessionBatchRepositoryTest {
+
+	private static final LocalDateTime DAY = LocalDateTime.of(2020, 1, 1, 0, 0);
+
+	@Autowired
+	private ParkingSessionBatchRepository parkingSessionBatchRepository;
+
+	@Autowired
+	private ParkingSessionArchiveRepository parkingSessionArchiveRepository;
+
+	@Autowired
+	private ParkingSessionRepository parkingSessionRepository;
+
+	@Autowired
+	private ParkingSessionService parkingSessionService;
+
+	@Autowired
+	private TransactionTemplate transactionTemplate;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@AfterEach
+	public void tearDown() {
+		jdbcTemplate.update("delete from parking_session where license_plate like 'ARC%'");
+		jdbcTemplate.update("delete from parking_session_archive where license_plate like 'ARC%'");
+	}
+
+	@Test
+	public void testArchiveEndedSessions() {
+		ParkingSession first = session("ARC1", DAY.plusHours(10), DAY.plusHours(11));
+		ParkingSession second = session("ARC1", DAY.plusDays(1).plusHours(10), DAY.plusDays(1).plusHours(12));
+		ParkingSession active = session("ARC1", DAY.plusDays(2).plusHours(9), null);
+		ParkingSession other = session("ARC2", DAY.plusHours(9), DAY.plusHours(9).plusMinutes(30));
+		parkingSessionBatchRepository.insertAll(List.of(first, second, active, other));
+
+		// sessions ended on the first day are moved in batches, the later and the active ones stay
+		LocalDateTime endedBefore = DAY.plusDays(1);
+		assertEquals(1, archive(endedBefore, 1));
+		assertEquals(1, archive(endedBefore, 10));
+		assertEquals(0, archive(endedBefore, 10));
+		assertEquals(2, count("parking_session_archive", "ARC%"));
+		assertEquals(2, count("parking_session", "ARC%"));
+		assertEquals(DAY.plusDays(3), parkingSessionArchiveRepository.findById(first.getId()).orElseThrow().getArchivedAt());
+
+		// the history is read across both tables in start time order
+		List<ParkingSession> history = parkingSessionBatchRepository.findSessionHistory("ARC1");
+		assertEquals(List.of(first.getId(), second.getId(), active.getId()), history.stream().map(ParkingSession::getId).toList());
+		assertEquals(DAY.plusHours(11), history.get(0).getEndTime());
+		assertTrue(history.get(2).isActive());
+		assertEquals(first.getVersion(), history.get(0).getVersion());
+	}
+
+	@Test
+	public void testFindSessionsOverlappingAcrossTables() {
+		ParkingSession ended = session("ARC3", DAY.plusHours(10), DAY.plusHours(11));
+		ParkingSession archived = session("ARC4", DAY.plusHours(8), DAY.plusHours(9).plusMinutes(30));
+		ParkingSession active = session("ARC5", DAY.plusHours(10).plusMinutes(30), null);
+		parkingSessionBatchRepository.insertAll(List.of(ended, archived, active));
+		assertEquals(1, archive(DAY.plusHours(10), 10));
+
+		List<String> plates = List.of("ARC3", "ARC4", "ARC5");
+		// a session ended in the minute of the from time may still have covered it
+		assertEquals(List.of("ARC3", "ARC4"), overlapping(plates, DAY.plusHours(9).plusMinutes(30).plusSeconds(20), DAY.plusHours(10)));
+		assertEquals(List.of("ARC3", "ARC5"), overlapping(plates, DAY.plusHours(10).plusMinutes(45), DAY.plusHours(10).plusMinutes(46)));
+		assertEquals(List.of("ARC5"), overlapping(plates, DAY.plusDays(5), DAY.plusDays(5).plusMinutes(1)));
+		assertEquals(List.of(), overlapping(plates, DAY.minusDays(1), DAY.minusDays(1).plusMinutes(1)));
+	}
+
+	@Test
+	public void testStreamSessionHistoryAcrossTables() {
+		ParkingSession first = session("ARC6", DAY.plusHours(8), DAY.plusHours(9));
+		ParkingSession second = session("ARC6", DAY.plusHours(10), DAY.plusHours(11));
+		ParkingSession sameStart = session("ARC6", DAY.plusHours(10), DAY.plusHours(12));
+		ParkingSession active = session("ARC6", DAY.plusDays(1), null);
+		parkingSessionBatchRepository.insertAll(List.of(first, second, sameStart, active));
+		archive(DAY.plusHours(11).plusMinutes(30), 10);
+
+		SessionHistoryQuery query = new SessionHistoryQuery();
+		query.setLicensePlate("ARC6");
+		List<Long> ids = parkingSessionService.streamSessionHistory(query).map(SessionHistoryEntry::getId).toList();
+		List<Long> expected = List.of(first, second, sameStart, active).stream()
+				.sorted(Comparator.comparing(ParkingSession::getStartTime).thenComparing(ParkingSession::getId))
+				.map(ParkingSession::getId)
+				.toList();
+		assertEquals(expected, ids);
+
+		// the next page continues after the seek position
+		query.setAfterStartTime(DAY.plusHours(10));
+		query.setAfterId(expected.get(1));
+		query.setLimit(1);
+		assertEquals(List.of(expected.get(2)), parkingSessionService.streamSessionHistory(query).map(SessionHistoryEntry::getId).toList());
+	}
+
+	@Test
+	public void testFindEndedLicensePlatesAcrossTables() {
+		ParkingSession archived = session("ARC7", DAY.plusHours(8), DAY.plusHours(9));
+		ParkingSession archivedAgain = session("ARC8", DAY.plusHours(8), DAY.plusHours(9));
+		ParkingSession ended = session("ARC8", DAY.plusHours(12), DAY.plusHours(13));
+		ParkingSession active = session("ARC8", DAY.plusDays(1), null);
+		ParkingSession activeOnly = session("ARC9", DAY.plusHours(10), null);
+		parkingSessionBatchRepository.insertAll(List.of(archived, archivedAgain, ended, active, activeOnly));
+		assertEquals(2, archive(DAY.plusHours(10), 10));
+
+		// a plate is ended once, whether its ended sessions are live, archived or both
+		assertEquals(List.of("ARC7", "ARC8"), parkingSessionRepository.findEndedLicensePlates(List.of("ARC7", "ARC8", "ARC9", "ARC10")).stream().sorted().toList());
+		List<String> endedPlates = parkingSessionRepository.findAllEndedLicensePlates();
+		assertTrue(endedPlates.containsAll(List.of("ARC7", "ARC8")));
+		assertFalse(endedPlates.contains("ARC9"));
+		List<String> plates = parkingSessionRepository.findAllLicensePlates();
+		assertTrue(plates.containsAll(List.of("ARC7", "ARC8", "ARC9")));
+		assertFalse(plates.contains("ARC10"));
+		assertEquals(plates.size(), plates.stream().distinct().count());
+	}
+
+	private int archive(LocalDateTime endedBefore, int batchSize) {
+		return transactionTemplate.execute(status -> parkingSessionBatchRepository.archiveEndedBefore(endedBefore, batchSize, DAY.plusDays(3)));
+	}
+
+	private List<String> overlapping(List<String> plates, LocalDateTime from, LocalDateTime to) {
+		return parkingSessionBatchRepository.findSessionsOverlapping(plates, from, to).stream()
+				.map(ParkingSession::getLicensePlate)
+				.sorted()
+				.toList();
+	}
+
+	private long count(String table, String licensePlates) {
+		return jdbcTemplate.queryForObject("select count(*) from " + table + " where license_plate like ?", Long.class, licensePlates);
+	}
+
+	private static ParkingSession session(String licensePlate, LocalDateTime startTime, LocalDateTime endTime) {
+		ParkingSession session = new ParkingSession();
+		session.setLicensePlate(licensePlate);
+		session.setStreetName("Java");
+		session.setStartTime(startTime);
+		session.setEndTime(endTime);
+		session.setActive(endTime == null);
+		return session;
+	}
+}
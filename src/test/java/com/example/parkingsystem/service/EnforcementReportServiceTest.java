@@ -0,0 +1,80 @@
+package com.example.parkingsystem.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.example.parkingsystem.dto.EnforcementReport;
+import com.example.parkingsystem.exception.NotFoundException;
+import com.example.parkingsystem.service.impl.EnforcementReportServiceImpl;
+import com.example.parkingsystem.service.impl.UnregisteredPlatesReportWriter;
+
+public class EnforcementReportServiceTest {
+
+	private static final String REPORT_CONTENT = "Unregistered Plates Report\n==========================\n"
+			+ "License Plate: TN1234, Street: Java, Date: 2025-03-03T10:15\n"
+			+ "License Plate: TN5678, Street: Jakarta, Date: 2025-03-03T10:16\n";
+
+	@TempDir
+	private Path reportDirectory;
+
+	private EnforcementReportServiceImpl service;
+
+	@BeforeEach
+	public void setUp() throws IOException {
+		service = new EnforcementReportServiceImpl(new UnregisteredPlatesReportWriter(reportDirectory.toString(), false, 4096));
+		Files.writeString(reportDirectory.resolve("unregistered_plates_report_20250303T101500000.txt"), REPORT_CONTENT);
+		try (OutputStream output = new GZIPOutputStream(Files.newOutputStream(reportDirectory.resolve("unregistered_plates_report_20250303T101800000.txt.gz")))) {
+			output.write(REPORT_CONTENT.getBytes(StandardCharsets.UTF_8));
+		}
+		Files.writeString(reportDirectory.resolve("unregistered_plates_report_20250303T102100000.txt.tmp"), "partial");
+	}
+
+	@Test
+	public void testListReports() {
+		List<EnforcementReport> reports = service.listReports();
+		assertEquals(List.of("unregistered_plates_report_20250303T101800000.txt.gz", "unregistered_plates_report_20250303T101500000.txt"),
+				reports.stream().map(EnforcementReport::getName).toList());
+		assertTrue(reports.get(0).isGzip());
+	}
+
+	@Test
+	public void testGetReportRejectsUnknownNames() {
+		for (String name : List.of("../unregistered_plates_report_20250303T101500000.txt", "unregistered_plates_report_20250303T102100000.txt.tmp", "missing.txt")) {
+			Exception exception = assertThrows(NotFoundException.class, () -> service.getReport(name));
+			assertEquals("No report found for name: " + name, exception.getMessage());
+		}
+	}
+
+	@Test
+	public void testGetReportFromRelativeDirectory() {
+		// a configured directory like ./reports is not in normal form
+		String reportDirectoryName = reportDirectory.resolve("nested").resolve("..").resolve(".").toString();
+		EnforcementReportServiceImpl relativeService = new EnforcementReportServiceImpl(new UnregisteredPlatesReportWriter(reportDirectoryName, false, 4096));
+		assertEquals(reportDirectory.resolve("unregistered_plates_report_20250303T101500000.txt").toAbsolutePath().normalize(),
+				relativeService.getReport("unregistered_plates_report_20250303T101500000.txt"));
+	}
+
+	@Test
+	public void testWriteReportForStreet() {
+		for (String name : List.of("unregistered_plates_report_20250303T101500000.txt", "unregistered_plates_report_20250303T101800000.txt.gz")) {
+			ByteArrayOutputStream output = new ByteArrayOutputStream();
+			service.writeReportForStreet(name, "Jakarta", output);
+			assertEquals("Unregistered Plates Report\n==========================\nLicense Plate: TN5678, Street: Jakarta, Date: 2025-03-03T10:16\n",
+					output.toString(StandardCharsets.UTF_8));
+		}
+	}
+}
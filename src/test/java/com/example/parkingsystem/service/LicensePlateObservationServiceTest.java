@@ -1,31 +1,71 @@
 package com.example.parkingsystem.service;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.time.ZoneId;
 import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.io.ByteArrayInputStream;
 import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
-import org.mockito.MockitoAnnotations;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
 
+import com.example.parkingsystem.dto.ObservationUploadResult;
+import com.example.parkingsystem.entity.EnforcementCheckpoint;
 import com.example.parkingsystem.entity.LicensePlateObservation;
 import com.example.parkingsystem.entity.ParkingSession;
+import com.example.parkingsystem.repository.EnforcementCheckpointRepository;
+import com.example.parkingsystem.repository.LicensePlateObservationBatchRepository;
 import com.example.parkingsystem.repository.LicensePlateObservationRepository;
+import com.example.parkingsystem.repository.ParkingSessionBatchRepository;
 import com.example.parkingsystem.repository.ParkingSessionRepository;
+import com.example.parkingsystem.service.impl.SessionPlateFilter;
+import com.example.parkingsystem.service.impl.ActiveSessionIndex;
+import com.example.parkingsystem.service.impl.UnregisteredPlatesReportWriter;
 import com.example.parkingsystem.service.impl.LicensePlateObservationServiceImpl;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManager;
 
 @ExtendWith(MockitoExtension.class)
 public class LicensePlateObservationServiceTest {
@@ -33,19 +73,56 @@ public class LicensePlateObservationServiceTest {
 	@Mock
     private LicensePlateObservationRepository licensePlateObservationRepository;
     
+	@Mock
+    private LicensePlateObservationBatchRepository licensePlateObservationBatchRepository;
+    
 	@Mock
     private ParkingSessionRepository parkingSessionRepository;
+    
+	@Mock
+    private ActiveSessionIndex activeSessionIndex;
+    
+	@Mock
+    private EntityManager entityManager;
+    
+	@Mock
+    private EnforcementCheckpointRepository enforcementCheckpointRepository;
+    
+	@Mock
+    private ParkingSessionBatchRepository parkingSessionBatchRepository;
+    
+	@Mock
+    private PlatformTransactionManager transactionManager;
+    
+	@Spy
+    private MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    
+	@Spy
+    private SessionPlateFilter sessionPlateFilter = new SessionPlateFilter(null, false, 1000, 0.01);
+    
+	@Spy
+    private ObjectMapper objectMapper = new ObjectMapper().registerModule(new JavaTimeModule());
 
     @InjectMocks
     private LicensePlateObservationServiceImpl service;
+    
+    @TempDir
+    private Path reportDirectory;
 
     @BeforeEach
     public void setUp() {
-        MockitoAnnotations.openMocks(this);
+        ReflectionTestUtils.setField(service, "timezone", "Europe/Amsterdam");
+        ReflectionTestUtils.setField(service, "reportWriter", new UnregisteredPlatesReportWriter(reportDirectory.toString(), false, 4096));
+    }
+    
+    private File latestReport() throws IOException {
+    	try (Stream<Path> reports = Files.list(reportDirectory)) {
+    		return reports.max(Comparator.naturalOrder()).orElseThrow().toFile();
+    	}
     }
 
     @Test
-    public void testIdentifyUnregisteredPlates() {
+    public void testIdentifyUnregisteredPlates() throws IOException {
     	
     	LocalDateTime currentTime = LocalDateTime.now(ZoneId.of("Europe/Amsterdam")).truncatedTo(ChronoUnit.MINUTES);
     	List<LicensePlateObservation> observations = new ArrayList<>();
@@ -55,20 +132,284 @@ public class LicensePlateObservationServiceTest {
     	licensePlateObservation.setObservationTime(currentTime);
     	observations.add(licensePlateObservation);
 
-        ParkingSession session = new ParkingSession();
-        session.setLicensePlate("TN5678");
-        session.setStreetName("Jakarta");
-        session.setStartTime(currentTime.minusMinutes(7));
-        session.setEndTime(currentTime.minusMinutes(5));
-        session.setActive(false);
-    	
-        Optional<ParkingSession> optionalSession = Optional.of(session);
-    	
-    	when(licensePlateObservationRepository.findAll()).thenReturn(observations);
-    	when(parkingSessionRepository.findByLicensePlateAndIsActive(licensePlateObservation.getLicensePlate(), false)).thenReturn(optionalSession);
+    	when(licensePlateObservationRepository.streamAllByOrderByIdAsc()).thenReturn(observations.stream());
         service.identifyUnregisteredPlates();
-        assertThat(new File("unregistered_plates_report.txt")).isNotEmpty();
-        assertThat(new File("unregistered_plates_report.txt")).hasContent("Unregistered Plates Report\n==========================\nLicense Plate: TN5678, Street: Jakarta, Date: " + currentTime);
+        assertThat(latestReport()).hasContent("Unregistered Plates Report\n==========================\nLicense Plate: TN5678, Street: Jakarta, Date: " + currentTime);
+    }
+    
+    @Test
+    public void testIdentifyUnregisteredPlatesFromActiveSessionIndex() throws IOException {
+    	ReflectionTestUtils.setField(service, "timeWindowMatching", false);
+    	LocalDateTime observationTime = LocalDateTime.of(2025, 3, 3, 10, 15);
+    	List<LicensePlateObservation> observations = new ArrayList<>();
+    	for (String licensePlate : List.of("TN1111", "TN2222", "TN3333")) {
+    		LicensePlateObservation licensePlateObservation = new LicensePlateObservation();
+    		licensePlateObservation.setLicensePlate(licensePlate);
+    		licensePlateObservation.setStreetName("Java");
+    		licensePlateObservation.setObservationTime(observationTime);
+    		observations.add(licensePlateObservation);
+    	}
+
+    	when(licensePlateObservationRepository.streamAllByOrderByIdAsc()).thenReturn(observations.stream());
+    	when(activeSessionIndex.hasEndedSession("TN1111")).thenReturn(true);
+    	when(parkingSessionRepository.findEndedLicensePlates(anyCollection())).thenReturn(List.of("TN2222"));
+        service.identifyUnregisteredPlates();
+        assertThat(latestReport()).hasContent("Unregistered Plates Report\n==========================\n"
+        		+ "License Plate: TN1111, Street: Java, Date: 2025-03-03T10:15\nLicense Plate: TN2222, Street: Java, Date: 2025-03-03T10:15");
+        // only the plates missing from the index are looked up
+        verify(parkingSessionRepository, times(1)).findEndedLicensePlates(argThat(plates -> Set.copyOf(plates).equals(Set.of("TN2222", "TN3333"))));
+        assertEquals(1, meterRegistry.get("parking.enforcement.run").tag("scope", "all").tag("outcome", "success").timer().count());
+        assertEquals(3, meterRegistry.get("parking.enforcement.observations").tag("scope", "all").summary().totalAmount());
+        assertEquals(2, meterRegistry.get("parking.enforcement.unregistered").tag("scope", "all").summary().totalAmount());
+    }
+    
+    @Test
+    public void testIdentifyUnregisteredPlatesAtObservationTime() throws IOException {
+    	List<LicensePlateObservation> observations = new ArrayList<>();
+    	for (String licensePlate : List.of("TN1111", "TN2222", "TN3333", "TN4444", "TN5555")) {
+    		LicensePlateObservation licensePlateObservation = new LicensePlateObservation();
+    		licensePlateObservation.setLicensePlate(licensePlate);
+    		licensePlateObservation.setStreetName("Java");
+    		licensePlateObservation.setObservationTime(LocalDateTime.of(2025, 3, 3, 10, 15, 30));
+    		observations.add(licensePlateObservation);
+    	}
+    	List<ParkingSession> sessions = List.of(
+    			// ended in the minute of the observation, the end time is truncated to the minute
+    			session("TN3333", LocalDateTime.of(2025, 3, 3, 10, 0), LocalDateTime.of(2025, 3, 3, 10, 15)),
+    			session("TN3333", LocalDateTime.of(2025, 3, 3, 8, 0), LocalDateTime.of(2025, 3, 3, 9, 0)),
+    			// ended before the observation, or started after it
+    			session("TN4444", LocalDateTime.of(2025, 3, 3, 9, 0), LocalDateTime.of(2025, 3, 3, 10, 14)),
+    			session("TN5555", LocalDateTime.of(2025, 3, 3, 10, 16), null));
+
+    	when(licensePlateObservationRepository.streamAllByOrderByIdAsc()).thenReturn(observations.stream());
+    	// active since before the observation, and registered only after the observation
+    	when(activeSessionIndex.get("TN1111")).thenReturn(session("TN1111", LocalDateTime.of(2025, 3, 3, 9, 0), null));
+    	when(activeSessionIndex.get("TN2222")).thenReturn(session("TN2222", LocalDateTime.of(2025, 3, 3, 11, 0), null));
+    	when(parkingSessionBatchRepository.findSessionsOverlapping(anyCollection(), any(LocalDateTime.class), any(LocalDateTime.class))).thenReturn(sessions);
+        service.identifyUnregisteredPlates();
+        assertThat(latestReport()).hasContent("Unregistered Plates Report\n==========================\n"
+        		+ "License Plate: TN2222, Street: Java, Date: 2025-03-03T10:15:30\n"
+        		+ "License Plate: TN4444, Street: Java, Date: 2025-03-03T10:15:30\n"
+        		+ "License Plate: TN5555, Street: Java, Date: 2025-03-03T10:15:30");
+        verify(parkingSessionBatchRepository, times(1)).findSessionsOverlapping(argThat(plates -> Set.copyOf(plates).equals(Set.of("TN2222", "TN3333", "TN4444", "TN5555"))),
+        		argThat(from -> from.equals(LocalDateTime.of(2025, 3, 3, 10, 15, 30))), argThat(to -> to.equals(LocalDateTime.of(2025, 3, 3, 10, 15, 30))));
+        verify(parkingSessionRepository, never()).findEndedLicensePlates(anyCollection());
+    }
+    
+    @Test
+    public void testIdentifyUnregisteredPlatesAtObservationTimeSkipsLookupOfFilteredPlates() throws IOException {
+    	SessionPlateFilter enabledFilter = new SessionPlateFilter(null, true, 1000, 0.01);
+    	enabledFilter.add("TN2222");
+    	ReflectionTestUtils.setField(service, "sessionPlateFilter", enabledFilter);
+    	List<LicensePlateObservation> observations = new ArrayList<>();
+    	for (String licensePlate : List.of("TN2222", "TN3333")) {
+    		LicensePlateObservation licensePlateObservation = new LicensePlateObservation();
+    		licensePlateObservation.setLicensePlate(licensePlate);
+    		licensePlateObservation.setStreetName("Java");
+    		licensePlateObservation.setObservationTime(LocalDateTime.of(2025, 3, 3, 10, 15));
+    		observations.add(licensePlateObservation);
+    	}
+
+    	when(licensePlateObservationRepository.streamAllByOrderByIdAsc()).thenReturn(observations.stream());
+    	when(parkingSessionBatchRepository.findSessionsOverlapping(anyCollection(), any(LocalDateTime.class), any(LocalDateTime.class)))
+    			.thenReturn(List.of(session("TN2222", LocalDateTime.of(2025, 3, 3, 10, 0), LocalDateTime.of(2025, 3, 3, 11, 0))));
+        service.identifyUnregisteredPlates();
+        assertThat(latestReport()).hasContent("Unregistered Plates Report\n==========================\nLicense Plate: TN3333, Street: Java, Date: 2025-03-03T10:15");
+        // TN3333 never had a session, so no session can cover it and it is not looked up
+        verify(parkingSessionBatchRepository, times(1)).findSessionsOverlapping(argThat(plates -> Set.copyOf(plates).equals(Set.of("TN2222"))),
+        		any(LocalDateTime.class), any(LocalDateTime.class));
+        assertEquals(1, enabledFilter.getDefiniteNegatives());
+        assertEquals(1, enabledFilter.getPossibleHits());
+    }
+    
+    private ParkingSession session(String licensePlate, LocalDateTime startTime, LocalDateTime endTime) {
+    	ParkingSession session = new ParkingSession();
+    	session.setLicensePlate(licensePlate);
+    	session.setStreetName("Java");
+    	session.setStartTime(startTime);
+    	session.setEndTime(endTime);
+    	session.setActive(endTime == null);
+    	return session;
+    }
+    
+    @Test
+    public void testIdentifyUnregisteredPlatesSkipsLookupOfFilteredPlates() throws IOException {
+    	ReflectionTestUtils.setField(service, "timeWindowMatching", false);
+    	SessionPlateFilter enabledFilter = new SessionPlateFilter(null, true, 1000, 0.01);
+    	enabledFilter.add("TN2222");
+    	ReflectionTestUtils.setField(service, "sessionPlateFilter", enabledFilter);
+    	LocalDateTime observationTime = LocalDateTime.of(2025, 3, 3, 10, 15);
+    	List<LicensePlateObservation> observations = new ArrayList<>();
+    	for (String licensePlate : List.of("TN2222", "TN3333")) {
+    		LicensePlateObservation licensePlateObservation = new LicensePlateObservation();
+    		licensePlateObservation.setLicensePlate(licensePlate);
+    		licensePlateObservation.setStreetName("Java");
+    		licensePlateObservation.setObservationTime(observationTime);
+    		observations.add(licensePlateObservation);
+    	}
+
+    	when(licensePlateObservationRepository.streamAllByOrderByIdAsc()).thenReturn(observations.stream());
+    	when(parkingSessionRepository.findEndedLicensePlates(anyCollection())).thenReturn(List.of("TN2222"));
+        service.identifyUnregisteredPlates();
+        assertThat(latestReport()).hasContent("Unregistered Plates Report\n==========================\nLicense Plate: TN2222, Street: Java, Date: 2025-03-03T10:15");
+        // TN3333 never had a session, so it is not looked up
+        verify(parkingSessionRepository, times(1)).findEndedLicensePlates(argThat(plates -> Set.copyOf(plates).equals(Set.of("TN2222"))));
+        assertEquals(1, enabledFilter.getDefiniteNegatives());
+        assertEquals(1, enabledFilter.getPossibleHits());
+    }
+    
+    @Test
+    public void testIdentifyUnregisteredPlatesGzipReport() throws IOException {
+        ReflectionTestUtils.setField(service, "reportWriter", new UnregisteredPlatesReportWriter(reportDirectory.toString(), true, 64));
+    	List<LicensePlateObservation> observations = new ArrayList<>();
+    	StringBuilder expectedReport = new StringBuilder("Unregistered Plates Report\n==========================\n");
+    	for (int i = 0; i < 50; i++) {
+    		LicensePlateObservation licensePlateObservation = new LicensePlateObservation();
+    		licensePlateObservation.setLicensePlate("TN" + i);
+    		licensePlateObservation.setStreetName("Java");
+    		licensePlateObservation.setObservationTime(LocalDateTime.of(2025, 3, 3, 10, 15));
+    		observations.add(licensePlateObservation);
+    		expectedReport.append("License Plate: TN").append(i).append(", Street: Java, Date: 2025-03-03T10:15\n");
+    	}
+
+    	when(licensePlateObservationRepository.streamAllByOrderByIdAsc()).thenReturn(observations.stream());
+        service.identifyUnregisteredPlates();
+        File report = latestReport();
+        assertThat(report.getName()).startsWith(UnregisteredPlatesReportWriter.REPORT_FILE_PREFIX).endsWith(".txt.gz");
+        try (GZIPInputStream input = new GZIPInputStream(new FileInputStream(report))) {
+        	assertEquals(expectedReport.toString(), new String(input.readAllBytes(), StandardCharsets.UTF_8));
+        }
+        try (Stream<Path> reports = Files.list(reportDirectory)) {
+        	assertEquals(1, reports.count());
+        }
+    }
+    
+    @Test
+    public void testReportsOfTheSameMillisecond() throws IOException {
+    	UnregisteredPlatesReportWriter reportWriter = new UnregisteredPlatesReportWriter(reportDirectory.toString(), false, 4096);
+    	LocalDateTime runTime = LocalDateTime.of(2025, 3, 3, 10, 15);
+    	LicensePlateObservation licensePlateObservation = new LicensePlateObservation();
+    	licensePlateObservation.setStreetName("Java");
+    	licensePlateObservation.setObservationTime(runTime);
+    	try (UnregisteredPlatesReportWriter.Report first = reportWriter.open(runTime);
+    			UnregisteredPlatesReportWriter.Report second = reportWriter.open(runTime)) {
+    		licensePlateObservation.setLicensePlate("TN1111");
+    		first.write(licensePlateObservation);
+    		licensePlateObservation.setLicensePlate("TN2222");
+    		second.write(licensePlateObservation);
+    		assertEquals("unregistered_plates_report_20250303T101500000_1.txt", second.commit().getFileName().toString());
+    		assertEquals("unregistered_plates_report_20250303T101500000.txt", first.commit().getFileName().toString());
+    	}
+    	// a later run of the same millisecond does not replace a published report either
+    	try (UnregisteredPlatesReportWriter.Report third = reportWriter.open(runTime)) {
+    		assertEquals("unregistered_plates_report_20250303T101500000_2.txt", third.commit().getFileName().toString());
+    	}
+    	assertThat(reportDirectory.resolve("unregistered_plates_report_20250303T101500000.txt"))
+    			.hasContent("Unregistered Plates Report\n==========================\nLicense Plate: TN1111, Street: Java, Date: 2025-03-03T10:15");
+    	assertThat(reportDirectory.resolve("unregistered_plates_report_20250303T101500000_1.txt"))
+    			.hasContent("Unregistered Plates Report\n==========================\nLicense Plate: TN2222, Street: Java, Date: 2025-03-03T10:15");
+    	try (Stream<Path> reports = Files.list(reportDirectory)) {
+    		assertEquals(3, reports.count());
+    	}
+    }
+    
+    @Test
+    public void testIdentifyUnregisteredPlatesInParallel() throws IOException {
+    	ReflectionTestUtils.setField(service, "timeWindowMatching", false);
+    	ReflectionTestUtils.setField(service, "enforcementParallelism", 4);
+    	service.init();
+    	List<LicensePlateObservation> observations = new ArrayList<>();
+    	StringBuilder expectedReport = new StringBuilder("Unregistered Plates Report\n==========================\n");
+    	for (int i = 0; i < 5000; i++) {
+    		// plates 0, 7, 14... have an ended session in the index, plates 1, 8, 15... only in the database
+    		int plate = i % 700;
+    		LicensePlateObservation licensePlateObservation = new LicensePlateObservation();
+    		licensePlateObservation.setLicensePlate("TN" + plate);
+    		licensePlateObservation.setStreetName("Java");
+    		licensePlateObservation.setObservationTime(LocalDateTime.of(2025, 3, 3, 10, 15).plusMinutes(i));
+    		observations.add(licensePlateObservation);
+    		if (plate % 7 <= 1) {
+    			expectedReport.append("License Plate: TN").append(plate).append(", Street: Java, Date: ").append(licensePlateObservation.getObservationTime()).append("\n");
+    		}
+    	}
+
+    	when(licensePlateObservationRepository.streamAllByOrderByIdAsc()).thenReturn(observations.stream());
+    	when(activeSessionIndex.hasEndedSession(any())).thenAnswer(invocation -> Integer.parseInt(invocation.<String>getArgument(0).substring(2)) % 7 == 0);
+    	when(parkingSessionRepository.findEndedLicensePlates(anyCollection())).thenAnswer(invocation -> invocation.<Collection<String>>getArgument(0).stream()
+    			.filter(plate -> Integer.parseInt(plate.substring(2)) % 7 == 1)
+    			.toList());
+        service.identifyUnregisteredPlates();
+        service.shutdown();
+        assertThat(latestReport()).hasContent(expectedReport.toString().stripTrailing());
+    }
+    
+    @Test
+    public void testIdentifyUnregisteredPlatesInBatches() throws IOException {
+    	LicensePlateObservation licensePlateObservation = new LicensePlateObservation();
+    	licensePlateObservation.setLicensePlate("TN5678");
+    	licensePlateObservation.setStreetName("Jakarta");
+    	licensePlateObservation.setObservationTime(LocalDateTime.of(2025, 3, 3, 10, 15));
+
+    	when(licensePlateObservationRepository.streamByUploadBatchIdInOrderByIdAsc(List.of("batch-1"))).thenReturn(Stream.of(licensePlateObservation));
+        service.identifyUnregisteredPlates(List.of("batch-1"));
+        assertThat(latestReport()).hasContent("Unregistered Plates Report\n==========================\nLicense Plate: TN5678, Street: Jakarta, Date: 2025-03-03T10:15");
+        verify(licensePlateObservationRepository, never()).streamAllByOrderByIdAsc();
+    }
+    
+    @Test
+    public void testIdentifyNewUnregisteredPlates() throws IOException {
+    	LocalDateTime latestUploadedAt = LocalDateTime.of(2025, 3, 3, 11, 0);
+    	EnforcementCheckpoint batch = new EnforcementCheckpoint("batch-2", LocalDateTime.of(2025, 3, 3, 11, 5), 1);
+    	LicensePlateObservation licensePlateObservation = new LicensePlateObservation();
+    	licensePlateObservation.setLicensePlate("TN5678");
+    	licensePlateObservation.setStreetName("Jakarta");
+    	licensePlateObservation.setObservationTime(LocalDateTime.of(2025, 3, 3, 10, 15));
+
+    	when(enforcementCheckpointRepository.findLatestUploadedAt()).thenReturn(Optional.of(latestUploadedAt));
+    	// only the batches uploaded since the latest checked one minus the lag are read
+    	when(licensePlateObservationRepository.findUncheckedUploadBatches(LocalDateTime.of(2025, 3, 3, 10, 45), PageRequest.of(0, 100))).thenReturn(List.of(batch));
+    	when(licensePlateObservationRepository.streamByUploadBatchIdInOrderByIdAsc(List.of("batch-2"))).thenReturn(Stream.of(licensePlateObservation));
+        service.identifyNewUnregisteredPlates();
+        assertThat(latestReport()).hasContent("Unregistered Plates Report\n==========================\nLicense Plate: TN5678, Street: Jakarta, Date: 2025-03-03T10:15");
+        verify(entityManager, times(1)).persist(batch);
+        assertNotNull(batch.getCheckedAt());
+        // the report is written in a read-only transaction, the checkpoints are stored in a short one of their own
+        verify(transactionManager, times(1)).getTransaction(argThat(TransactionDefinition::isReadOnly));
+        verify(transactionManager, times(1)).getTransaction(argThat(definition -> !definition.isReadOnly()));
+        verify(licensePlateObservationRepository, never()).streamAllByOrderByIdAsc();
+        assertEquals(1, meterRegistry.get("parking.enforcement.observations").tag("scope", "incremental").summary().totalAmount());
+    }
+    
+    @Test
+    public void testIdentifyNewUnregisteredPlatesWithoutNewBatches() throws IOException {
+    	when(enforcementCheckpointRepository.findLatestUploadedAt()).thenReturn(Optional.empty());
+    	when(licensePlateObservationRepository.findUncheckedUploadBatches(any(LocalDateTime.class), any(PageRequest.class))).thenReturn(List.of());
+        service.identifyNewUnregisteredPlates();
+        try (Stream<Path> reports = Files.list(reportDirectory)) {
+        	assertEquals(0, reports.count());
+        }
+        verify(licensePlateObservationRepository, never()).streamByUploadBatchIdInOrderByIdAsc(anyCollection());
+        verify(entityManager, never()).persist(any());
+        verify(transactionManager, never()).getTransaction(argThat(definition -> !definition.isReadOnly()));
+    }
+    
+    @Test
+    public void testDeleteObservations() {
+    	LocalDateTime uploadedBefore = LocalDateTime.of(2025, 3, 3, 0, 0);
+    	when(licensePlateObservationRepository.deleteByUploadBatchIds(List.of("batch-1"))).thenReturn(2);
+    	when(licensePlateObservationRepository.deleteUploadedBefore(uploadedBefore)).thenReturn(3);
+
+        assertEquals(5, service.deleteObservations(List.of("batch-1"), uploadedBefore));
+        verify(licensePlateObservationRepository, never()).deleteAll();
+    }
+    
+    @Test
+    public void testPurgeExpiredObservations() {
+    	ReflectionTestUtils.setField(service, "observationRetention", Duration.ofDays(1));
+
+        service.purgeExpiredObservations();
+        verify(licensePlateObservationRepository, times(1)).deleteUploadedBefore(any(LocalDateTime.class));
+        verify(enforcementCheckpointRepository, times(1)).deleteUploadedBefore(any(LocalDateTime.class));
     }
     
     @Test
@@ -80,8 +421,56 @@ public class LicensePlateObservationServiceTest {
     	licensePlateObservation.setObservationTime(LocalDateTime.now(ZoneId.of("Europe/Amsterdam")).truncatedTo(ChronoUnit.MINUTES));
     	observations.add(licensePlateObservation);
 
-        service.uploadObservations(observations);
-        verify(licensePlateObservationRepository, times(1)).deleteAll();
+        ObservationUploadResult result = service.uploadObservations(observations);
+        assertNotNull(result.getBatchId());
+        assertEquals(1, result.getObservations());
+        assertEquals(result.getBatchId(), licensePlateObservation.getUploadBatchId());
+        assertNotNull(licensePlateObservation.getUploadedAt());
+        verify(licensePlateObservationRepository, never()).deleteAll();
         verify(licensePlateObservationRepository, times(1)).saveAll(observations);
     }
+    
+    @Test
+    public void testUploadObservationsCsvStream() {
+    	ReflectionTestUtils.setField(service, "ingestBatchSize", 2);
+    	List<String> insertedPlates = new ArrayList<>();
+    	doAnswer(invocation -> {
+    		List<LicensePlateObservation> batch = invocation.getArgument(0);
+    		batch.forEach(observation -> insertedPlates.add(observation.getLicensePlate()));
+    		return null;
+    	}).when(licensePlateObservationBatchRepository).insertAll(anyList());
+    	String csv = "licensePlate,streetName,observationTime\n"
+    			+ "TN1234,Java,2025-03-03T10:15\n"
+    			+ "\n"
+    			+ "TN5678,Jakarta,2025-03-03T10:16\n"
+    			+ "TN9012,Spring,2025-03-03T10:17\n";
+
+        ObservationUploadResult result = service.uploadObservations(new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8)), ObservationUploadFormat.CSV);
+        assertEquals(3, result.getObservations());
+        assertEquals(List.of("TN1234", "TN5678", "TN9012"), insertedPlates);
+        verify(licensePlateObservationRepository, never()).deleteAllInBatch();
+        verify(licensePlateObservationBatchRepository, times(2)).insertAll(anyList());
+        assertEquals(2, meterRegistry.get("parking.ingest.batch.size").tag("format", "csv").summary().count());
+        assertEquals(3, meterRegistry.get("parking.ingest.observations").tag("format", "csv").counter().count());
+    }
+    
+    @Test
+    public void testUploadObservationsNdjsonStream() {
+    	String ndjson = "{\"licensePlate\":\"TN1234\",\"streetName\":\"Java\",\"observationTime\":\"2025-03-03T10:15:00\"}\n"
+    			+ "{\"licensePlate\":\"TN5678\",\"streetName\":\"Jakarta\",\"observationTime\":\"2025-03-03T10:16:00\"}\n";
+
+        ObservationUploadResult result = service.uploadObservations(new ByteArrayInputStream(ndjson.getBytes(StandardCharsets.UTF_8)), ObservationUploadFormat.NDJSON);
+        assertEquals(2, result.getObservations());
+        verify(licensePlateObservationBatchRepository, times(1)).insertAll(anyList());
+    }
+    
+    @Test
+    public void testUploadObservationsMalformedCsvRecord() {
+    	String csv = "TN1234,Java\n";
+
+        Exception exception = assertThrows(RuntimeException.class, () -> {
+        	service.uploadObservations(new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8)), ObservationUploadFormat.CSV);
+        });
+        assertEquals("Malformed observation record 1: expected 3 fields but found 2", exception.getMessage());
+    }
 }
\ No newline at end of file
@@ -0,0 +1,164 @@
+package com.example.parkingsystem.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.when;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.LongConsumer;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.example.parkingsystem.dto.IngestJobStatus;
+import com.example.parkingsystem.dto.ObservationUploadResult;
+import com.example.parkingsystem.exception.NotFoundException;
+import com.example.parkingsystem.exception.ServiceUnavailableException;
+import com.example.parkingsystem.service.impl.ObservationIngestJobs;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+public class ObservationIngestJobsTest {
+
+	private static final String CSV = "TN1234,Java,2025-03-03T10:15\nTN5678,Jakarta,2025-03-03T10:16\n";
+
+	@Mock
+	private LicensePlateObservationService licensePlateObservationService;
+
+	private MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+	@TempDir
+	private Path spoolDir;
+
+	private ObservationIngestJobs jobs;
+
+	@BeforeEach
+	public void setUp() {
+		MockitoAnnotations.openMocks(this);
+		jobs = new ObservationIngestJobs(licensePlateObservationService, meterRegistry);
+		ReflectionTestUtils.setField(jobs, "workers", 1);
+		ReflectionTestUtils.setField(jobs, "queueCapacity", 1);
+		ReflectionTestUtils.setField(jobs, "spoolDir", spoolDir.toString());
+		ReflectionTestUtils.setField(jobs, "jobRetention", Duration.ofHours(1));
+		ReflectionTestUtils.setField(jobs, "timezone", "Europe/Amsterdam");
+		jobs.init();
+	}
+
+	@AfterEach
+	public void tearDown() throws InterruptedException {
+		jobs.shutdown();
+	}
+
+	@Test
+	public void testSubmitRunsJobFromSpooledUpload() throws Exception {
+		when(licensePlateObservationService.uploadObservations(any(InputStream.class), eq(ObservationUploadFormat.CSV), any(LongConsumer.class)))
+				.thenAnswer(invocation -> {
+					String upload = new String(invocation.getArgument(0, InputStream.class).readAllBytes(), StandardCharsets.UTF_8);
+					assertEquals(CSV, upload);
+					invocation.getArgument(2, LongConsumer.class).accept(2);
+					return new ObservationUploadResult("batch-1", 2);
+				});
+
+		IngestJobStatus queued = jobs.submit(new ByteArrayInputStream(CSV.getBytes(StandardCharsets.UTF_8)), ObservationUploadFormat.CSV);
+		assertEquals(CSV.length(), queued.getBytesTotal());
+
+		IngestJobStatus finished = awaitFinished(queued.getJobId());
+		assertEquals(IngestJobStatus.State.SUCCEEDED, finished.getState());
+		assertEquals("batch-1", finished.getBatchId());
+		assertEquals(2, finished.getObservations());
+		assertEquals(CSV.length(), finished.getBytesRead());
+		// the spooled upload is removed once processed
+		try (var files = Files.list(spoolDir)) {
+			assertEquals(0, files.count());
+		}
+	}
+
+	@Test
+	public void testSubmitFailedJob() throws Exception {
+		when(licensePlateObservationService.uploadObservations(any(InputStream.class), eq(ObservationUploadFormat.CSV), any(LongConsumer.class)))
+				.thenThrow(new RuntimeException("Malformed observation record at line 1"));
+
+		IngestJobStatus queued = jobs.submit(new ByteArrayInputStream(CSV.getBytes(StandardCharsets.UTF_8)), ObservationUploadFormat.CSV);
+
+		IngestJobStatus finished = awaitFinished(queued.getJobId());
+		assertEquals(IngestJobStatus.State.FAILED, finished.getState());
+		assertEquals("Malformed observation record at line 1", finished.getError());
+	}
+
+	@Test
+	public void testSubmitRunsJobOnVirtualThread() throws Exception {
+		jobs.shutdown();
+		ReflectionTestUtils.setField(jobs, "virtualThreads", true);
+		jobs.init();
+		AtomicReference<Thread> worker = new AtomicReference<>();
+		when(licensePlateObservationService.uploadObservations(any(InputStream.class), eq(ObservationUploadFormat.CSV), any(LongConsumer.class)))
+				.thenAnswer(invocation -> {
+					worker.set(Thread.currentThread());
+					return new ObservationUploadResult("batch-1", 2);
+				});
+
+		IngestJobStatus queued = jobs.submit(new ByteArrayInputStream(CSV.getBytes(StandardCharsets.UTF_8)), ObservationUploadFormat.CSV);
+
+		assertEquals(IngestJobStatus.State.SUCCEEDED, awaitFinished(queued.getJobId()).getState());
+		assertTrue(worker.get().isVirtual());
+		assertEquals("observation-ingest-1", worker.get().getName());
+	}
+
+	@Test
+	public void testSubmitRejectedWhenQueueIsFull() throws Exception {
+		CountDownLatch running = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		when(licensePlateObservationService.uploadObservations(any(InputStream.class), eq(ObservationUploadFormat.CSV), any(LongConsumer.class)))
+				.thenAnswer(invocation -> {
+					running.countDown();
+					release.await();
+					return new ObservationUploadResult("batch-1", 2);
+				});
+
+		// one job running and one queued fill the worker and the queue
+		jobs.submit(new ByteArrayInputStream(CSV.getBytes(StandardCharsets.UTF_8)), ObservationUploadFormat.CSV);
+		assertTrue(running.await(5, TimeUnit.SECONDS));
+		IngestJobStatus queued = jobs.submit(new ByteArrayInputStream(CSV.getBytes(StandardCharsets.UTF_8)), ObservationUploadFormat.CSV);
+		assertEquals(IngestJobStatus.State.QUEUED, jobs.getStatus(queued.getJobId()).getState());
+
+		ServiceUnavailableException exception = assertThrows(ServiceUnavailableException.class,
+				() -> jobs.submit(new ByteArrayInputStream(CSV.getBytes(StandardCharsets.UTF_8)), ObservationUploadFormat.CSV));
+		assertEquals("Ingest queue is full, try again later", exception.getMessage());
+		assertEquals(1, meterRegistry.get("parking.ingest.jobs").tag("outcome", "rejected").counter().count());
+		release.countDown();
+		assertEquals(IngestJobStatus.State.SUCCEEDED, awaitFinished(queued.getJobId()).getState());
+	}
+
+	@Test
+	public void testGetStatusOfUnknownJob() {
+		NotFoundException exception = assertThrows(NotFoundException.class, () -> jobs.getStatus("job-1"));
+		assertEquals("No ingest job found for job id: job-1", exception.getMessage());
+	}
+
+	private IngestJobStatus awaitFinished(String jobId) throws InterruptedException {
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+		IngestJobStatus status = jobs.getStatus(jobId);
+		while (status.getFinishedAt() == null && System.nanoTime() < deadline) {
+			Thread.sleep(10);
+			status = jobs.getStatus(jobId);
+		}
+		return status;
+	}
+}
@@ -0,0 +1,160 @@
+package com.example.parkingsystem.service;
+
+import com.example.parkingsystem.dto.SessionCommand;
+import com.example.parkingsystem.dto.SessionCommandResult;
+import com.example.parkingsystem.entity.ParkingSession;
+import com.example.parkingsystem.repository.ParkingSessionRepository;
+import com.example.parkingsystem.service.impl.ActiveSessionIndex;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/*
+ * Stress test of concurrent session changes against the real database, asserting at most one active session
+ * per license plate and that every successful start and end is stored
+ */
+@SpringBootTest(properties = {
+		"parkingsystem.cron.unregistered.plates=-",
+		"parkingsystem.cron.observations.retention=-",
+		"parkingsystem.cron.sessions.archive=-",
+		"parkingsystem.report.dir=target/test-reports"
+})
+public class ParkingSessionConcurrencyTest {
+
+	private static final int THREADS = 16;
+
+	@Autowired
+	private ParkingSessionService parkingSessionService;
+
+	@Autowired
+	private ParkingSessionRepository parkingSessionRepository;
+
+	@Autowired
+	private ActiveSessionIndex activeSessionIndex;
+
+	@Test
+	public void testConcurrentStartOfSamePlate() throws Exception {
+		CountDownLatch startSignal = new CountDownLatch(1);
+		AtomicInteger started = new AtomicInteger();
+		runConcurrently(() -> {
+			startSignal.await();
+			try {
+				parkingSessionService.startSession("RACE1", "Java");
+				started.incrementAndGet();
+			} catch (RuntimeException e) {
+				assertEquals("Active session already exists for license plate: RACE1", e.getMessage());
+			}
+			return null;
+		}, startSignal);
+		awaitStored();
+
+		assertEquals(1, started.get());
+		assertEquals(1, parkingSessionRepository.findAll().stream().filter(session -> session.getLicensePlate().equals("RACE1")).count());
+	}
+
+	@Test
+	public void testConcurrentSessionLifecycle() throws Exception {
+		List<String> plates = new ArrayList<>();
+		for (int i = 0; i < 20; i++) {
+			plates.add("STRESS" + i);
+		}
+		AtomicInteger starts = new AtomicInteger();
+		AtomicInteger ends = new AtomicInteger();
+		CountDownLatch startSignal = new CountDownLatch(1);
+		runConcurrently(() -> {
+			startSignal.await();
+			ThreadLocalRandom random = ThreadLocalRandom.current();
+			for (int i = 0; i < 150; i++) {
+				String licensePlate = plates.get(random.nextInt(plates.size()));
+				if (i % 10 == 0) {
+					// a batch touching several plates, mixed with the single calls
+					List<SessionCommand> commands = new ArrayList<>();
+					for (int j = 0; j < 5; j++) {
+						SessionCommand command = new SessionCommand();
+						command.setAction(random.nextBoolean() ? SessionCommand.Action.START : SessionCommand.Action.END);
+						command.setLicensePlate(plates.get(random.nextInt(plates.size())));
+						command.setStreetName("Spring");
+						commands.add(command);
+					}
+					for (SessionCommandResult result : parkingSessionService.applySessionCommands(commands)) {
+						if (result.isSuccess()) {
+							(result.getAction() == SessionCommand.Action.START ? starts : ends).incrementAndGet();
+						}
+					}
+				} else if (random.nextBoolean()) {
+					try {
+						parkingSessionService.startSession(licensePlate, "Java");
+						starts.incrementAndGet();
+					} catch (RuntimeException e) {
+						assertTrue(e.getMessage().startsWith("Active session already exists"), e.getMessage());
+					}
+				} else {
+					try {
+						parkingSessionService.endSession(licensePlate);
+						ends.incrementAndGet();
+					} catch (RuntimeException e) {
+						assertTrue(e.getMessage().startsWith("No active session found"), e.getMessage());
+					}
+				}
+			}
+			return null;
+		}, startSignal);
+		awaitStored();
+
+		List<ParkingSession> sessions = parkingSessionRepository.findAll().stream()
+				.filter(session -> session.getLicensePlate().startsWith("STRESS"))
+				.toList();
+		List<ParkingSession> activeSessions = sessions.stream().filter(ParkingSession::isActive).toList();
+		Map<String, Long> activePerPlate = activeSessions.stream().collect(Collectors.groupingBy(ParkingSession::getLicensePlate, Collectors.counting()));
+
+		assertTrue(activePerPlate.values().stream().allMatch(count -> count == 1), "duplicate active sessions " + activePerPlate);
+		// no lost updates, every successful start is a stored session and every successful end an ended one
+		assertEquals(starts.get(), sessions.size());
+		assertEquals(ends.get(), sessions.size() - activeSessions.size());
+		assertTrue(sessions.stream().allMatch(session -> session.isActive() == (session.getEndTime() == null)));
+		Map<String, ParkingSession> indexed = activeSessions.stream()
+				.collect(Collectors.toMap(ParkingSession::getLicensePlate, Function.identity()));
+		for (String licensePlate : plates) {
+			ParkingSession session = activeSessionIndex.get(licensePlate);
+			assertEquals(indexed.containsKey(licensePlate), session != null, licensePlate);
+		}
+	}
+
+	/*
+	 * Waits until the acknowledged session changes are in the database
+	 */
+	protected void awaitStored() {
+	}
+
+	private void runConcurrently(Callable<Void> task, CountDownLatch startSignal) throws Exception {
+		ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+		try {
+			List<Future<Void>> futures = new ArrayList<>();
+			for (int i = 0; i < THREADS; i++) {
+				futures.add(executor.submit(task));
+			}
+			startSignal.countDown();
+			for (Future<Void> future : futures) {
+				future.get();
+			}
+		} finally {
+			executor.shutdown();
+		}
+	}
+}
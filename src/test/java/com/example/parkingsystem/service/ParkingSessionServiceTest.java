@@ -1,29 +1,56 @@
 package com.example.parkingsystem.service;
 
-import com.example.parkingsystem.config.FreeParkingTimingConfig;
-import com.example.parkingsystem.config.HolidayConfig;
-import com.example.parkingsystem.config.StreetParkingPricing;
+import com.example.parkingsystem.config.StreetPricing;
+import com.example.parkingsystem.config.StreetPricingConfig;
+import com.example.parkingsystem.config.TariffCalendar;
+import com.example.parkingsystem.config.TariffCalendarConfig;
+import com.example.parkingsystem.dto.SessionCommand;
+import com.example.parkingsystem.dto.SessionCommandResult;
+import com.example.parkingsystem.dto.SessionHistoryEntry;
+import com.example.parkingsystem.dto.SessionHistoryQuery;
+import com.example.parkingsystem.dto.SessionQuote;
 import com.example.parkingsystem.entity.ParkingSession;
+import com.example.parkingsystem.exception.NotFoundException;
+import com.example.parkingsystem.repository.ParkingSessionArchiveRepository;
+import com.example.parkingsystem.repository.ParkingSessionBatchRepository;
 import com.example.parkingsystem.repository.ParkingSessionRepository;
+import com.example.parkingsystem.service.impl.SessionPlateFilter;
+import com.example.parkingsystem.service.impl.ActiveSessionIndex;
 import com.example.parkingsystem.service.impl.ParkingSessionServiceImpl;
+import com.example.parkingsystem.service.impl.SessionLockStripes;
+import com.example.parkingsystem.service.impl.SessionQuoteCache;
+import com.example.parkingsystem.service.impl.SessionWriteBehind;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Limit;
 import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.time.Clock;
+import java.time.Duration;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.time.LocalTime;
 import java.time.ZoneId;
 import java.time.temporal.ChronoUnit;
-import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
@@ -34,13 +61,37 @@ public class ParkingSessionServiceTest {
     private ParkingSessionRepository parkingSessionRepository;
     
     @Mock
-    private StreetParkingPricing streetParkingPricingConfig;
+    private StreetPricingConfig streetPricingConfig;
+    
+    @Mock
+    private TariffCalendarConfig tariffCalendarConfig;
     
     @Mock
-    private HolidayConfig holidayConfig;
+    private ActiveSessionIndex activeSessionIndex;
+    
+    @Mock
+    private ParkingSessionBatchRepository parkingSessionBatchRepository;
+    
+    @Spy
+    private MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    
+    @Spy
+    private SessionLockStripes sessionLockStripes = new SessionLockStripes(16);
     
     @Mock
-    private FreeParkingTimingConfig freeParkingTimingConfig;
+    private TransactionTemplate transactionTemplate;
+    
+    @Mock
+    private SessionPlateFilter sessionPlateFilter;
+    
+    @Spy
+    private SessionQuoteCache sessionQuoteCache = new SessionQuoteCache();
+    
+    @Mock
+    private SessionWriteBehind sessionWriteBehind;
+    
+    @Mock
+    private ParkingSessionArchiveRepository parkingSessionArchiveRepository;
 
     @InjectMocks
     private ParkingSessionServiceImpl service;
@@ -48,7 +99,12 @@ public class ParkingSessionServiceTest {
     @BeforeEach
     public void setUp() {
         MockitoAnnotations.openMocks(this);
-        ReflectionTestUtils.setField(service, "timezone", "Europe/Amsterdam");
+        // no street is priced unless a test configures prices
+        lenient().when(streetPricingConfig.getStreetPricing()).thenReturn(StreetPricing.compile(Map.of(), Map.of(), tariffCalendar()));
+    }
+    
+    private TariffCalendar tariffCalendar(LocalDate... holidays) {
+        return TariffCalendar.compile(LocalTime.of(20, 59), LocalTime.of(8, 0), List.of(holidays), ZoneId.of("Europe/Amsterdam"));
     }
 
     @Test
@@ -62,12 +118,15 @@ public class ParkingSessionServiceTest {
         pricing.put("Java", 15);
         
         when(parkingSessionRepository.save(any(ParkingSession.class))).thenReturn(session);
-        when(streetParkingPricingConfig.getValues()).thenReturn(pricing);
+        when(streetPricingConfig.getStreetPricing()).thenReturn(StreetPricing.compile(pricing, Map.of(), tariffCalendar()));
 
         ParkingSession result = service.startSession("ABC123", "Java");
         assertNotNull(result);
         assertEquals("ABC123", result.getLicensePlate());
         assertEquals("Java", result.getStreetName());
+        verify(activeSessionIndex, times(1)).put(session);
+        verify(sessionPlateFilter, times(1)).add("ABC123");
+        assertEquals(1, meterRegistry.get("parking.session.start").tag("street", "Java").tag("outcome", "success").timer().count());
     }
     
     @Test
@@ -87,28 +146,61 @@ public class ParkingSessionServiceTest {
         assertTrue(actualMessage.contains(expectedMessage));
     }
 
+    @Test
+    public void testStartSessionAlreadyActive() {
+        ParkingSession session = new ParkingSession();
+        session.setLicensePlate("ABC123");
+        session.setStreetName("Java");
+        session.setActive(true);
+        when(activeSessionIndex.get("ABC123")).thenReturn(session);
+
+        Exception exception = assertThrows(RuntimeException.class, () -> {
+        	service.startSession("ABC123", "Java");
+        });
+
+        assertEquals("Active session already exists for license plate: ABC123", exception.getMessage());
+        verify(parkingSessionRepository, never()).save(any(ParkingSession.class));
+        assertFalse(sessionLockStripes.lockFor("ABC123").isLocked());
+    }
+
+    @Test
+    public void testStartSessionRejectedByDatabase() {
+        when(streetPricingConfig.getStreetPricing()).thenReturn(StreetPricing.compile(Map.of("Java", 15), Map.of(), tariffCalendar()));
+        when(parkingSessionRepository.save(any(ParkingSession.class))).thenThrow(new DataIntegrityViolationException("active_license_plate"));
+
+        Exception exception = assertThrows(RuntimeException.class, () -> service.startSession("ABC123", "Java"));
+
+        assertEquals("Active session already exists for license plate: ABC123", exception.getMessage());
+        // the plate is in the filter before the row can commit, and taken out again when it is not stored
+        InOrder inOrder = inOrder(sessionPlateFilter, parkingSessionRepository);
+        inOrder.verify(sessionPlateFilter).add("ABC123");
+        inOrder.verify(parkingSessionRepository).save(any(ParkingSession.class));
+        inOrder.verify(sessionPlateFilter).remove("ABC123");
+        verify(activeSessionIndex, never()).put(any(ParkingSession.class));
+    }
+
     @Test
     public void testEndSession() {
         ParkingSession session = new ParkingSession();
         session.setLicensePlate("ABC123");
         session.setStreetName("Java");
-        session.setStartTime(LocalDateTime.now(ZoneId.of("Europe/Amsterdam")).truncatedTo(ChronoUnit.MINUTES).minusMinutes(3));
+        session.setStartTime(LocalDateTime.of(2025, 3, 4, 9, 57));//4th March 2025 - Tuesday
+        ZoneId zoneId = ZoneId.of("Europe/Amsterdam");
+        ReflectionTestUtils.setField(service, "clock", Clock.fixed(LocalDateTime.of(2025, 3, 4, 10, 0, 30).atZone(zoneId).toInstant(), zoneId));
 
         Map<String, Integer> pricing = new HashMap<>();
         pricing.put("Java", 15);
-        when(parkingSessionRepository.findByLicensePlateAndEndTimeIsNull("ABC123")).thenReturn(Collections.singletonList(session));
+        when(parkingSessionRepository.findByLicensePlateAndIsActive("ABC123", true)).thenReturn(Optional.of(session));
         when(parkingSessionRepository.save(any(ParkingSession.class))).thenReturn(session);
-        when(streetParkingPricingConfig.getValues()).thenReturn(pricing);
-        when(freeParkingTimingConfig.getFreeParkingStartHrs()).thenReturn(20);
-        when(freeParkingTimingConfig.getFreeParkingStartMins()).thenReturn(59);
-        when(freeParkingTimingConfig.getFreeParkingEndHrs()).thenReturn(8);
-        when(freeParkingTimingConfig.getFreeParkingEndMins()).thenReturn(00);
+        when(streetPricingConfig.getStreetPricing()).thenReturn(StreetPricing.compile(pricing, Map.of(), tariffCalendar()));
 
         ParkingSession result = service.endSession("ABC123");
         assertNotNull(result);
         assertEquals("ABC123", result.getLicensePlate());
-        assertNotNull(result.getEndTime());
+        assertEquals(LocalDateTime.of(2025, 3, 4, 10, 0), result.getEndTime());
         assertEquals(0.45, result.getCost());
+        // the end time and the cost are computed on the calendar of the pricing snapshot
+        verifyNoInteractions(tariffCalendarConfig);
     }
     
     @Test
@@ -120,13 +212,9 @@ public class ParkingSessionServiceTest {
 
         Map<String, Integer> pricing = new HashMap<>();
         pricing.put("Java", 15);
-        when(parkingSessionRepository.findByLicensePlateAndEndTimeIsNull("ABC123")).thenReturn(Collections.singletonList(session));
+        when(parkingSessionRepository.findByLicensePlateAndIsActive("ABC123", true)).thenReturn(Optional.of(session));
         when(parkingSessionRepository.save(any(ParkingSession.class))).thenReturn(session);
-        when(streetParkingPricingConfig.getValues()).thenReturn(pricing);
-        when(freeParkingTimingConfig.getFreeParkingStartHrs()).thenReturn(20);
-        when(freeParkingTimingConfig.getFreeParkingStartMins()).thenReturn(59);
-        when(freeParkingTimingConfig.getFreeParkingEndHrs()).thenReturn(8);
-        when(freeParkingTimingConfig.getFreeParkingEndMins()).thenReturn(00);
+        when(streetPricingConfig.getStreetPricing()).thenReturn(StreetPricing.compile(pricing, Map.of(), tariffCalendar()));
         when(session.getEndTime()).thenReturn(LocalDateTime.of(2025, 3, 3, 10, 0));//3rd March 2025 10 A.M - Monday
 
         ParkingSession result = service.endSession("ABC123");
@@ -145,14 +233,9 @@ public class ParkingSessionServiceTest {
 
         Map<String, Integer> pricing = new HashMap<>();
         pricing.put("Java", 15);
-        when(parkingSessionRepository.findByLicensePlateAndEndTimeIsNull("ABC123")).thenReturn(Collections.singletonList(session));
+        when(parkingSessionRepository.findByLicensePlateAndIsActive("ABC123", true)).thenReturn(Optional.of(session));
         when(parkingSessionRepository.save(any(ParkingSession.class))).thenReturn(session);
-        when(streetParkingPricingConfig.getValues()).thenReturn(pricing);
-        when(holidayConfig.getHolidayList()).thenReturn(List.of(LocalDate.of(2025, 3, 3)));
-        when(freeParkingTimingConfig.getFreeParkingStartHrs()).thenReturn(20);
-        when(freeParkingTimingConfig.getFreeParkingStartMins()).thenReturn(59);
-        when(freeParkingTimingConfig.getFreeParkingEndHrs()).thenReturn(8);
-        when(freeParkingTimingConfig.getFreeParkingEndMins()).thenReturn(00);
+        when(streetPricingConfig.getStreetPricing()).thenReturn(StreetPricing.compile(pricing, Map.of(), tariffCalendar(LocalDate.of(2025, 3, 3))));
         when(session.getEndTime()).thenReturn(LocalDateTime.of(2025, 3, 4, 10, 0));//4th March 2025 10 A.M - Tuesday
 
         ParkingSession result = service.endSession("ABC123");
@@ -162,9 +245,106 @@ public class ParkingSessionServiceTest {
         assertEquals(27, result.getCost());
     }
 
+    @Test
+    public void testEndSessionAfterOneMonth() {
+        ParkingSession session = spy(new ParkingSession());
+        session.setLicensePlate("ABC123");
+        session.setStreetName("Java");
+        session.setStartTime(LocalDateTime.of(2025, 3, 1, 20, 0));//1st march 2025 8 P.M - Saturday
+
+        Map<String, Integer> pricing = new HashMap<>();
+        pricing.put("Java", 15);
+        when(parkingSessionRepository.findByLicensePlateAndIsActive("ABC123", true)).thenReturn(Optional.of(session));
+        when(parkingSessionRepository.save(any(ParkingSession.class))).thenReturn(session);
+        when(streetPricingConfig.getStreetPricing()).thenReturn(StreetPricing.compile(pricing, Map.of(), tariffCalendar(LocalDate.of(2025, 3, 3))));
+        when(session.getEndTime()).thenReturn(LocalDateTime.of(2025, 3, 31, 10, 0));//31st March 2025 10 A.M - Monday
+
+        ParkingSession result = service.endSession("ABC123");
+        assertNotNull(result);
+        // one hour on the first evening, 23 full chargeable days of 780 minutes and 2 hours on the last morning
+        assertEquals(2718, result.getCost());
+    }
+
+    @Test
+    public void testEndSessionFromActiveSessionIndex() {
+        ParkingSession indexedSession = spy(new ParkingSession());
+        indexedSession.setLicensePlate("ABC123");
+        indexedSession.setStreetName("Java");
+        indexedSession.setStartTime(LocalDateTime.of(2025, 3, 4, 10, 0));//4th March 2025 10 A.M - Tuesday
+        indexedSession.setActive(true);
+        ParkingSession session = spy(indexedSession.copy());
+        doReturn(session).when(indexedSession).copy();
+
+        Map<String, Integer> pricing = new HashMap<>();
+        pricing.put("Java", 15);
+        when(activeSessionIndex.get("ABC123")).thenReturn(indexedSession);
+        when(parkingSessionRepository.save(any(ParkingSession.class))).thenReturn(session);
+        when(streetPricingConfig.getStreetPricing()).thenReturn(StreetPricing.compile(pricing, Map.of(), tariffCalendar()));
+        when(session.getEndTime()).thenReturn(LocalDateTime.of(2025, 3, 4, 11, 0));//4th March 2025 11 A.M - Tuesday
+
+        ParkingSession result = service.endSession("ABC123");
+        assertEquals(9, result.getCost());
+        // the session of the index is read by other threads and is never changed
+        assertTrue(indexedSession.isActive());
+        assertNull(indexedSession.getEndTime());
+        verify(parkingSessionRepository, never()).findByLicensePlateAndIsActive("ABC123", true);
+        verify(activeSessionIndex, times(1)).remove("ABC123");
+        verify(activeSessionIndex, times(1)).addEndedPlate("ABC123");
+        // the plate keeps its session, now ended, so it stays in the filter
+        verify(sessionPlateFilter, never()).remove(any());
+        assertEquals(1, meterRegistry.get("parking.session.end").tag("street", "Java").tag("outcome", "success").timer().count());
+        assertEquals(60, meterRegistry.get("parking.session.chargeable.minutes").tag("street", "Java").summary().totalAmount());
+    }
+
+    @Test
+    public void testQuoteSessionNotFound() {
+        when(streetPricingConfig.getStreetPricing()).thenReturn(StreetPricing.compile(Map.of("Java", 15), Map.of(), tariffCalendar()));
+
+        NotFoundException exception = assertThrows(NotFoundException.class, () -> service.quoteSession("ABC123"));
+
+        assertEquals("No active session found for license plate: ABC123", exception.getMessage());
+        // a poll is answered from the index alone
+        verifyNoInteractions(parkingSessionRepository, sessionWriteBehind);
+    }
+
+    @Test
+    public void testQuoteSession() {
+        LocalDateTime now = LocalDateTime.of(2025, 3, 4, 10, 0);
+        ZoneId zoneId = ZoneId.of("Europe/Amsterdam");
+        ReflectionTestUtils.setField(service, "clock", Clock.fixed(now.plusSeconds(30).atZone(zoneId).toInstant(), zoneId));
+        ParkingSession session = new ParkingSession();
+        session.setId(7L);
+        session.setLicensePlate("ABC123");
+        session.setStreetName("Java");
+        session.setStartTime(now.minusMinutes(3));
+        session.setActive(true);
+
+        StreetPricing streetPricing = StreetPricing.compile(Map.of("Java", 15), Map.of(), tariffCalendar());
+        when(streetPricingConfig.getStreetPricing()).thenReturn(streetPricing);
+        when(activeSessionIndex.get("ABC123")).thenReturn(session);
+
+        SessionQuote quote = service.quoteSession("ABC123");
+        SessionQuote cachedQuote = service.quoteSession("ABC123");
+        assertEquals(7L, quote.getSessionId());
+        assertEquals(now.minusMinutes(3), quote.getStartTime());
+        assertEquals(now, quote.getQuotedAt());
+        assertEquals(streetPricing.cost(streetPricing.streetId("Java"), quote.getStartTime(), quote.getQuotedAt()), quote.getCost());
+        assertSame(quote, cachedQuote);
+        assertEquals(1, sessionQuoteCache.getHits());
+
+        // the next minute is quoted again
+        ReflectionTestUtils.setField(service, "clock", Clock.fixed(now.plusMinutes(1).atZone(zoneId).toInstant(), zoneId));
+        SessionQuote nextQuote = service.quoteSession("ABC123");
+        assertEquals(now.plusMinutes(1), nextQuote.getQuotedAt());
+        assertEquals(2, sessionQuoteCache.getMisses());
+        assertTrue(session.isActive());
+        verify(parkingSessionRepository, never()).save(any(ParkingSession.class));
+        verify(parkingSessionRepository, never()).findByLicensePlateAndIsActive(anyString(), anyBoolean());
+    }
+
     @Test
     public void testEndSessionNoActiveSession() {
-        when(parkingSessionRepository.findByLicensePlateAndEndTimeIsNull("ABC123")).thenReturn(Collections.emptyList());
+        when(parkingSessionRepository.findByLicensePlateAndIsActive("ABC123", true)).thenReturn(Optional.empty());
 
         Exception exception = assertThrows(RuntimeException.class, () -> {
             service.endSession("ABC123");
@@ -183,7 +363,7 @@ public class ParkingSessionServiceTest {
         session.setStreetName("Java");
         session.setStartTime(LocalDateTime.now(ZoneId.of("Europe/Amsterdam")).truncatedTo(ChronoUnit.MINUTES));
 
-        when(parkingSessionRepository.findByLicensePlateAndEndTimeIsNull("ABC123")).thenReturn(Collections.singletonList(session));
+        when(parkingSessionRepository.findByLicensePlateAndIsActive("ABC123", true)).thenReturn(Optional.of(session));
 
         Exception exception = assertThrows(RuntimeException.class, () -> {
             service.endSession("ABC123");
@@ -194,4 +374,138 @@ public class ParkingSessionServiceTest {
 
         assertTrue(actualMessage.contains(expectedMessage));
     }
-}
\ No newline at end of file
+
+    private SessionCommand command(SessionCommand.Action action, String licensePlate, String streetName) {
+        SessionCommand command = new SessionCommand();
+        command.setAction(action);
+        command.setLicensePlate(licensePlate);
+        command.setStreetName(streetName);
+        return command;
+    }
+
+    @Test
+    public void testApplySessionCommands() {
+        ParkingSession indexedSession = new ParkingSession();
+        indexedSession.setId(1L);
+        indexedSession.setLicensePlate("IDX1");
+        indexedSession.setStreetName("Java");
+        indexedSession.setStartTime(LocalDateTime.of(2025, 3, 4, 10, 0));
+        indexedSession.setActive(true);
+        ParkingSession storedSession = new ParkingSession();
+        storedSession.setId(2L);
+        storedSession.setLicensePlate("DB1");
+        storedSession.setStreetName("Java");
+        storedSession.setStartTime(LocalDateTime.of(2025, 3, 4, 10, 0));
+        storedSession.setActive(true);
+
+        Map<String, Integer> pricing = new HashMap<>();
+        pricing.put("Java", 15);
+        when(streetPricingConfig.getStreetPricing()).thenReturn(StreetPricing.compile(pricing, Map.of(), tariffCalendar()));
+        when(activeSessionIndex.get(anyString())).thenAnswer(invocation -> "IDX1".equals(invocation.getArgument(0)) ? indexedSession : null);
+        when(transactionTemplate.execute(any())).thenAnswer(invocation -> invocation.<TransactionCallback<?>>getArgument(0).doInTransaction(null));
+        when(parkingSessionBatchRepository.findActiveSessions(Set.of("NEW1", "NEW2", "DB1", "NONE", "NEW3"))).thenReturn(List.of(storedSession));
+
+        List<SessionCommandResult> results = service.applySessionCommands(List.of(
+                command(SessionCommand.Action.START, "NEW1", "Java"),
+                command(SessionCommand.Action.START, "NEW2", "Jakarta"),
+                command(SessionCommand.Action.END, "IDX1", null),
+                command(SessionCommand.Action.END, "DB1", null),
+                command(SessionCommand.Action.END, "NONE", null),
+                command(SessionCommand.Action.START, "NEW3", "Java"),
+                command(SessionCommand.Action.END, "NEW3", null)));
+
+        assertEquals(List.of(true, false, true, true, false, true, true), results.stream().map(SessionCommandResult::isSuccess).toList());
+        assertEquals("No street found for street name: Jakarta", results.get(1).getError());
+        assertEquals("No active session found for license plate: NONE", results.get(4).getError());
+        assertFalse(results.get(2).getSession().isActive());
+        assertNotNull(results.get(3).getSession().getEndTime());
+        // the index keeps its own session until the batch has committed
+        assertTrue(indexedSession.isActive());
+        verify(parkingSessionBatchRepository, times(1)).insertAll(argThat(sessions -> sessions.stream().map(ParkingSession::getLicensePlate).toList().equals(List.of("NEW1", "NEW3"))
+                && sessions.get(0).isActive() && !sessions.get(1).isActive()));
+        verify(parkingSessionBatchRepository, times(1)).updateAll(argThat(sessions -> sessions.stream().map(ParkingSession::getId).toList().equals(List.of(1L, 2L))));
+        verify(parkingSessionRepository, never()).save(any(ParkingSession.class));
+        verify(activeSessionIndex, times(1)).put(results.get(0).getSession());
+        verify(activeSessionIndex, times(1)).remove("IDX1");
+        verify(activeSessionIndex, times(1)).remove("DB1");
+        verify(activeSessionIndex, times(1)).addEndedPlate("IDX1");
+        verify(activeSessionIndex, times(1)).addEndedPlate("DB1");
+        verify(activeSessionIndex, times(1)).addEndedPlate("NEW3");
+        verify(sessionPlateFilter, times(1)).add("NEW1");
+        verify(sessionPlateFilter, times(1)).add("NEW3");
+    }
+
+    @Test
+    public void testArchiveEndedSessions() {
+        ReflectionTestUtils.setField(service, "archiveAfter", Duration.ofDays(30));
+        ReflectionTestUtils.setField(service, "archiveBatchSize", 2);
+        when(tariffCalendarConfig.getTariffCalendar()).thenReturn(tariffCalendar());
+        when(transactionTemplate.execute(any())).thenAnswer(invocation -> invocation.<TransactionCallback<?>>getArgument(0).doInTransaction(null));
+        when(parkingSessionBatchRepository.archiveEndedBefore(any(LocalDateTime.class), eq(2), any(LocalDateTime.class))).thenReturn(2, 2, 1);
+
+        service.archiveEndedSessions();
+
+        verify(parkingSessionBatchRepository, times(3)).archiveEndedBefore(argThat(endedBefore -> endedBefore.isBefore(LocalDateTime.now().minusDays(29))), eq(2), any(LocalDateTime.class));
+        assertEquals(5, meterRegistry.get("parking.sessions.archived").counter().count());
+    }
+    
+    @Test
+    public void testStreamSessionHistory() {
+        ReflectionTestUtils.setField(service, "historyPageSize", 2);
+        SessionHistoryEntry first = historyEntry(1L, LocalDateTime.of(2025, 3, 3, 10, 0));
+        SessionHistoryEntry second = historyEntry(2L, LocalDateTime.of(2025, 3, 3, 11, 0));
+        SessionHistoryEntry third = historyEntry(4L, LocalDateTime.of(2025, 3, 3, 13, 0));
+        // the second session was archived between the two reads of the first page
+        when(parkingSessionRepository.findPlateHistory(eq("ABC123"), any(LocalDateTime.class), any(LocalDateTime.class), any(LocalDateTime.class), eq(Long.MIN_VALUE), any(Limit.class)))
+        		.thenReturn(List.of(second, third));
+        when(parkingSessionArchiveRepository.findPlateHistory(eq("ABC123"), any(LocalDateTime.class), any(LocalDateTime.class), any(LocalDateTime.class), eq(Long.MIN_VALUE), any(Limit.class)))
+        		.thenReturn(List.of(first, second));
+        when(parkingSessionRepository.findPlateHistory(eq("ABC123"), any(LocalDateTime.class), any(LocalDateTime.class), eq(second.getStartTime()), eq(2L), any(Limit.class)))
+        		.thenReturn(List.of(third));
+        when(parkingSessionArchiveRepository.findPlateHistory(eq("ABC123"), any(LocalDateTime.class), any(LocalDateTime.class), eq(second.getStartTime()), eq(2L), any(Limit.class)))
+        		.thenReturn(List.of());
+
+        SessionHistoryQuery query = new SessionHistoryQuery();
+        query.setLicensePlate("ABC123");
+        List<SessionHistoryEntry> sessions = service.streamSessionHistory(query).toList();
+
+        assertEquals(List.of(first, second, third), sessions);
+        verify(parkingSessionRepository, times(2)).findPlateHistory(eq("ABC123"), any(LocalDateTime.class), any(LocalDateTime.class), any(LocalDateTime.class), anyLong(), eq(Limit.of(2)));
+    }
+    
+    @Test
+    public void testStreamSessionHistoryStartsNextPageAtSeekPosition() {
+        ReflectionTestUtils.setField(service, "historyPageSize", 2);
+        LocalDateTime from = LocalDateTime.of(2025, 3, 1, 0, 0);
+        LocalDateTime to = LocalDateTime.of(2025, 4, 1, 0, 0);
+        SessionHistoryEntry first = historyEntry(1L, LocalDateTime.of(2025, 3, 3, 10, 0));
+        SessionHistoryEntry second = historyEntry(2L, LocalDateTime.of(2025, 3, 3, 11, 0));
+        SessionHistoryEntry third = historyEntry(4L, LocalDateTime.of(2025, 3, 3, 13, 0));
+        when(parkingSessionRepository.findStreetHistory("Java", from, to, from, Long.MIN_VALUE, Limit.of(2))).thenReturn(List.of(first, second));
+        when(parkingSessionArchiveRepository.findStreetHistory("Java", from, to, from, Long.MIN_VALUE, Limit.of(2))).thenReturn(List.of());
+        // the second page is range bounded by the start time of the last session read, not by from
+        when(parkingSessionRepository.findStreetHistory("Java", second.getStartTime(), to, second.getStartTime(), 2L, Limit.of(2))).thenReturn(List.of(third));
+        when(parkingSessionArchiveRepository.findStreetHistory("Java", second.getStartTime(), to, second.getStartTime(), 2L, Limit.of(2))).thenReturn(List.of());
+
+        SessionHistoryQuery query = new SessionHistoryQuery();
+        query.setStreetName("Java");
+        query.setFrom(from);
+        query.setTo(to);
+        List<SessionHistoryEntry> sessions = service.streamSessionHistory(query).toList();
+
+        assertEquals(List.of(first, second, third), sessions);
+        verify(parkingSessionRepository, times(1)).findStreetHistory("Java", second.getStartTime(), to, second.getStartTime(), 2L, Limit.of(2));
+        verify(parkingSessionArchiveRepository, times(1)).findStreetHistory("Java", second.getStartTime(), to, second.getStartTime(), 2L, Limit.of(2));
+    }
+    
+    @Test
+    public void testStreamSessionHistoryWithoutPlateOrStreet() {
+        RuntimeException exception = assertThrows(RuntimeException.class, () -> service.streamSessionHistory(new SessionHistoryQuery()));
+        assertEquals("Either a license plate or a street name is required", exception.getMessage());
+        verifyNoInteractions(parkingSessionRepository, parkingSessionArchiveRepository);
+    }
+    
+    private SessionHistoryEntry historyEntry(Long id, LocalDateTime startTime) {
+        return new SessionHistoryEntry(id, "ABC123", "Java", startTime, startTime.plusHours(1), 1.5, false);
+    }
+}
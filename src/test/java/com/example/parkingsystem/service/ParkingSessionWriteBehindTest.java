@@ -0,0 +1,29 @@
+package com.example.parkingsystem.service;
+
+import com.example.parkingsystem.service.impl.SessionWriteBehind;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+/*
+ * Runs the concurrent session changes with the session write-behind enabled and a small batch size,
+ * asserting the same stored sessions once the queued changes have been flushed
+ */
+@SpringBootTest(properties = {
+		"parkingsystem.cron.unregistered.plates=-",
+		"parkingsystem.cron.observations.retention=-",
+		"parkingsystem.cron.sessions.archive=-",
+		"parkingsystem.report.dir=target/test-reports",
+		"parkingsystem.sessions.write-behind.enabled=true",
+		"parkingsystem.sessions.write-behind.batch-size=8"
+})
+public class ParkingSessionWriteBehindTest extends ParkingSessionConcurrencyTest {
+
+	@Autowired
+	private SessionWriteBehind sessionWriteBehind;
+
+	@Override
+	protected void awaitStored() {
+		sessionWriteBehind.awaitFlushed();
+	}
+}
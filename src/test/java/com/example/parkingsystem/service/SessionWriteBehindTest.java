@@ -0,0 +1,197 @@
+package com.example.parkingsystem.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.example.parkingsystem.entity.ParkingSession;
+import com.example.parkingsystem.repository.ParkingSessionBatchRepository;
+import com.example.parkingsystem.service.impl.SessionPlateFilter;
+import com.example.parkingsystem.service.impl.ActiveSessionIndex;
+import com.example.parkingsystem.service.impl.SessionWriteBehind;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+public class SessionWriteBehindTest {
+
+	@Mock
+	private ParkingSessionBatchRepository parkingSessionBatchRepository;
+
+	@Mock
+	private TransactionTemplate transactionTemplate;
+
+	@Mock
+	private ActiveSessionIndex activeSessionIndex;
+
+	@Mock
+	private SessionPlateFilter sessionPlateFilter;
+
+	private MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+	private SessionWriteBehind sessionWriteBehind;
+
+	@BeforeEach
+	@SuppressWarnings("unchecked")
+	public void setUp() {
+		MockitoAnnotations.openMocks(this);
+		AtomicLong ids = new AtomicLong();
+		when(parkingSessionBatchRepository.allocateId()).thenAnswer(invocation -> ids.incrementAndGet());
+		doAnswer(invocation -> {
+			invocation.getArgument(0, Consumer.class).accept(null);
+			return null;
+		}).when(transactionTemplate).executeWithoutResult(any());
+	}
+
+	@AfterEach
+	public void tearDown() throws InterruptedException {
+		sessionWriteBehind.shutdown();
+	}
+
+	@Test
+	public void testInsertRejectedWhenQueueStaysFull() throws InterruptedException {
+		start(1, 1, Duration.ofMillis(10));
+		CountDownLatch flushing = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		doAnswer(invocation -> {
+			flushing.countDown();
+			release.await();
+			return null;
+		}).when(parkingSessionBatchRepository).insertAll(anyList());
+
+		// the first change is being flushed and the second one fills the queue
+		sessionWriteBehind.insert(session("TN1"));
+		assertTrue(flushing.await(5, TimeUnit.SECONDS));
+		sessionWriteBehind.insert(session("TN2"));
+
+		RuntimeException exception = assertThrows(RuntimeException.class, () -> sessionWriteBehind.insert(session("TN3")));
+		assertEquals("Session write queue is full, try again later", exception.getMessage());
+		assertEquals(1, meterRegistry.counter("parking.sessions.write.behind.rejected").count());
+
+		release.countDown();
+		sessionWriteBehind.awaitFlushed();
+		verify(parkingSessionBatchRepository, times(2)).insertAll(anyList());
+	}
+
+	@Test
+	@SuppressWarnings("unchecked")
+	public void testStartAndEndOfPlateCoalescedInOneBatch() {
+		start(10, 10, Duration.ofSeconds(1));
+		ParkingSession session = session("TN1");
+		sessionWriteBehind.insert(session);
+		session.setEndTime(session.getStartTime().plusHours(1));
+		session.setCost(2.5);
+		session.setActive(false);
+		sessionWriteBehind.update(session);
+
+		sessionWriteBehind.awaitFlushed();
+
+		ArgumentCaptor<List<ParkingSession>> inserted = ArgumentCaptor.forClass(List.class);
+		verify(parkingSessionBatchRepository).insertAll(inserted.capture());
+		assertEquals(1, inserted.getValue().size());
+		assertEquals(session.getId(), inserted.getValue().get(0).getId());
+		assertFalse(inserted.getValue().get(0).isActive());
+		assertEquals(2.5, inserted.getValue().get(0).getCost());
+		verify(parkingSessionBatchRepository).updateAll(List.of());
+	}
+
+	@Test
+	public void testShutdownStoresQueuedChanges() throws InterruptedException {
+		start(10, 10, Duration.ofMillis(200));
+		sessionWriteBehind.insert(session("TN1"));
+		sessionWriteBehind.insert(session("TN2"));
+		sessionWriteBehind.insert(session("TN3"));
+
+		sessionWriteBehind.shutdown();
+
+		verify(parkingSessionBatchRepository).insertAll(argThat(sessions -> sessions.size() == 3));
+		RuntimeException exception = assertThrows(RuntimeException.class, () -> sessionWriteBehind.insert(session("TN4")));
+		assertEquals("Session write queue is closed", exception.getMessage());
+		// flushed by shutdown
+		sessionWriteBehind.awaitFlushed();
+	}
+
+	@Test
+	public void testFailingChangesDroppedOneAtATime() {
+		start(10, 10, Duration.ofSeconds(1));
+		doThrow(new DataIntegrityViolationException("active_license_plate"))
+				.when(parkingSessionBatchRepository).insertAll(argThat(sessions -> sessions.stream().anyMatch(session -> session.getLicensePlate().equals("TN1"))));
+		doThrow(new ObjectOptimisticLockingFailureException(ParkingSession.class, 42L))
+				.when(parkingSessionBatchRepository).updateAll(argThat(sessions -> sessions.stream().anyMatch(session -> session.getId() == 42L)));
+		ParkingSession conflicting = session("TN1");
+		ParkingSession stored = session("TN2");
+		ParkingSession ended = session("TN3");
+		ended.setId(42L);
+		ended.setVersion(3L);
+		ended.setActive(false);
+		when(activeSessionIndex.get("TN1")).thenReturn(conflicting);
+		sessionWriteBehind.insert(conflicting);
+		sessionWriteBehind.insert(stored);
+		sessionWriteBehind.update(ended);
+
+		sessionWriteBehind.awaitFlushed();
+
+		// only the failing changes are dropped and their plates reverted
+		verify(parkingSessionBatchRepository).insertAll(argThat(sessions -> sessions.size() == 1 && sessions.get(0).getId().equals(stored.getId())));
+		verify(activeSessionIndex).remove("TN1");
+		verify(sessionPlateFilter).remove("TN1");
+		verify(activeSessionIndex, never()).remove("TN2");
+		verify(sessionPlateFilter, never()).remove("TN2");
+		// the dropped end leaves the plate out of the ended plates
+		verify(activeSessionIndex, never()).addEndedPlate("TN3");
+		assertEquals(2, meterRegistry.counter("parking.sessions.write.behind.dropped").count());
+
+		// the end of the dropped start has no row to update
+		conflicting.setEndTime(conflicting.getStartTime().plusHours(1));
+		conflicting.setActive(false);
+		sessionWriteBehind.update(conflicting);
+		sessionWriteBehind.awaitFlushed();
+
+		verify(parkingSessionBatchRepository, never()).updateAll(argThat(sessions -> sessions.stream().anyMatch(session -> session.getLicensePlate().equals("TN1"))));
+		verify(activeSessionIndex, never()).addEndedPlate("TN1");
+		assertEquals(3, meterRegistry.counter("parking.sessions.write.behind.dropped").count());
+	}
+
+	private void start(int queueCapacity, int batchSize, Duration flushInterval) {
+		sessionWriteBehind = new SessionWriteBehind(parkingSessionBatchRepository, transactionTemplate, activeSessionIndex, sessionPlateFilter,
+				meterRegistry, true, queueCapacity, batchSize, flushInterval, Duration.ofMillis(50), Duration.ofSeconds(5));
+		sessionWriteBehind.init();
+	}
+
+	private static ParkingSession session(String licensePlate) {
+		ParkingSession session = new ParkingSession();
+		session.setLicensePlate(licensePlate);
+		session.setStreetName("Java");
+		session.setStartTime(LocalDateTime.of(2025, 3, 3, 10, 0));
+		session.setActive(true);
+		return session;
+	}
+}